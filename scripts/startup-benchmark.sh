@@ -0,0 +1,127 @@
+#!/usr/bin/env bash
+#
+# Compares the startup time and resident memory of Shopkart in three modes:
+#
+#   jvm     the plain executable jar        mvn package -DskipTests
+#   cds     Spring AOT and a CDS archive    mvn -Pcds package -DskipTests
+#   native  a GraalVM native image          mvn -Pnative native:compile -DskipTests
+#
+# Each mode is started RUNS times against the embedded H2 database of the dev profile. A run ends
+# when GET /api/products/stats answers, so the time includes everything up to serving traffic, not
+# just what Spring reports as "Started ... in". The resident set size is read right after that first
+# request. Modes whose artifacts have not been built are skipped.
+#
+# Usage: scripts/startup-benchmark.sh [runs] [mode...]
+# Environment: PORT (default 18080), PROFILE (default dev), TIMEOUT in seconds (default 120),
+#              JAVA (default java)
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${1:-5}
+shift $(( $# > 0 ? 1 : 0 ))
+MODES=("$@")
+if [ ${#MODES[@]} -eq 0 ]; then
+	MODES=(jvm cds native)
+fi
+PORT=${PORT:-18080}
+PROFILE=${PROFILE:-dev}
+TIMEOUT=${TIMEOUT:-120}
+JAVA=${JAVA:-java}
+
+ARTIFACT=shopkart
+VERSION=0.0.1-SNAPSHOT
+JAR=target/$ARTIFACT-$VERSION.jar
+CDS_JAR=target/cds/$ARTIFACT-$VERSION.jar
+CDS_ARCHIVE=target/cds/$ARTIFACT.jsa
+NATIVE_IMAGE=target/$ARTIFACT
+LOG_DIR=target/startup-benchmark
+URL=http://localhost:$PORT/api/products/stats
+
+mkdir -p "$LOG_DIR"
+
+# prints the command line of a mode, or nothing if its artifacts are missing
+command_for() {
+	case "$1" in
+		jvm)
+			[ -f "$JAR" ] && echo "$JAVA -jar $JAR"
+			;;
+		cds)
+			[ -f "$CDS_JAR" ] && [ -f "$CDS_ARCHIVE" ] \
+				&& echo "$JAVA -XX:SharedArchiveFile=$CDS_ARCHIVE -Dspring.aot.enabled=true -jar $CDS_JAR"
+			;;
+		native)
+			[ -x "$NATIVE_IMAGE" ] && echo "$NATIVE_IMAGE"
+			;;
+		*)
+			echo "Unknown mode $1, expected jvm, cds or native" >&2
+			exit 1
+			;;
+	esac
+}
+
+now_millis() {
+	echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# resident set size of a process in MiB
+rss_mib() {
+	local kib
+	if [ -r "/proc/$1/status" ]; then
+		kib=$(awk '/^VmRSS:/ { print $2 }' "/proc/$1/status")
+	else
+		kib=$(ps -o rss= -p "$1" | tr -d ' ')
+	fi
+	echo $(( kib / 1024 ))
+}
+
+median() {
+	sort -n | awk '{ values[NR] = $1 } END { print (NR % 2) ? values[(NR + 1) / 2] : (values[NR / 2] + values[NR / 2 + 1]) / 2 }'
+}
+
+# starts a mode once and prints "<milliseconds until the first response> <RSS in MiB>"
+measure() {
+	local mode=$1 run=$2 log=$LOG_DIR/$1-$2.log
+	local start pid elapsed rss
+	start=$(now_millis)
+	# shellcheck disable=SC2086 # the command line is split on purpose
+	$(command_for "$mode") --server.port="$PORT" --spring.profiles.active="$PROFILE" > "$log" 2>&1 &
+	pid=$!
+	until curl -fs -o /dev/null "$URL"; do
+		if ! kill -0 "$pid" 2> /dev/null; then
+			echo "$mode run $run exited before serving requests, see $log" >&2
+			exit 1
+		fi
+		if [ $(( $(now_millis) - start )) -gt $(( TIMEOUT * 1000 )) ]; then
+			kill "$pid"
+			echo "$mode run $run did not serve requests within ${TIMEOUT}s, see $log" >&2
+			exit 1
+		fi
+		sleep 0.05
+	done
+	elapsed=$(( $(now_millis) - start ))
+	rss=$(rss_mib "$pid")
+	kill "$pid"
+	wait "$pid" 2> /dev/null || true
+	echo "$elapsed $rss"
+}
+
+printf '%-8s %4s %16s %10s\n' mode run first_response_ms rss_mib
+for mode in "${MODES[@]}"; do
+	if [ -z "$(command_for "$mode")" ]; then
+		echo "$mode: not built, skipped" >&2
+		continue
+	fi
+	results=$LOG_DIR/$mode.results
+	: > "$results"
+	for run in $(seq 1 "$RUNS"); do
+		# a process substitution would hide the exit status of a failed start
+		measured=$(measure "$mode" "$run") || exit 1
+		read -r elapsed rss <<< "$measured"
+		echo "$elapsed $rss" >> "$results"
+		printf '%-8s %4s %16s %10s\n' "$mode" "$run" "$elapsed" "$rss"
+	done
+	printf '%-8s %4s %16s %10s\n' "$mode" median \
+		"$(cut -d' ' -f1 "$results" | median)" "$(cut -d' ' -f2 "$results" | median)"
+done
@@ -2,8 +2,12 @@ package io.github.dbc2201.spring.boot.demos.shopkart;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@ImportRuntimeHints(ShopkartRuntimeHints.class)
 public class ShopkartApplication {
 
 	public static void main(String[] args) {
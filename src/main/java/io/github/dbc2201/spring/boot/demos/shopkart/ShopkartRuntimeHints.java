@@ -0,0 +1,81 @@
+package io.github.dbc2201.spring.boot.demos.shopkart;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import org.hibernate.validator.constraints.URL;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.core.DecoratingProxy;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.interceptor.TransactionalProxy;
+
+import javax.sql.DataSource;
+import java.lang.annotation.Annotation;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Reflection and proxy hints for a GraalVM native image, for what Spring's AOT processing cannot
+ * infer from the bean definitions alone.
+ * <ul>
+ *     <li>{@link Product} is read and written by Jackson and Hibernate through its fields, accessors
+ *     and default constructor.</li>
+ *     <li>{@link ProductRepository} is implemented by a JDK proxy, and its query methods are invoked
+ *     reflectively.</li>
+ *     <li>The validation annotations on {@link Product} and on the controller parameters are read
+ *     reflectively by Hibernate Validator, including their attributes.</li>
+ *     <li>The JDBC interfaces wrapped by the SQL instrumentation are proxied, and their methods are
+ *     invoked reflectively on the wrapped objects.</li>
+ * </ul>
+ * Native images need every reflective access known at build time, so anything missing here fails
+ * at runtime rather than at build time. Run the native image against the dev profile after adding
+ * entities, repositories or constraints.
+ */
+public class ShopkartRuntimeHints implements RuntimeHintsRegistrar {
+
+	/**
+	 * The constraint annotations used on {@link Product} and on the controller's parameters.
+	 */
+	static final List<Class<? extends Annotation>> VALIDATION_ANNOTATIONS = List.of(
+			NotBlank.class, NotNull.class, Size.class, Min.class, Max.class, Positive.class, URL.class);
+
+	/**
+	 * The JDBC types wrapped in proxies by the SQL instrumentation.
+	 */
+	static final List<Class<?>> INSTRUMENTED_JDBC_TYPES = List.of(
+			DataSource.class, Connection.class, Statement.class, PreparedStatement.class,
+			CallableStatement.class, ResultSet.class);
+
+	@Override
+	public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+		new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), Product.class);
+		hints.reflection().registerType(Product.class, MemberCategory.DECLARED_FIELDS,
+				MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+
+		hints.reflection().registerType(ProductRepository.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+		hints.proxies().registerJdkProxy(ProductRepository.class, Repository.class, TransactionalProxy.class,
+				Advised.class, DecoratingProxy.class);
+
+		for (Class<? extends Annotation> annotation : VALIDATION_ANNOTATIONS) {
+			hints.reflection().registerType(annotation, MemberCategory.INVOKE_PUBLIC_METHODS);
+		}
+
+		for (Class<?> type : INSTRUMENTED_JDBC_TYPES) {
+			hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_METHODS);
+			hints.proxies().registerJdkProxy(type);
+		}
+	}
+}
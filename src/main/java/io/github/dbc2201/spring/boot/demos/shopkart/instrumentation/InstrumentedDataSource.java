@@ -0,0 +1,160 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.instrumentation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Wraps a {@link DataSource} so that every statement executed through it is timed and counted.
+ * <p>
+ * Connections, statements and result sets are wrapped in lightweight dynamic proxies. Each
+ * execution is added to the {@link SqlStatistics} open on the calling thread, and rows are
+ * counted as result sets are read. Statements slower than the configured threshold are logged
+ * in key=value form together with the endpoint that issued them. A statement executed while
+ * nothing is captured and faster than the threshold only costs the timing: its SQL is not
+ * normalized and its result set is returned unwrapped.
+ */
+final class InstrumentedDataSource {
+
+	private static final Logger log = LoggerFactory.getLogger("shopkart.sql");
+
+	private static final Set<String> EXECUTE_METHODS = Set.of(
+			"execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+	private InstrumentedDataSource() {
+	}
+
+	/**
+	 * Wraps a data source.
+	 *
+	 * @param target                the data source to wrap
+	 * @param slowQueryThresholdNanos statements taking at least this long are logged
+	 * @return the instrumented data source
+	 */
+	static DataSource wrap(DataSource target, long slowQueryThresholdNanos) {
+		return proxy(DataSource.class, target, (proxy, method, args) -> {
+			Object result = invoke(target, method, args);
+			return result instanceof Connection connection
+					? wrapConnection(connection, slowQueryThresholdNanos)
+					: result;
+		});
+	}
+
+	private static Connection wrapConnection(Connection target, long slowQueryThresholdNanos) {
+		return proxy(Connection.class, target, (proxy, method, args) -> {
+			Object result = invoke(target, method, args);
+			String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+			return switch (result) {
+				case CallableStatement statement ->
+						wrapStatement(CallableStatement.class, statement, sql, slowQueryThresholdNanos);
+				case PreparedStatement statement ->
+						wrapStatement(PreparedStatement.class, statement, sql, slowQueryThresholdNanos);
+				case Statement statement -> wrapStatement(Statement.class, statement, null, slowQueryThresholdNanos);
+				case null, default -> result;
+			};
+		});
+	}
+
+	private static <T extends Statement> T wrapStatement(
+			Class<T> type, T target, String preparedSql, long slowQueryThresholdNanos) {
+		return proxy(type, target, new InvocationHandler() {
+			private List<SqlStatistics> lastStatistics = List.of();
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if (!EXECUTE_METHODS.contains(name)) {
+					Object result = InstrumentedDataSource.invoke(target, method, args);
+					return name.equals("getResultSet") && result instanceof ResultSet resultSet
+							? wrapResultSet(resultSet, lastStatistics)
+							: result;
+				}
+				String sql = preparedSql != null ? preparedSql
+						: args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+				long started = System.nanoTime();
+				Object result = InstrumentedDataSource.invoke(target, method, args);
+				long elapsed = System.nanoTime() - started;
+
+				lastStatistics = SqlInstrumentation.active();
+				boolean slow = elapsed >= slowQueryThresholdNanos;
+				if (lastStatistics.isEmpty() && !slow) {
+					// nothing records it: the SQL is not normalized and result sets are not wrapped
+					return result;
+				}
+				String normalizedSql = SqlInstrumentation.normalize(sql);
+				long rows = updateCount(result);
+				for (SqlStatistics statistics : lastStatistics) {
+					statistics.recordStatement(normalizedSql, elapsed, rows);
+				}
+				if (slow) {
+					log.warn("sql.slow endpoint=\"{}\" time_ms={} rows={} sql=\"{}\"",
+							SqlInstrumentationFilter.currentEndpoint(), String.format("%.3f", elapsed / 1_000_000.0),
+							rows, normalizedSql);
+				}
+				return result instanceof ResultSet resultSet ? wrapResultSet(resultSet, lastStatistics) : result;
+			}
+		});
+	}
+
+	private static ResultSet wrapResultSet(ResultSet target, List<SqlStatistics> statistics) {
+		if (statistics.isEmpty()) {
+			return target;
+		}
+		return proxy(ResultSet.class, target, (proxy, method, args) -> {
+			Object result = invoke(target, method, args);
+			if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+				statistics.forEach(SqlStatistics::recordRow);
+			}
+			return result;
+		});
+	}
+
+	private static long updateCount(Object result) {
+		return switch (result) {
+			case Integer count -> count;
+			case Long count -> count;
+			// batch counts may be negative (SUCCESS_NO_INFO), which adds nothing
+			case int[] counts -> Arrays.stream(counts).filter(count -> count > 0).asLongStream().sum();
+			case long[] counts -> Arrays.stream(counts).filter(count -> count > 0).sum();
+			case null, default -> 0;
+		};
+	}
+
+	/**
+	 * Creates a proxy that forwards to the handler, except for identity methods. Callers such as
+	 * Hibernate keep statements in hash maps, so equality must be based on the proxy itself.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+				switch (method.getName()) {
+					case "equals" -> method.getParameterCount() == 1 && proxy == args[0];
+					case "hashCode" -> method.getParameterCount() == 0
+							? System.identityHashCode(proxy) : handler.invoke(proxy, method, args);
+					case "toString" -> method.getParameterCount() == 0
+							? "Instrumented" + type.getSimpleName() + "[" + target + "]" : handler.invoke(proxy, method, args);
+					default -> handler.invoke(proxy, method, args);
+				});
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException exception) {
+			throw exception.getTargetException();
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.instrumentation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Thread-bound collection of SQL statistics.
+ * <p>
+ * A unit of work (an HTTP request, or a block of code in a test) starts collecting with
+ * {@link #capture()}. Every statement executed through the instrumented data source on the same
+ * thread is then added to all captures that are open on that thread.
+ */
+public final class SqlInstrumentation {
+
+	private static final ThreadLocal<List<SqlStatistics>> ACTIVE = ThreadLocal.withInitial(ArrayList::new);
+
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern NUMERIC_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private static final int NORMALIZED_CACHE_LIMIT = 4096;
+
+	/**
+	 * Normalized forms of the statements seen so far. Applications with bound parameters only issue
+	 * a limited set of distinct statements, so most executions are a map lookup instead of three
+	 * regular expression passes.
+	 */
+	private static final ConcurrentHashMap<String, String> NORMALIZED = new ConcurrentHashMap<>();
+
+	private SqlInstrumentation() {
+	}
+
+	/**
+	 * Starts collecting statistics for the statements executed on the current thread.
+	 *
+	 * @return a capture that must be closed on the same thread
+	 */
+	public static Capture capture() {
+		SqlStatistics statistics = new SqlStatistics();
+		ACTIVE.get().add(statistics);
+		return new Capture(statistics);
+	}
+
+	/**
+	 * Adds statistics captured on another thread to every capture open on this thread. Used when a
+	 * unit of work hands a query to a worker thread and waits for it.
+	 *
+	 * @param statistics the completed statistics of the other thread, no longer being updated
+	 */
+	public static void record(SqlStatistics statistics) {
+		for (SqlStatistics active : active()) {
+			active.add(statistics);
+		}
+	}
+
+	/**
+	 * Returns the statistics that are currently open on this thread.
+	 *
+	 * @return a snapshot of the active statistics, empty if nothing is being captured
+	 */
+	static List<SqlStatistics> active() {
+		List<SqlStatistics> active = ACTIVE.get();
+		return active.isEmpty() ? List.of() : List.copyOf(active);
+	}
+
+	/**
+	 * Replaces literals with {@code ?} and collapses whitespace, so that the same statement with
+	 * different parameters is counted as one.
+	 *
+	 * @param sql the SQL to normalize
+	 * @return the normalized SQL
+	 */
+	static String normalize(String sql) {
+		if (sql == null) {
+			return "";
+		}
+		String cached = NORMALIZED.get(sql);
+		if (cached != null) {
+			return cached;
+		}
+		String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+		normalized = NUMERIC_LITERAL.matcher(normalized).replaceAll("?");
+		normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+		// statements with inline literals are all different, so the cache stops growing at its limit
+		if (NORMALIZED.size() < NORMALIZED_CACHE_LIMIT) {
+			NORMALIZED.putIfAbsent(sql, normalized);
+		}
+		return normalized;
+	}
+
+	/**
+	 * An open capture of SQL statistics.
+	 */
+	public static final class Capture implements AutoCloseable {
+
+		private final SqlStatistics statistics;
+
+		private Capture(SqlStatistics statistics) {
+			this.statistics = statistics;
+		}
+
+		/**
+		 * Returns the statistics collected so far.
+		 *
+		 * @return the statistics of this capture
+		 */
+		public SqlStatistics statistics() {
+			return statistics;
+		}
+
+		/**
+		 * Stops collecting statistics.
+		 */
+		@Override
+		public void close() {
+			List<SqlStatistics> active = ACTIVE.get();
+			active.remove(statistics);
+			if (active.isEmpty()) {
+				ACTIVE.remove();
+			}
+		}
+	}
+}
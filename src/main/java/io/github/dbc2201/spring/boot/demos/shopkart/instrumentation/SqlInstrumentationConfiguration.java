@@ -0,0 +1,59 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.instrumentation;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Enables SQL instrumentation: every {@link DataSource} bean is wrapped so statements are timed
+ * and counted, and every HTTP request is summarized by {@link SqlInstrumentationFilter}.
+ * <p>
+ * This replaces {@code spring.jpa.show-sql}, which printed every statement synchronously to
+ * stdout without saying which request issued it. Can be switched off with
+ * {@code shopkart.sql.instrumentation.enabled=false}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "shopkart.sql.instrumentation.enabled", matchIfMissing = true)
+public class SqlInstrumentationConfiguration {
+
+	/**
+	 * Wraps data sources as they are created.
+	 * Declared static so that it does not force early initialization of this configuration class.
+	 *
+	 * @param slowQueryThreshold statements taking at least this long are logged individually
+	 * @return the post processor wrapping data sources
+	 */
+	@Bean
+	static BeanPostProcessor instrumentedDataSourcePostProcessor(
+			@Value("${shopkart.sql.slow-query-threshold:100ms}") Duration slowQueryThreshold
+	) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				return bean instanceof DataSource dataSource
+						? InstrumentedDataSource.wrap(dataSource, slowQueryThreshold.toNanos())
+						: bean;
+			}
+		};
+	}
+
+	/**
+	 * Creates the filter that collects and logs SQL statistics per HTTP request.
+	 *
+	 * @param sampleRate        the fraction of request summaries to log
+	 * @param nPlusOneThreshold the number of repeated executions reported as an N+1 pattern
+	 * @return the filter
+	 */
+	@Bean
+	SqlInstrumentationFilter sqlInstrumentationFilter(
+			@Value("${shopkart.sql.sample-rate:0.01}") double sampleRate,
+			@Value("${shopkart.sql.n-plus-one-threshold:10}") int nPlusOneThreshold
+	) {
+		return new SqlInstrumentationFilter(sampleRate, nPlusOneThreshold);
+	}
+}
@@ -0,0 +1,88 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.instrumentation;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Collects SQL statistics for every HTTP request and logs them in key=value form.
+ * <p>
+ * Every request is summarized with its endpoint (method and URL pattern), statement count, rows
+ * and database time. Summaries are logged for a random sample of requests, and always when the
+ * request repeated the same statement often enough to look like an N+1 query pattern.
+ */
+public class SqlInstrumentationFilter extends OncePerRequestFilter {
+
+	private static final Logger log = LoggerFactory.getLogger("shopkart.sql");
+
+	private static final ThreadLocal<HttpServletRequest> CURRENT_REQUEST = new ThreadLocal<>();
+
+	private final double sampleRate;
+	private final int nPlusOneThreshold;
+
+	/**
+	 * Creates a new SqlInstrumentationFilter.
+	 *
+	 * @param sampleRate        the fraction of requests whose summary is logged, between 0 and 1
+	 * @param nPlusOneThreshold the number of executions of one statement in a request that is reported as N+1
+	 */
+	public SqlInstrumentationFilter(double sampleRate, int nPlusOneThreshold) {
+		this.sampleRate = sampleRate;
+		this.nPlusOneThreshold = nPlusOneThreshold;
+	}
+
+	/**
+	 * Returns the endpoint of the request being processed on this thread.
+	 *
+	 * @return the HTTP method and URL pattern, or {@code "none"} outside of a request
+	 */
+	static String currentEndpoint() {
+		HttpServletRequest request = CURRENT_REQUEST.get();
+		return request == null ? "none" : endpoint(request);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		CURRENT_REQUEST.set(request);
+		SqlStatistics statistics;
+		try (SqlInstrumentation.Capture capture = SqlInstrumentation.capture()) {
+			statistics = capture.statistics();
+			filterChain.doFilter(request, response);
+		} finally {
+			CURRENT_REQUEST.remove();
+		}
+		if (statistics.statementCount() == 0) {
+			return;
+		}
+
+		String endpoint = endpoint(request);
+		boolean suspectedNPlusOne = false;
+		for (Map.Entry<String, Integer> entry : statistics.statementsBySql().entrySet()) {
+			if (entry.getValue() >= nPlusOneThreshold) {
+				suspectedNPlusOne = true;
+				log.warn("sql.n_plus_one endpoint=\"{}\" executions={} sql=\"{}\"",
+						endpoint, entry.getValue(), entry.getKey());
+			}
+		}
+		if (suspectedNPlusOne || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+			log.info("sql.request endpoint=\"{}\" status={} statements={} rows={} time_ms={}",
+					endpoint, response.getStatus(), statistics.statementCount(), statistics.rowCount(),
+					String.format("%.3f", statistics.executionMillis()));
+		}
+	}
+
+	private static String endpoint(HttpServletRequest request) {
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+	}
+}
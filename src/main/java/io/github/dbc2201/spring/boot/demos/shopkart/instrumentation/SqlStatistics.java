@@ -0,0 +1,86 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.instrumentation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SQL statement counters for one unit of work, such as an HTTP request or a test.
+ * <p>
+ * Instances are only updated by the thread that started them, so they need no synchronization.
+ */
+public class SqlStatistics {
+
+	private long statements;
+	private long rows;
+	private long nanos;
+	private final Map<String, Integer> statementsBySql = new HashMap<>();
+
+	void recordStatement(String normalizedSql, long elapsedNanos, long affectedRows) {
+		statements++;
+		nanos += elapsedNanos;
+		rows += Math.max(0, affectedRows);
+		statementsBySql.merge(normalizedSql, 1, Integer::sum);
+	}
+
+	void recordRow() {
+		rows++;
+	}
+
+	void add(SqlStatistics other) {
+		statements += other.statements;
+		nanos += other.nanos;
+		rows += other.rows;
+		other.statementsBySql.forEach((sql, count) -> statementsBySql.merge(sql, count, Integer::sum));
+	}
+
+	/**
+	 * Returns the number of statements executed.
+	 *
+	 * @return the statement count
+	 */
+	public long statementCount() {
+		return statements;
+	}
+
+	/**
+	 * Returns the number of rows read or written.
+	 *
+	 * @return the number of rows fetched from result sets plus the update counts
+	 */
+	public long rowCount() {
+		return rows;
+	}
+
+	/**
+	 * Returns the total time spent executing statements, excluding fetching rows.
+	 *
+	 * @return the execution time in milliseconds
+	 */
+	public double executionMillis() {
+		return nanos / 1_000_000.0;
+	}
+
+	/**
+	 * Returns how often each statement was executed, keyed by its SQL with literals replaced by {@code ?}.
+	 *
+	 * @return an unmodifiable view of the per-statement counts
+	 */
+	public Map<String, Integer> statementsBySql() {
+		return Collections.unmodifiableMap(statementsBySql);
+	}
+
+	/**
+	 * Returns the number of statements whose SQL contains the given text, ignoring case.
+	 *
+	 * @param fragment the text to look for, for example {@code "insert into products"}
+	 * @return the number of matching statements
+	 */
+	public long statementCount(String fragment) {
+		String lowerCaseFragment = fragment.toLowerCase();
+		return statementsBySql.entrySet().stream()
+				.filter(entry -> entry.getKey().toLowerCase().contains(lowerCaseFragment))
+				.mapToLong(Map.Entry::getValue)
+				.sum();
+	}
+}
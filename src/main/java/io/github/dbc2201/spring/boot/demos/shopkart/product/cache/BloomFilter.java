@@ -0,0 +1,141 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe Bloom filter over long and string keys.
+ * <p>
+ * A Bloom filter answers "definitely not present" or "maybe present". It never
+ * produces false negatives, so a negative answer can be trusted to skip a lookup.
+ * Bits are stored in an {@link AtomicLongArray} so that concurrent inserts and
+ * lookups do not need any locking.
+ */
+public class BloomFilter {
+
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashFunctions;
+
+	/**
+	 * Creates a Bloom filter sized for the given number of entries and false positive rate.
+	 *
+	 * @param expectedInsertions    the number of entries the filter should hold
+	 * @param falsePositiveProbability the desired false positive rate, between 0 and 1 (exclusive)
+	 */
+	public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+		if (expectedInsertions <= 0) {
+			expectedInsertions = 1;
+		}
+		if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+			throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+		}
+		long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability)
+				/ (Math.log(2) * Math.log(2)));
+		// probes are derived from 31-bit hashes, so more than 2^31 bits would never be used
+		int words = (int) Math.min(1L << 25, (optimalBits + 63) / 64);
+		this.bits = new AtomicLongArray(Math.max(1, words));
+		this.bitCount = (long) bits.length() * 64;
+		this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+	}
+
+	/**
+	 * Adds a numeric key to the filter.
+	 *
+	 * @param key the key to add
+	 */
+	public void put(long key) {
+		long hash = mix(key);
+		setBits((int) hash, (int) (hash >>> 32));
+	}
+
+	/**
+	 * Adds a string key to the filter.
+	 *
+	 * @param key the key to add, ignored when null
+	 */
+	public void put(String key) {
+		if (key == null) {
+			return;
+		}
+		long hash = hash(key);
+		setBits((int) hash, (int) (hash >>> 32));
+	}
+
+	/**
+	 * Checks whether a numeric key may have been added.
+	 *
+	 * @param key the key to look for
+	 * @return false if the key was definitely never added, true if it may have been
+	 */
+	public boolean mightContain(long key) {
+		long hash = mix(key);
+		return testBits((int) hash, (int) (hash >>> 32));
+	}
+
+	/**
+	 * Checks whether a string key may have been added.
+	 *
+	 * @param key the key to look for
+	 * @return false if the key was definitely never added, true if it may have been
+	 */
+	public boolean mightContain(String key) {
+		if (key == null) {
+			return false;
+		}
+		long hash = hash(key);
+		return testBits((int) hash, (int) (hash >>> 32));
+	}
+
+	/**
+	 * Returns the number of bits backing this filter.
+	 *
+	 * @return the size of the bit array
+	 */
+	public long bitSize() {
+		return bitCount;
+	}
+
+	// Kirsch-Mitzenmacher double hashing: the i-th probe is h1 + i * h2.
+	private void setBits(int hash1, int hash2) {
+		for (int i = 1; i <= hashFunctions; i++) {
+			long index = indexFor(hash1 + i * hash2);
+			int word = (int) (index >>> 6);
+			long mask = 1L << index;
+			long current = bits.get(word);
+			while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+				current = bits.get(word);
+			}
+		}
+	}
+
+	private boolean testBits(int hash1, int hash2) {
+		for (int i = 1; i <= hashFunctions; i++) {
+			long index = indexFor(hash1 + i * hash2);
+			if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long indexFor(int combinedHash) {
+		return (combinedHash & Integer.MAX_VALUE) % bitCount;
+	}
+
+	private static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b;
+			hash *= 0x100000001b3L;
+		}
+		return mix(hash);
+	}
+
+	// Finalizer from SplitMix64, spreads sequential ids across the whole word.
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+}
@@ -0,0 +1,184 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.cache;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Negative lookup cache for product IDs and names.
+ * <p>
+ * Keeps a Bloom filter of every product ID and name that exists in the catalog, so that
+ * lookups for products that definitely do not exist (stale links, bots probing IDs) can be
+ * answered without a database round trip. The filter is rebuilt from the database at
+ * startup and updated whenever a product is created or renamed.
+ * <p>
+ * Names are folded before hashing the way the default MySQL collation compares them: ignoring case,
+ * accents and trailing spaces. A lookup for "iphone " therefore passes the filter when "iPhone" exists,
+ * and the database decides whether it matches. Folding more than the collation only costs false
+ * positives, so the same fold is used for every database.
+ * <p>
+ * Deleted products are not removed from the filter (Bloom filters do not support removal).
+ * They only cost a false positive, which falls through to the database as before.
+ * Until the first rebuild has finished, every lookup is treated as a possible hit.
+ */
+@Component
+public class ProductLookupFilter {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductLookupFilter.class);
+
+	private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+	private final boolean enabled;
+	private final long expectedInsertions;
+	private final double falsePositiveProbability;
+
+	private volatile BloomFilter ids;
+	private volatile BloomFilter names;
+
+	/**
+	 * Filters being populated by a rebuild in progress. Products recorded while a rebuild is
+	 * running are added here as well, so they are not lost when the new filters are swapped in.
+	 */
+	private volatile BloomFilter pendingIds;
+	private volatile BloomFilter pendingNames;
+
+	/**
+	 * Creates a new ProductLookupFilter.
+	 *
+	 * @param enabled                  whether negative lookups should be answered from the filter at all
+	 * @param expectedInsertions       the minimum number of products to size the filter for
+	 * @param falsePositiveProbability the target false positive rate
+	 */
+	public ProductLookupFilter(
+			@Value("${shopkart.lookup-filter.enabled:true}") boolean enabled,
+			@Value("${shopkart.lookup-filter.expected-insertions:1000000}") long expectedInsertions,
+			@Value("${shopkart.lookup-filter.false-positive-probability:0.01}") double falsePositiveProbability
+	) {
+		this.enabled = enabled;
+		this.expectedInsertions = expectedInsertions;
+		this.falsePositiveProbability = falsePositiveProbability;
+	}
+
+	/**
+	 * Checks whether a product with the given ID may exist.
+	 *
+	 * @param id the product ID
+	 * @return false only if the product definitely does not exist
+	 */
+	public boolean mightContainId(long id) {
+		BloomFilter current = ids;
+		return !enabled || current == null || current.mightContain(id);
+	}
+
+	/**
+	 * Checks whether a product with the given name may exist.
+	 *
+	 * @param name the product name
+	 * @return false only if the product definitely does not exist
+	 */
+	public boolean mightContainName(String name) {
+		BloomFilter current = names;
+		return !enabled || current == null || current.mightContain(fold(name));
+	}
+
+	/**
+	 * Records a product that was just stored, so that later lookups for it are not rejected.
+	 *
+	 * @param product the stored product
+	 */
+	public void recordProduct(Product product) {
+		recordId(product.getId());
+		recordName(product.getName());
+	}
+
+	/**
+	 * Records a product ID, for example after products were inserted in bulk.
+	 *
+	 * @param id the ID to record
+	 */
+	public void recordId(long id) {
+		BloomFilter pending = pendingIds;
+		if (pending != null) {
+			pending.put(id);
+		}
+		BloomFilter current = ids;
+		if (current != null) {
+			current.put(id);
+		}
+	}
+
+	/**
+	 * Records a product name, for example after a product has been renamed.
+	 *
+	 * @param name the name to record
+	 */
+	public void recordName(String name) {
+		// read the pending filter first: if it is already gone, the swap has happened
+		BloomFilter pending = pendingNames;
+		String folded = fold(name);
+		put(pending, folded);
+		put(names, folded);
+	}
+
+	/**
+	 * Rebuilds the filter from the full set of existing IDs and names.
+	 *
+	 * @param productCount the current number of products, used to size the new filter
+	 * @param allIds       a supplier of all existing product IDs
+	 * @param allNames     a supplier of all existing product names
+	 */
+	public synchronized void rebuild(long productCount, Supplier<Stream<Long>> allIds, Supplier<Stream<String>> allNames) {
+		if (!enabled) {
+			return;
+		}
+		long capacity = Math.max(expectedInsertions, productCount * 2);
+		BloomFilter newIds = new BloomFilter(capacity, falsePositiveProbability);
+		BloomFilter newNames = new BloomFilter(capacity, falsePositiveProbability);
+		// publish the pending filters before reading, so concurrent writes land in both
+		pendingIds = newIds;
+		pendingNames = newNames;
+		try {
+			try (Stream<Long> stream = allIds.get()) {
+				stream.forEach(newIds::put);
+			}
+			try (Stream<String> stream = allNames.get()) {
+				stream.map(ProductLookupFilter::fold).forEach(newNames::put);
+			}
+			ids = newIds;
+			names = newNames;
+			log.info("Product lookup filter rebuilt for {} products ({} bits per filter)", productCount, newIds.bitSize());
+		} finally {
+			pendingIds = null;
+			pendingNames = null;
+		}
+	}
+
+	/**
+	 * Folds a name to the key names equal under a case and accent insensitive, trailing space
+	 * ignoring collation share.
+	 *
+	 * @param name the name to fold, or null
+	 * @return the folded name, or null if the name is null
+	 */
+	public static String fold(String name) {
+		if (name == null) {
+			return null;
+		}
+		String decomposed = Normalizer.normalize(name.stripTrailing(), Normalizer.Form.NFKD);
+		return COMBINING_MARKS.matcher(decomposed).replaceAll("").toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+	}
+
+	private static void put(BloomFilter filter, String name) {
+		if (filter != null) {
+			filter.put(name);
+		}
+	}
+}
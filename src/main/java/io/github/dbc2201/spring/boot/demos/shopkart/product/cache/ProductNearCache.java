@@ -0,0 +1,360 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.cache;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductInvalidation;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductInvalidationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-node cache of products by ID, kept coherent across nodes through the database.
+ * <p>
+ * Every product mutation writes a {@link ProductInvalidation} in the same transaction as the change,
+ * so a committed change always has a log entry and a rolled back one never does. Each node polls the
+ * log for entries newer than the last one it has applied and evicts the affected products. Changes
+ * made on another node therefore become visible within one poll interval, without a message broker.
+ * Creations are logged too, so that the {@link ProductLookupFilter} of every node learns about
+ * products created elsewhere instead of rejecting them as missing.
+ * <p>
+ * A generation counter is advanced by every eviction. Readers take the generation before going to
+ * the database and the loaded product is only cached if no eviction happened in the meantime, so a
+ * product read before a change can never be cached after the change has been seen.
+ * <p>
+ * Log IDs come from an auto-increment column, and a transaction may commit after one with a higher
+ * ID. Entries are therefore applied as soon as they are visible, but the position in the log only
+ * advances over gaps once they are filled or older than the gap timeout (for rolled back inserts).
+ * <p>
+ * Only writes made through the product services are logged. All nodes sharing a database must use
+ * the same {@code shopkart.near-cache.enabled} setting.
+ */
+@Component
+public class ProductNearCache {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductNearCache.class);
+
+	private static final int POLL_BATCH_SIZE = 1000;
+	private static final int IN_CLAUSE_LIMIT = 500;
+
+	private final ProductInvalidationRepository invalidationRepository;
+	private final ProductLookupFilter lookupFilter;
+	private final boolean enabled;
+	private final int maxEntries;
+	private final long gapTimeoutNanos;
+	private final Duration retention;
+
+	private final ConcurrentHashMap<Long, Product> entries = new ConcurrentHashMap<>();
+	private final AtomicLong generation = new AtomicLong();
+
+	/**
+	 * The ID of the log entry up to which every entry has been applied or given up on.
+	 */
+	private volatile long position = -1;
+
+	/**
+	 * Entries above the position that have already been applied. Only used by the poller.
+	 */
+	private final TreeSet<Long> appliedAhead = new TreeSet<>();
+
+	/**
+	 * Missing log IDs above the position and when they were first noticed. Only used by the poller.
+	 */
+	private final Map<Long, Long> gapsSince = new HashMap<>();
+
+	/**
+	 * Creates a new ProductNearCache.
+	 *
+	 * @param invalidationRepository the repository of the invalidation log
+	 * @param lookupFilter           the negative lookup cache, updated with products created on other nodes
+	 * @param enabled                whether products should be cached and invalidations logged at all
+	 * @param maxEntries             the maximum number of cached products
+	 * @param gapTimeoutMillis       how long a missing log ID is waited for before it is skipped
+	 * @param retention              how long log entries are kept before being purged
+	 */
+	public ProductNearCache(
+			ProductInvalidationRepository invalidationRepository,
+			ProductLookupFilter lookupFilter,
+			@Value("${shopkart.near-cache.enabled:true}") boolean enabled,
+			@Value("${shopkart.near-cache.max-entries:10000}") int maxEntries,
+			@Value("${shopkart.near-cache.gap-timeout-ms:10000}") long gapTimeoutMillis,
+			@Value("${shopkart.near-cache.retention:PT1H}") Duration retention
+	) {
+		this.invalidationRepository = invalidationRepository;
+		this.lookupFilter = lookupFilter;
+		this.enabled = enabled;
+		this.maxEntries = maxEntries;
+		this.gapTimeoutNanos = Duration.ofMillis(gapTimeoutMillis).toNanos();
+		this.retention = retention;
+	}
+
+	/**
+	 * Starts following the invalidation log from its current end. Runs once the application has
+	 * started; nothing is cached before that.
+	 * <p>
+	 * Runs before the other startup listeners, so the position is taken before the lookup filter is
+	 * rebuilt from the database. A product created elsewhere after the position is then logged above
+	 * it, and is recorded in the filter by the poller even if the rebuild missed it.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	public synchronized void start() {
+		if (!enabled) {
+			return;
+		}
+		Long maxId = invalidationRepository.findMaxId();
+		generation.incrementAndGet();
+		entries.clear();
+		position = maxId == null ? 0 : maxId;
+	}
+
+	/**
+	 * Gets a cached product.
+	 *
+	 * @param id the product ID
+	 * @return the cached product, or null if it is not cached
+	 */
+	public Product get(long id) {
+		return enabled ? entries.get(id) : null;
+	}
+
+	/**
+	 * Returns the current generation. Must be read before loading a product that is to be cached.
+	 *
+	 * @return the number of evictions so far
+	 */
+	public long generation() {
+		return generation.get();
+	}
+
+	/**
+	 * Caches a copy of a product loaded from the database, unless an eviction has happened since
+	 * the load started.
+	 *
+	 * @param product              the loaded product
+	 * @param generationBeforeLoad the value of {@link #generation()} taken before the load
+	 */
+	public void put(Product product, long generationBeforeLoad) {
+		if (!enabled || position < 0 || generation.get() != generationBeforeLoad) {
+			return;
+		}
+		if (entries.size() >= maxEntries) {
+			Iterator<Long> victims = entries.keySet().iterator();
+			if (victims.hasNext()) {
+				entries.remove(victims.next());
+			}
+		}
+		Product copy = copyOf(product);
+		entries.put(product.getId(), copy);
+		// an eviction may have slipped in between the check and the put
+		if (generation.get() != generationBeforeLoad) {
+			entries.remove(product.getId(), copy);
+		}
+	}
+
+	/**
+	 * Logs the creation of a product, so that other nodes add it to their lookup filters.
+	 *
+	 * @param product the saved product
+	 */
+	public void recordCreation(Product product) {
+		record(product.getId(), product.getName());
+	}
+
+	/**
+	 * Logs the creation of every product with an ID above the given one. Must be called inside the
+	 * transaction that inserted them.
+	 *
+	 * @param maxIdBefore the largest product ID before the inserts
+	 */
+	public void recordCreationsAfter(long maxIdBefore) {
+		if (enabled) {
+			invalidationRepository.logCreationsAfter(maxIdBefore, Instant.now());
+		}
+	}
+
+	/**
+	 * Logs a change to one product. Must be called inside the transaction that makes the change;
+	 * the local copy is evicted once that transaction commits.
+	 *
+	 * @param productId the ID of the changed product
+	 */
+	public void recordInvalidation(long productId) {
+		record(productId, null);
+	}
+
+	/**
+	 * Logs a change to each of the given products, such as an import updating products by name.
+	 * Must be called inside the transaction that makes the changes; the local copies are evicted once
+	 * that transaction commits.
+	 *
+	 * @param productIds the IDs of the changed products
+	 */
+	public void recordInvalidations(List<Long> productIds) {
+		if (!enabled || productIds.isEmpty()) {
+			return;
+		}
+		Instant now = Instant.now();
+		for (int from = 0; from < productIds.size(); from += IN_CLAUSE_LIMIT) {
+			invalidationRepository.logChangesOf(
+					productIds.subList(from, Math.min(productIds.size(), from + IN_CLAUSE_LIMIT)), now);
+		}
+		afterCommit(() -> productIds.forEach(this::evict));
+	}
+
+	/**
+	 * Logs the renaming of a product. Must be called inside the transaction that makes the change.
+	 *
+	 * @param productId the ID of the renamed product
+	 * @param newName   the new name
+	 */
+	public void recordRename(long productId, String newName) {
+		record(productId, newName);
+	}
+
+	/**
+	 * Logs a change that may affect any number of products, such as a bulk repricing. Every node
+	 * clears its whole cache when it sees the entry.
+	 */
+	public void recordInvalidationOfAll() {
+		record(null, null);
+	}
+
+	private void record(Long productId, String productName) {
+		if (!enabled) {
+			return;
+		}
+		invalidationRepository.save(new ProductInvalidation(productId, productName, Instant.now()));
+		afterCommit(() -> evict(productId));
+	}
+
+	private static void afterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+
+	/**
+	 * Applies the log entries written since the last poll.
+	 */
+	@Scheduled(fixedDelayString = "${shopkart.near-cache.poll-interval-ms:500}")
+	public synchronized void poll() {
+		if (!enabled || position < 0) {
+			return;
+		}
+		List<ProductInvalidation> invalidations;
+		do {
+			invalidations = invalidationRepository.findByIdGreaterThanOrderByIdAsc(position, Limit.of(POLL_BATCH_SIZE));
+			for (ProductInvalidation invalidation : invalidations) {
+				if (appliedAhead.add(invalidation.getId())) {
+					apply(invalidation);
+				}
+			}
+		} while (advance() && invalidations.size() == POLL_BATCH_SIZE);
+	}
+
+	/**
+	 * Moves the position over applied entries and expired gaps.
+	 *
+	 * @return whether the position reached the newest applied entry
+	 */
+	private boolean advance() {
+		long now = System.nanoTime();
+		while (!appliedAhead.isEmpty()) {
+			long next = position + 1;
+			if (appliedAhead.remove(next)) {
+				position = next;
+				continue;
+			}
+			Long since = gapsSince.get(next);
+			if (since == null) {
+				for (long missing = next; missing < appliedAhead.first(); missing++) {
+					gapsSince.put(missing, now);
+				}
+				return false;
+			}
+			if (now - since < gapTimeoutNanos) {
+				return false;
+			}
+			log.warn("near_cache.gap_skipped log_id={}", next);
+			gapsSince.remove(next);
+			position = next;
+		}
+		gapsSince.clear();
+		return true;
+	}
+
+	/**
+	 * Deletes log entries older than the retention period.
+	 */
+	@Scheduled(fixedDelayString = "${shopkart.near-cache.purge-interval-ms:600000}")
+	public void purge() {
+		if (!enabled) {
+			return;
+		}
+		int purged = invalidationRepository.deleteOlderThan(Instant.now().minus(retention));
+		if (purged > 0) {
+			log.info("near_cache.purged entries={}", purged);
+		}
+	}
+
+	/**
+	 * Returns the number of cached products.
+	 *
+	 * @return the cache size
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	private void apply(ProductInvalidation invalidation) {
+		if (invalidation.getProductId() != null) {
+			lookupFilter.recordId(invalidation.getProductId());
+		}
+		if (invalidation.getProductName() != null) {
+			lookupFilter.recordName(invalidation.getProductName());
+		}
+		evict(invalidation.getProductId());
+	}
+
+	private void evict(Long productId) {
+		// advanced first, so a load that started before the eviction cannot be cached after it
+		generation.incrementAndGet();
+		if (productId == null) {
+			entries.clear();
+		} else {
+			entries.remove(productId);
+		}
+	}
+
+	private static Product copyOf(Product product) {
+		Product copy = new Product(product.getName(), product.getDescription(), product.getPrice(), product.getImageUrl());
+		copy.setId(product.getId());
+		return copy;
+	}
+}
@@ -1,20 +1,34 @@
 package io.github.dbc2201.spring.boot.demos.shopkart.product.controller;
 
+import io.github.dbc2201.spring.boot.demos.shopkart.product.history.PriceHistoryLog;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.imports.ImportMode;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.imports.ImportResult;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.imports.ProductCsvImporter;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingResult;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.PriceHistoryEntry;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductStats;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.service.ProductService;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 import org.hibernate.validator.constraints.URL;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * REST controller for managing products in the Shopkart application.
@@ -27,9 +41,32 @@ public class ProductController {
 
 	private final ProductService productService;
 
+	private final ProductCsvImporter productCsvImporter;
+
+	private final PriceHistoryLog priceHistory;
+
+	/**
+	 * Creates a new ProductController backed by the configured product service.
+	 *
+	 * @param productServices    all product services, by bean name
+	 * @param serviceName        the bean name of the service to use, set with {@code shopkart.product.service}
+	 * @param productCsvImporter the importer used for bulk CSV uploads
+	 * @param priceHistory       the log of price changes
+	 */
 	@Autowired
-	public ProductController(@Qualifier("databaseProductService") ProductService productService) {
-		this.productService = productService;
+	public ProductController(
+			Map<String, ProductService> productServices,
+			@Value("${shopkart.product.service:databaseProductService}") String serviceName,
+			ProductCsvImporter productCsvImporter,
+			PriceHistoryLog priceHistory
+	) {
+		this.productService = productServices.get(serviceName);
+		if (this.productService == null) {
+			throw new IllegalStateException("Unknown product service " + serviceName
+					+ ", expected one of " + productServices.keySet());
+		}
+		this.productCsvImporter = productCsvImporter;
+		this.priceHistory = priceHistory;
 	}
 
 	/**
@@ -44,6 +81,30 @@ public class ProductController {
 		return new ResponseEntity<>(savedProduct, HttpStatus.CREATED);
 	}
 
+	/**
+	 * Imports products in bulk from a CSV request body.
+	 * <p>
+	 * The body is streamed, so it can be arbitrarily large. Sending the same job ID again after
+	 * a failed upload skips the rows that were already processed.
+	 *
+	 * @param jobId   the identifier of the import, used for its checkpoint and error files
+	 * @param mode    INSERT to always insert, or UPSERT to update products with a matching name
+	 * @param request the HTTP request whose body contains the CSV data
+	 * @return ResponseEntity containing the import summary with HTTP status 200 (OK)
+	 */
+	@PostMapping(value = "/import", consumes = {"text/csv", "text/plain", "application/octet-stream"})
+	public ResponseEntity<ImportResult> importProducts(
+			@RequestParam String jobId,
+			@RequestParam(defaultValue = "INSERT") ImportMode mode,
+			HttpServletRequest request
+	) {
+		try {
+			return ResponseEntity.ok(productCsvImporter.importCsv(jobId, request.getInputStream(), mode));
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
 	/**
 	 * Retrieves all products from the system.
 	 *
@@ -87,6 +148,72 @@ public class ProductController {
 		return ResponseEntity.notFound().build();
 	}
 
+	/**
+	 * Retrieves the cheapest products, optionally filtered by a name keyword and a price range.
+	 *
+	 * @param limit    the number of products to return (between 1 and 1000, default 20)
+	 * @param keyword  the text the product name must contain, ignoring case
+	 * @param minPrice the lowest price to include
+	 * @param maxPrice the highest price to include
+	 * @return ResponseEntity containing the products, cheapest first, with HTTP status 200 (OK)
+	 */
+	@GetMapping("/cheapest")
+	public ResponseEntity<List<Product>> getCheapestProducts(
+			@RequestParam(defaultValue = "20") @Positive @Max(1000) int limit,
+			@RequestParam(required = false) String keyword,
+			@RequestParam(required = false) Double minPrice,
+			@RequestParam(required = false) Double maxPrice
+	) {
+		return ResponseEntity.ok(productService.getCheapestProducts(keyword, minPrice, maxPrice, limit));
+	}
+
+	/**
+	 * Retrieves the most expensive products, optionally filtered by a name keyword and a price range.
+	 *
+	 * @param limit    the number of products to return (between 1 and 1000, default 20)
+	 * @param keyword  the text the product name must contain, ignoring case
+	 * @param minPrice the lowest price to include
+	 * @param maxPrice the highest price to include
+	 * @return ResponseEntity containing the products, most expensive first, with HTTP status 200 (OK)
+	 */
+	@GetMapping("/most-expensive")
+	public ResponseEntity<List<Product>> getMostExpensiveProducts(
+			@RequestParam(defaultValue = "20") @Positive @Max(1000) int limit,
+			@RequestParam(required = false) String keyword,
+			@RequestParam(required = false) Double minPrice,
+			@RequestParam(required = false) Double maxPrice
+	) {
+		return ResponseEntity.ok(productService.getMostExpensiveProducts(keyword, minPrice, maxPrice, limit));
+	}
+
+	/**
+	 * Suggests product names starting with a prefix, for type-ahead search boxes.
+	 *
+	 * @param prefix the start of the name, matched ignoring case
+	 * @param limit  the maximum number of suggestions to return
+	 * @return ResponseEntity containing the suggested IDs and names, shortest names first,
+	 * with HTTP status 200 (OK)
+	 */
+	@GetMapping("/suggest")
+	public ResponseEntity<List<ProductSuggestion>> suggestProducts(
+			@RequestParam @Size(min = 1, max = 255) String prefix,
+			@RequestParam(defaultValue = "10") @Positive @Max(ProductSuggestion.MAX_LIMIT) int limit
+	) {
+		return ResponseEntity.ok(productService.suggestProducts(prefix, limit));
+	}
+
+	/**
+	 * Returns catalog statistics for dashboards: the product count, the lowest, highest and mean
+	 * price, and a price histogram. They are maintained as products change, so no products are
+	 * read or transferred to answer.
+	 *
+	 * @return ResponseEntity containing the statistics with HTTP status 200 (OK)
+	 */
+	@GetMapping("/stats")
+	public ResponseEntity<ProductStats> getProductStats() {
+		return ResponseEntity.ok(productService.getProductStats());
+	}
+
 	/**
 	 * Updates the price of a specific product.
 	 *
@@ -107,6 +234,37 @@ public class ProductController {
 		return ResponseEntity.notFound().build();
 	}
 
+	/**
+	 * Retrieves the price history of a product. The history is written asynchronously, so a change
+	 * may take a moment to appear. Entries are kept after the product is deleted.
+	 *
+	 * @param id    the unique identifier of the product
+	 * @param limit the number of entries to return (between 1 and 1000, default 100)
+	 * @return ResponseEntity containing the price changes, newest first, with HTTP status 200 (OK)
+	 */
+	@GetMapping("/{id}/price-history")
+	public ResponseEntity<List<PriceHistoryEntry>> getPriceHistory(
+			@PathVariable @Positive long id,
+			@RequestParam(defaultValue = "100") @Positive @Max(PriceHistoryLog.MAX_QUERY_LIMIT) int limit
+	) {
+		return ResponseEntity.ok(priceHistory.history(id, limit));
+	}
+
+	/**
+	 * Changes the price of every product matching a price range or name keyword. A request that
+	 * would bring any selected price to 0 or below is rejected. Requests with an operation ID can be
+	 * retried after a failure without repricing any product twice.
+	 *
+	 * @param request the selector (price range or keyword), the percentage or absolute adjustment
+	 *                and an optional operation ID
+	 * @return ResponseEntity containing the number of affected products with HTTP status 200 (OK)
+	 */
+	@PutMapping("/prices")
+	public ResponseEntity<BulkRepricingResult> repriceProducts(@RequestBody BulkRepricingRequest request) {
+		long affected = productService.repriceProducts(request);
+		return ResponseEntity.ok(new BulkRepricingResult(affected));
+	}
+
 	/**
 	 * Updates the name of a specific product.
 	 *
@@ -1,5 +1,6 @@
 package io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -66,6 +67,28 @@ public class GlobalExceptionHandler {
 		return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
 	}
 
+	/**
+	 * Handles ProductServiceUnavailableException and returns a 503 Service Unavailable response,
+	 * telling the client when to try again.
+	 *
+	 * @param exception The exception that was thrown (ProductServiceUnavailableException).
+	 * @return A ResponseEntity of ErrorResponse with error details and a Retry-After header.
+	 */
+	@ExceptionHandler(value = ProductServiceUnavailableException.class)
+	public ResponseEntity<ErrorResponse> handleProductServiceUnavailableException(
+			ProductServiceUnavailableException exception) {
+		ErrorResponse errorResponse = new ErrorResponse(
+				HttpStatus.SERVICE_UNAVAILABLE.value(),
+				LocalDateTime.now(),
+				"Service Unavailable",
+				exception.getMessage()
+		);
+		long retryAfterSeconds = Math.max(1, exception.getRetryAfter().plusMillis(999).toSeconds());
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+				.body(errorResponse);
+	}
+
 	/**
 	 * Fallback exception handler for all other exceptions.
 	 * @param exception The exception that was thrown.
@@ -13,4 +13,25 @@ public class ProductNotFoundException extends RuntimeException {
 	public ProductNotFoundException(String message) {
 		super(message);
 	}
+
+	/**
+	 * Creates a new ProductNotFoundException, optionally without capturing a stack trace.
+	 * @param message The error message explaining why the product was not found.
+	 * @param writableStackTrace Whether the stack trace should be filled in.
+	 */
+	protected ProductNotFoundException(String message, boolean writableStackTrace) {
+		super(message, null, false, writableStackTrace);
+	}
+
+	/**
+	 * Creates a ProductNotFoundException that does not capture a stack trace.
+	 * Used on hot paths where misses are expected (for example, lookups that were
+	 * rejected by a negative lookup cache), where walking the stack would cost more
+	 * than the lookup itself.
+	 * @param message The error message explaining why the product was not found.
+	 * @return A new exception without a stack trace.
+	 */
+	public static ProductNotFoundException withoutStackTrace(String message) {
+		return new ProductNotFoundException(message, false);
+	}
 }
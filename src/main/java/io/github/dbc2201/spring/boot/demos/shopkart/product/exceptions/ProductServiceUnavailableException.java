@@ -0,0 +1,31 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when products cannot be read because the database is failing or too slow,
+ * and no earlier copy of the requested data is available to fall back on.
+ */
+public class ProductServiceUnavailableException extends RuntimeException {
+
+	private final Duration retryAfter;
+
+	/**
+	 * Creates a new ProductServiceUnavailableException.
+	 * @param message The error message explaining what could not be read.
+	 * @param retryAfter How long until the database is tried again.
+	 * @param cause The failure or timeout of the database call, or null if it was not attempted.
+	 */
+	public ProductServiceUnavailableException(String message, Duration retryAfter, Throwable cause) {
+		super(message, cause);
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * Returns how long clients should wait before trying again.
+	 * @return The time until the database is tried again.
+	 */
+	public Duration getRetryAfter() {
+		return retryAfter;
+	}
+}
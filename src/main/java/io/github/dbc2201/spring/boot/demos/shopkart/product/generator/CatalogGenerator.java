@@ -0,0 +1,318 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.generator;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.ProductService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates synthetic but realistic products for scale and performance testing.
+ * <p>
+ * Every product is derived from the seed and its index alone, so the same seed always gives the same
+ * catalog, products can be generated in any order or in parallel, and product {@code i} of a catalog
+ * of a million is the same as product {@code i} of a catalog of ten. Product {@code i} gets the ID
+ * {@code i + 1}; {@link CatalogWriter} leaves assigning IDs to the database instead.
+ * <ul>
+ *     <li>Names are built from a brand, adjectives, a material, a category noun and a variant, each
+ *     picked with a Zipf distribution, so a few tokens such as "Classic" or "Steel" are shared by many
+ *     products and the rest form a long tail, as in real keyword searches. Every name ends with a
+ *     model code derived from the index, which keeps names unique. Names are 4 to 50 characters.</li>
+ *     <li>Descriptions are a few sentences about the product, 10 to 100 characters long, most
+ *     of them between 40 and 80.</li>
+ *     <li>Prices follow a log-normal distribution around a median that depends on the category, with
+ *     a small share of premium products ten times as expensive, and end in .99 or .49. Most prices are
+ *     cheap and a few are very high, so the mean is well above the median.</li>
+ * </ul>
+ */
+public final class CatalogGenerator {
+
+	/**
+	 * The seed used when none is given.
+	 */
+	public static final long DEFAULT_SEED = 42;
+
+	private static final int MAX_NAME_LENGTH = 50;
+	private static final int MIN_DESCRIPTION_LENGTH = 10;
+	private static final int MAX_DESCRIPTION_LENGTH = 100;
+	private static final double MAX_PRICE = 99_999.99;
+	private static final double PRICE_SIGMA = 0.8;
+	private static final double PREMIUM_SHARE = 0.02;
+	private static final double ZIPF_EXPONENT = 1.1;
+
+	// the positions of the tokens in a name
+	private static final int BRAND = 0;
+	private static final int ADJECTIVE = 1;
+	private static final int SECOND_ADJECTIVE = 2;
+	private static final int MATERIAL = 3;
+	private static final int NOUN = 4;
+	private static final int VARIANT = 5;
+	private static final int CODE = 6;
+	private static final int NAME_TOKENS = 7;
+
+	/**
+	 * The optional tokens, in the order they are left out of names that would be too long. The noun
+	 * and the code are always kept, and are never longer than the limit together.
+	 */
+	private static final int[] DROP_ORDER = {SECOND_ADJECTIVE, VARIANT, MATERIAL, BRAND, ADJECTIVE};
+
+	private static final Category[] CATEGORIES = {
+			new Category("kitchen", 30, "Kettle", "Toaster", "Blender", "Skillet", "Knife Set", "Cutting Board",
+					"Mixing Bowl", "Coffee Grinder", "Teapot", "Colander", "Saucepan", "Spice Rack"),
+			new Category("electronics", 120, "Headphones", "Speaker", "Charger", "Keyboard", "Mouse", "Monitor",
+					"Webcam", "Power Bank", "Router", "Earbuds", "Smartwatch", "Microphone"),
+			new Category("home", 40, "Lamp", "Pillow", "Blanket", "Curtain", "Rug", "Mirror", "Wall Clock",
+					"Vase", "Candle", "Shelf", "Storage Box", "Picture Frame"),
+			new Category("outdoor", 60, "Tent", "Backpack", "Lantern", "Hammock", "Cooler", "Sleeping Bag",
+					"Water Bottle", "Camp Stove", "Trekking Poles", "Rain Jacket"),
+			new Category("sports", 45, "Yoga Mat", "Dumbbell", "Jump Rope", "Football", "Tennis Racket",
+					"Cycling Gloves", "Running Shoes", "Resistance Band", "Gym Bag"),
+			new Category("toys", 20, "Puzzle", "Building Blocks", "Plush Bear", "Kite", "Board Game", "Toy Car",
+					"Doll House", "Train Set", "Yo-Yo"),
+			new Category("beauty", 18, "Face Cream", "Shampoo", "Hair Dryer", "Lip Balm", "Perfume", "Nail Kit",
+					"Body Lotion", "Makeup Brush"),
+			new Category("office", 25, "Notebook", "Desk Organizer", "Stapler", "Fountain Pen", "Desk Chair",
+					"Whiteboard", "Paper Tray", "Desk Mat"),
+			new Category("furniture", 250, "Sofa", "Armchair", "Bookcase", "Dining Table", "Bed Frame", "Dresser",
+					"Coffee Table", "Bar Stool"),
+	};
+
+	private static final String[] BRANDS = {
+			"Acme", "Northwind", "Contoso", "Fabrikam", "Globex", "Initech", "Vandelay", "Nimbus", "Zenith",
+			"Orion", "Pioneer", "Summit", "Harbor", "Maple", "Evergreen", "Bluebird", "Ironwood", "Lumen",
+			"Cobalt", "Juniper"
+	};
+
+	private static final String[] ADJECTIVES = {
+			"Classic", "Premium", "Wireless", "Compact", "Portable", "Deluxe", "Smart", "Eco", "Vintage",
+			"Modern", "Ultra", "Heavy Duty", "Lightweight", "Foldable", "Ergonomic", "Rustic", "Essential",
+			"Professional", "Organic", "Waterproof", "Handmade", "Nordic", "Travel", "Quiet"
+	};
+
+	private static final String[] MATERIALS = {
+			"Steel", "Bamboo", "Cotton", "Leather", "Ceramic", "Glass", "Oak", "Wool", "Silicone", "Aluminium",
+			"Linen", "Copper", "Walnut", "Marble"
+	};
+
+	private static final String[] VARIANTS = {"Pro", "Mini", "Max", "Plus", "XL", "Lite", "2-Pack", "Set of 4"};
+
+	private static final String[] USES = {
+			"everyday use", "busy kitchens", "home offices", "weekend trips", "small spaces", "gifting",
+			"travel", "outdoor adventures", "kids and adults", "daily workouts", "long evenings", "students"
+	};
+
+	private static final String[] EXTRAS = {
+			"Easy to clean.", "Fits most standard setups.", "Comes gift wrapped.", "Made to last.",
+			"Assembly takes minutes.", "Available in three colours.", "Safe for daily use."
+	};
+
+	private static final double[] CATEGORY_WEIGHTS = zipfCumulative(CATEGORIES.length);
+	private static final double[] BRAND_WEIGHTS = zipfCumulative(BRANDS.length);
+	private static final double[] ADJECTIVE_WEIGHTS = zipfCumulative(ADJECTIVES.length);
+	private static final double[] MATERIAL_WEIGHTS = zipfCumulative(MATERIALS.length);
+	private static final double[] VARIANT_WEIGHTS = zipfCumulative(VARIANTS.length);
+	private static final double[] USE_WEIGHTS = zipfCumulative(USES.length);
+
+	private final long seed;
+
+	/**
+	 * Creates a generator for the catalog with the {@link #DEFAULT_SEED default seed}.
+	 */
+	public CatalogGenerator() {
+		this(DEFAULT_SEED);
+	}
+
+	/**
+	 * Creates a generator for the catalog with the given seed.
+	 *
+	 * @param seed selects the catalog; equal seeds give equal products
+	 */
+	public CatalogGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns the seed of this catalog.
+	 *
+	 * @return the seed
+	 */
+	public long seed() {
+		return seed;
+	}
+
+	/**
+	 * Generates one product of the catalog.
+	 *
+	 * @param index the zero-based position of the product in the catalog
+	 * @return a new product with the ID {@code index + 1}
+	 */
+	public Product product(long index) {
+		if (index < 0) {
+			throw new IllegalArgumentException("Index must not be negative");
+		}
+		SplittableRandom random = new SplittableRandom(mix(seed, index));
+		Category category = CATEGORIES[pick(random, CATEGORY_WEIGHTS)];
+		String noun = category.nouns()[random.nextInt(category.nouns().length)];
+		String adjective = ADJECTIVES[pick(random, ADJECTIVE_WEIGHTS)];
+		String material = MATERIALS[pick(random, MATERIAL_WEIGHTS)];
+		String code = Long.toString(index, 36).toUpperCase(Locale.ROOT);
+
+		Product product = new Product(
+				name(random, noun, adjective, material, code),
+				description(random, noun, adjective, material),
+				price(random, category),
+				"https://images.example.com/catalog/" + category.slug() + "/" + code.toLowerCase(Locale.ROOT) + ".jpg"
+		);
+		product.setId(index + 1);
+		return product;
+	}
+
+	/**
+	 * Generates the first products of the catalog, in order. The stream is lazy, so catalogs of any
+	 * size can be generated without holding them in memory.
+	 *
+	 * @param count the number of products
+	 * @return the products with the indexes 0 to {@code count - 1}
+	 */
+	public Stream<Product> products(long count) {
+		return LongStream.range(0, count).mapToObj(this::product);
+	}
+
+	/**
+	 * Adds the first products of the catalog to a product service, in order, for example an
+	 * {@code InMemoryProductService} in a benchmark. Use {@link CatalogWriter} for the database.
+	 *
+	 * @param service the service to add the products to
+	 * @param count   the number of products
+	 * @param <S>     the type of the service
+	 * @return the service
+	 */
+	public <S extends ProductService> S fill(S service, long count) {
+		for (long index = 0; index < count; index++) {
+			service.createProduct(product(index));
+		}
+		return service;
+	}
+
+	private static String name(SplittableRandom random, String noun, String adjective, String material, String code) {
+		String[] tokens = new String[NAME_TOKENS];
+		tokens[BRAND] = random.nextInt(10) < 7 ? BRANDS[pick(random, BRAND_WEIGHTS)] : null;
+		tokens[ADJECTIVE] = random.nextInt(5) < 4 ? adjective : null;
+		tokens[SECOND_ADJECTIVE] = random.nextInt(4) == 0 ? ADJECTIVES[pick(random, ADJECTIVE_WEIGHTS)] : null;
+		tokens[MATERIAL] = random.nextInt(2) == 0 ? material : null;
+		tokens[NOUN] = noun;
+		tokens[VARIANT] = random.nextInt(3) == 0 ? VARIANTS[pick(random, VARIANT_WEIGHTS)] : null;
+		tokens[CODE] = code;
+		if (tokens[SECOND_ADJECTIVE] != null && tokens[SECOND_ADJECTIVE].equals(tokens[ADJECTIVE])) {
+			tokens[SECOND_ADJECTIVE] = null;
+		}
+
+		String name = join(tokens);
+		for (int token : DROP_ORDER) {
+			if (name.length() <= MAX_NAME_LENGTH) {
+				break;
+			}
+			tokens[token] = null;
+			name = join(tokens);
+		}
+		return name;
+	}
+
+	private static String description(SplittableRandom random, String noun, String adjective, String material) {
+		String use = USES[pick(random, USE_WEIGHTS)];
+		String lowerNoun = noun.toLowerCase(Locale.ROOT);
+		String lowerMaterial = material.toLowerCase(Locale.ROOT);
+		List<String> sentences = new ArrayList<>(List.of(
+				switch (random.nextInt(3)) {
+					case 0 -> adjective + " " + lowerNoun + " in " + lowerMaterial + ".";
+					case 1 -> "A " + lowerMaterial + " " + lowerNoun + " for " + use + ".";
+					default -> adjective + " " + lowerNoun + ", made from " + lowerMaterial + " for " + use + ".";
+				},
+				"Rated " + (30 + random.nextInt(21)) / 10.0 + " out of 5 by " + (1 + random.nextInt(5000)) + " buyers.",
+				"Ships in " + (1 + random.nextInt(7)) + " business days.",
+				EXTRAS[random.nextInt(EXTRAS.length)],
+				"Backed by a " + (1 + random.nextInt(5)) + "-year warranty."
+		));
+		// most descriptions are 40 to 80 characters, a few are very short or use the whole limit
+		int target = (int) Math.round(60 + 20 * random.nextGaussian());
+		target = Math.clamp(target, MIN_DESCRIPTION_LENGTH, MAX_DESCRIPTION_LENGTH);
+
+		StringBuilder description = new StringBuilder(sentences.getFirst());
+		for (int sentence = 1 + random.nextInt(sentences.size() - 1); sentence < sentences.size(); sentence++) {
+			String next = sentences.get(sentence);
+			if (description.length() >= target || description.length() + 1 + next.length() > MAX_DESCRIPTION_LENGTH) {
+				break;
+			}
+			description.append(' ').append(next);
+		}
+		return description.toString();
+	}
+
+	private static double price(SplittableRandom random, Category category) {
+		// StrictMath, so that the same seed gives the same prices on every platform
+		double price = category.medianPrice() * StrictMath.exp(PRICE_SIGMA * random.nextGaussian());
+		if (random.nextDouble() < PREMIUM_SHARE) {
+			price *= 10;
+		}
+		double whole = Math.floor(Math.min(price, MAX_PRICE));
+		return whole + (random.nextInt(4) == 0 ? 0.49 : 0.99);
+	}
+
+	private static String join(String[] tokens) {
+		StringBuilder joined = new StringBuilder(MAX_NAME_LENGTH + 30);
+		for (String token : tokens) {
+			if (token != null) {
+				if (!joined.isEmpty()) {
+					joined.append(' ');
+				}
+				joined.append(token);
+			}
+		}
+		return joined.toString();
+	}
+
+	/**
+	 * Picks an index from a cumulative distribution by binary search.
+	 */
+	private static int pick(SplittableRandom random, double[] cumulativeWeights) {
+		double value = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+		int low = 0;
+		int high = cumulativeWeights.length - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (cumulativeWeights[middle] <= value) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static double[] zipfCumulative(int size) {
+		double[] cumulative = new double[size];
+		double sum = 0;
+		for (int rank = 0; rank < size; rank++) {
+			sum += 1 / StrictMath.pow(rank + 1, ZIPF_EXPONENT);
+			cumulative[rank] = sum;
+		}
+		return cumulative;
+	}
+
+	/**
+	 * Derives the seed of one product, so that neighbouring indexes give unrelated products.
+	 */
+	private static long mix(long seed, long index) {
+		long value = seed * 0x9E3779B97F4A7C15L + index;
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+
+	private record Category(String slug, double medianPrice, String... nouns) {
+	}
+}
@@ -0,0 +1,77 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.generator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Command line entry point for generating a synthetic catalog.
+ * <p>
+ * Only active when {@code shopkart.generate.products} is set. To fill the database of the active
+ * profile with a million products without starting the web server, run:
+ * <pre>
+ * java -jar shopkart.jar --spring.main.web-application-type=none \
+ *     --shopkart.generate.products=1000000 --shopkart.generate.seed=7 --shopkart.generate.replace=true
+ * </pre>
+ * The same seed always gives the same products, so results measured against catalogs generated on
+ * different machines can be compared.
+ * <p>
+ * The application exits once the catalog is written, with a non-zero status if writing failed, as
+ * the scheduler threads would otherwise keep the JVM running.
+ */
+@Component
+@ConditionalOnProperty("shopkart.generate.products")
+public class CatalogGeneratorRunner implements ApplicationRunner {
+
+	private static final Logger log = LoggerFactory.getLogger(CatalogGeneratorRunner.class);
+
+	private final ConfigurableApplicationContext context;
+	private final CatalogWriter writer;
+	private final long products;
+	private final long seed;
+	private final boolean replace;
+
+	/**
+	 * Creates a new CatalogGeneratorRunner.
+	 *
+	 * @param context  the application context, closed once the catalog is written
+	 * @param writer   the writer to run
+	 * @param products the number of products to generate
+	 * @param seed     the seed selecting the catalog
+	 * @param replace  whether existing products are deleted first
+	 */
+	public CatalogGeneratorRunner(
+			ConfigurableApplicationContext context,
+			CatalogWriter writer,
+			@Value("${shopkart.generate.products}") long products,
+			@Value("${shopkart.generate.seed:" + CatalogGenerator.DEFAULT_SEED + "}") long seed,
+			@Value("${shopkart.generate.replace:false}") boolean replace
+	) {
+		this.context = context;
+		this.writer = writer;
+		this.products = products;
+		this.seed = seed;
+		this.replace = replace;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		log.info("Generating {} products with seed {}{}", products, seed, replace ? ", replacing existing products" : "");
+		int exitCode = 0;
+		try {
+			CatalogWriteResult result = writer.write(new CatalogGenerator(seed), products, replace);
+			log.info("Catalog generation result: {}", result);
+		} catch (RuntimeException exception) {
+			log.error("Catalog generation failed", exception);
+			exitCode = 1;
+		}
+		int status = exitCode;
+		System.exit(SpringApplication.exit(context, () -> status));
+	}
+}
@@ -0,0 +1,21 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.generator;
+
+/**
+ * Summary of a synthetic catalog written to the database.
+ *
+ * @param products          the number of products written
+ * @param seed              the seed of the catalog
+ * @param firstId           the lowest ID given to a written product, or 0 if none were written
+ * @param lastId            the highest product ID afterwards
+ * @param elapsedMillis     the time taken, including rebuilding the in-memory indexes
+ * @param productsPerSecond the write throughput
+ */
+public record CatalogWriteResult(
+		long products,
+		long seed,
+		long firstId,
+		long lastId,
+		long elapsedMillis,
+		double productsPerSecond
+) {
+}
@@ -0,0 +1,141 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.generator;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductNearCache;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.ProductStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a synthetic catalog from a {@link CatalogGenerator} into the database.
+ * <p>
+ * Products are inserted with JDBC batch statements, one transaction per batch, so catalogs of
+ * millions of products need neither the persistence context nor one transaction holding every row.
+ * Each batch logs the creations for the near caches of other nodes, as the CSV import does. Once all
+ * batches are written, the lookup filter and suggestion index are rebuilt and the price statistics
+ * reconciled, which is cheaper than updating them product by product.
+ * <p>
+ * On MySQL, add {@code rewriteBatchedStatements=true} to the JDBC URL, or each batch is still sent
+ * as one statement per row.
+ */
+@Component
+public class CatalogWriter {
+
+	private static final Logger log = LoggerFactory.getLogger(CatalogWriter.class);
+
+	private static final long PROGRESS_INTERVAL_NANOS = 10_000_000_000L;
+
+	private static final String INSERT_SQL =
+			"INSERT INTO products (name, description, price, image_url) VALUES (?, ?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final ProductNearCache nearCache;
+	private final DatabaseProductService productService;
+	private final ProductStatistics productStatistics;
+	private final int batchSize;
+
+	/**
+	 * Creates a new CatalogWriter.
+	 *
+	 * @param jdbcTemplate        the template used for batch inserts
+	 * @param transactionTemplate the template used to run each batch in its own transaction
+	 * @param nearCache           the near cache, told about the created products
+	 * @param productService      the service whose lookup filter and suggestion index are rebuilt afterwards
+	 * @param productStatistics   the price statistics, reconciled afterwards
+	 * @param batchSize           the number of products inserted together
+	 */
+	public CatalogWriter(
+			JdbcTemplate jdbcTemplate,
+			TransactionTemplate transactionTemplate,
+			ProductNearCache nearCache,
+			DatabaseProductService productService,
+			ProductStatistics productStatistics,
+			@Value("${shopkart.generate.batch-size:1000}") int batchSize
+	) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.nearCache = nearCache;
+		this.productService = productService;
+		this.productStatistics = productStatistics;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Inserts the first products of a catalog.
+	 *
+	 * @param generator the catalog to write
+	 * @param count     the number of products
+	 * @param replace   whether to delete all existing products first
+	 * @return the number of products written and the IDs the database gave them
+	 */
+	public CatalogWriteResult write(CatalogGenerator generator, long count, boolean replace) {
+		if (count < 0) {
+			throw new IllegalArgumentException("Product count must not be negative");
+		}
+		if (replace) {
+			transactionTemplate.executeWithoutResult(status -> {
+				jdbcTemplate.update("DELETE FROM products");
+				nearCache.recordInvalidationOfAll();
+			});
+		}
+
+		long started = System.nanoTime();
+		long lastReport = started;
+		long maxIdBefore = maxId();
+		List<Product> batch = new ArrayList<>(batchSize);
+		for (long index = 0; index < count; index++) {
+			batch.add(generator.product(index));
+			if (batch.size() == batchSize || index == count - 1) {
+				insert(batch);
+				batch.clear();
+
+				long now = System.nanoTime();
+				if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+					log.info("Catalog generation: {} of {} products written, {} products/s", index + 1, count,
+							Math.round(productsPerSecond(index + 1, now - started)));
+					lastReport = now;
+				}
+			}
+		}
+
+		productService.rebuildLookupFilter();
+		productService.rebuildSuggestionIndex();
+		productStatistics.reconcile();
+
+		long elapsed = System.nanoTime() - started;
+		Long firstId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM products WHERE id > ?", Long.class, maxIdBefore);
+		return new CatalogWriteResult(count, generator.seed(), firstId == null ? 0 : firstId, maxId(),
+				elapsed / 1_000_000, productsPerSecond(count, elapsed));
+	}
+
+	private void insert(List<Product> products) {
+		transactionTemplate.executeWithoutResult(status -> {
+			long maxIdBefore = maxId();
+			jdbcTemplate.batchUpdate(INSERT_SQL, products, products.size(), (statement, product) -> {
+				statement.setString(1, product.getName());
+				statement.setString(2, product.getDescription());
+				statement.setDouble(3, product.getPrice());
+				statement.setString(4, product.getImageUrl());
+			});
+			nearCache.recordCreationsAfter(maxIdBefore);
+		});
+	}
+
+	private long maxId() {
+		Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM products", Long.class);
+		return maxId == null ? 0 : maxId;
+	}
+
+	private static double productsPerSecond(long products, long nanos) {
+		return nanos == 0 ? 0 : products * 1_000_000_000.0 / nanos;
+	}
+}
@@ -0,0 +1,142 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.history;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free queue for many producers and a single consumer.
+ * <p>
+ * Each slot of a power-of-two array carries a sequence number telling whose turn it is. A producer
+ * claims the next position with one compare-and-set on the tail and then publishes its element by
+ * advancing the slot's sequence, so producers never wait for each other except to retry a lost race.
+ * The consumer reads a slot once its sequence shows it was published, and hands it back to producers
+ * one lap later by advancing the sequence again. Offering to a full buffer fails immediately instead
+ * of waiting; what to do then is up to the caller.
+ * <p>
+ * {@link #offer} may be called from any thread. {@link #poll} and {@link #drainTo} must only ever be
+ * called from one thread at a time.
+ *
+ * @param <E> the type of the elements
+ */
+public final class MpscRingBuffer<E> {
+
+	private final int mask;
+	private final AtomicReferenceArray<E> elements;
+	private final AtomicLongArray sequences;
+
+	/**
+	 * The next position to be claimed by a producer.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * The next position to be read. Only written by the consumer.
+	 */
+	private volatile long head;
+
+	/**
+	 * Creates an empty buffer.
+	 *
+	 * @param capacity the minimum number of elements the buffer can hold, rounded up to a power of two
+	 */
+	public MpscRingBuffer(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+		}
+		// at least two slots, or a published slot would look free to the next lap
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.mask = size - 1;
+		this.elements = new AtomicReferenceArray<>(size);
+		this.sequences = new AtomicLongArray(size);
+		for (int slot = 0; slot < size; slot++) {
+			sequences.set(slot, slot);
+		}
+	}
+
+	/**
+	 * Adds an element if there is room.
+	 *
+	 * @param element the element to add
+	 * @return true if the element was added, false if the buffer is full
+	 */
+	public boolean offer(E element) {
+		if (element == null) {
+			throw new NullPointerException("element");
+		}
+		long position = tail.get();
+		while (true) {
+			int slot = (int) position & mask;
+			long difference = sequences.get(slot) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					elements.lazySet(slot, element);
+					// release: the consumer sees the element once it sees the sequence
+					sequences.set(slot, position + 1);
+					return true;
+				}
+				position = tail.get();
+			} else if (difference < 0) {
+				// the slot still holds the element from one lap ago
+				return false;
+			} else {
+				// another producer claimed this position first
+				position = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Removes the oldest element. Consumer thread only.
+	 *
+	 * @return the element, or null if the buffer is empty
+	 */
+	public E poll() {
+		long position = head;
+		int slot = (int) position & mask;
+		if (sequences.get(slot) != position + 1) {
+			return null;
+		}
+		E element = elements.get(slot);
+		elements.lazySet(slot, null);
+		sequences.lazySet(slot, position + mask + 1);
+		head = position + 1;
+		return element;
+	}
+
+	/**
+	 * Removes up to {@code limit} elements, oldest first. Consumer thread only.
+	 *
+	 * @param consumer receives each removed element
+	 * @param limit    the maximum number of elements to remove
+	 * @return the number of elements removed
+	 */
+	public int drainTo(Consumer<? super E> consumer, int limit) {
+		int drained = 0;
+		E element;
+		while (drained < limit && (element = poll()) != null) {
+			consumer.accept(element);
+			drained++;
+		}
+		return drained;
+	}
+
+	/**
+	 * Returns the number of elements in the buffer. Only exact when no thread is adding or removing.
+	 *
+	 * @return the approximate number of elements
+	 */
+	public int size() {
+		return (int) Math.max(0, Math.min(tail.get() - head, capacity()));
+	}
+
+	/**
+	 * Returns the number of elements the buffer can hold.
+	 *
+	 * @return the capacity
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+}
@@ -0,0 +1,26 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.history;
+
+/**
+ * What the price history log does with a change when its buffer is full, because the database
+ * cannot keep up or is unavailable.
+ */
+public enum OverflowPolicy {
+	/**
+	 * The writing request waits until there is room, so price updates slow down to the speed of the
+	 * history writes. Batches that fail are retried until the database accepts them, so no change is
+	 * lost while the application runs. Only batches the database rejects as invalid, and changes
+	 * that still cannot be written while the application shuts down, are counted as dropped.
+	 */
+	BLOCK,
+
+	/**
+	 * The change is not logged and a counter is incremented, so price updates never slow down.
+	 */
+	DROP,
+
+	/**
+	 * The change is appended to a local file, which is written to the database once the buffer has
+	 * drained. Nothing is lost unless the node's disk is.
+	 */
+	SPILL
+}
@@ -0,0 +1,547 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.history;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.PriceHistoryEntry;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.PriceHistoryRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only log of product price changes, written to the {@code price_history} table without
+ * slowing down the writes that cause them.
+ * <p>
+ * Once the transaction of a price change commits, the change is offered to an {@link MpscRingBuffer}.
+ * That costs the writing request a compare-and-set, not a database round trip. A single writer
+ * thread drains the buffer and inserts the changes with JDBC batch statements of up to
+ * {@code shopkart.price-history.batch-size} rows, whenever a full batch is waiting and otherwise
+ * every 20 ms. Rolled back changes are never logged.
+ * <p>
+ * If the buffer is full, the {@link OverflowPolicy} decides whether the request waits, the change is
+ * dropped and counted, or it is appended to a spill file that the writer replays once the buffer
+ * is empty. Failed batch writes are retried with BLOCK, which keeps the buffer full so requests
+ * wait for the database to recover, and are spilled or counted as dropped with the other policies.
+ * <p>
+ * Changes still in the buffer are lost if the process dies; they are written on a normal shutdown.
+ * Bulk repricing is logged synchronously instead, with one set-based statement per ID window in the
+ * window's own transaction, as there are no individual changes to queue.
+ */
+@Component
+public class PriceHistoryLog {
+
+	private static final Logger log = LoggerFactory.getLogger(PriceHistoryLog.class);
+
+	/**
+	 * The maximum number of entries returned by one history query.
+	 */
+	public static final int MAX_QUERY_LIMIT = 1000;
+
+	private static final String INSERT_SQL =
+			"INSERT INTO price_history (product_id, old_price, new_price, changed_at) VALUES (?, ?, ?, ?)";
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+	private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+	private static final long FAILURE_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final JdbcTemplate jdbcTemplate;
+	private final PriceHistoryRepository historyRepository;
+	private final boolean enabled;
+	private final int batchSize;
+	private final OverflowPolicy overflowPolicy;
+	private final Path spillFile;
+	private final Path replayFile;
+	private final Path replayPositionFile;
+	private final MpscRingBuffer<PriceChange> buffer;
+
+	private final Object spillLock = new Object();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong spilled = new AtomicLong();
+
+	private volatile Thread writer;
+	private volatile boolean running;
+
+	/**
+	 * Whether the writer is about to park or parked. Producers only unpark it then, and only once a
+	 * full batch is waiting, so the common case costs them two volatile reads rather than a system
+	 * call, and the writer inserts full batches rather than one row per wake-up.
+	 */
+	private volatile boolean writerIdle;
+
+	/**
+	 * Whether the writer holds changes taken from the buffer that are not yet written.
+	 */
+	private volatile boolean writerBusy;
+
+	/**
+	 * Creates a new PriceHistoryLog. The writer thread is started once the application is ready.
+	 *
+	 * @param jdbcTemplate      the template used for batch inserts
+	 * @param historyRepository the repository used for queries and bulk repricing
+	 * @param enabled           whether price changes should be logged at all
+	 * @param capacity          the number of changes the buffer holds, rounded up to a power of two
+	 * @param batchSize         the maximum number of changes inserted by one batch statement
+	 * @param overflowPolicy    what to do with a change when the buffer is full
+	 * @param spillFile         the file overflowing changes are appended to with {@link OverflowPolicy#SPILL}
+	 */
+	public PriceHistoryLog(
+			JdbcTemplate jdbcTemplate,
+			PriceHistoryRepository historyRepository,
+			@Value("${shopkart.price-history.enabled:true}") boolean enabled,
+			@Value("${shopkart.price-history.capacity:8192}") int capacity,
+			@Value("${shopkart.price-history.batch-size:500}") int batchSize,
+			@Value("${shopkart.price-history.overflow-policy:SPILL}") OverflowPolicy overflowPolicy,
+			@Value("${shopkart.price-history.spill-file:price-history/spill.csv}") Path spillFile
+	) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.historyRepository = historyRepository;
+		this.enabled = enabled;
+		this.batchSize = batchSize;
+		this.overflowPolicy = overflowPolicy;
+		this.spillFile = spillFile;
+		this.replayFile = spillFile.resolveSibling(spillFile.getFileName() + ".replay");
+		this.replayPositionFile = spillFile.resolveSibling(spillFile.getFileName() + ".replay.position");
+		this.buffer = new MpscRingBuffer<>(capacity);
+	}
+
+	/**
+	 * Starts the writer thread. Changes recorded before are kept in the buffer until then.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void start() {
+		if (!enabled || writer != null) {
+			return;
+		}
+		running = true;
+		Thread thread = new Thread(this::runWriter, "price-history-writer");
+		thread.setDaemon(true);
+		writer = thread;
+		thread.start();
+	}
+
+	/**
+	 * Stops the writer thread after it has written every buffered change.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the writer
+	 */
+	@PreDestroy
+	public synchronized void stop() throws InterruptedException {
+		Thread thread = writer;
+		if (thread == null) {
+			return;
+		}
+		running = false;
+		LockSupport.unpark(thread);
+		thread.join(TimeUnit.SECONDS.toMillis(30));
+		writer = null;
+	}
+
+	/**
+	 * Logs the creation of a product once the current transaction commits.
+	 *
+	 * @param productId the ID of the created product
+	 * @param price     its price
+	 */
+	public void recordCreation(long productId, double price) {
+		record(productId, null, price);
+	}
+
+	/**
+	 * Logs a price change once the current transaction commits.
+	 *
+	 * @param productId the ID of the changed product
+	 * @param oldPrice  the price before the change
+	 * @param newPrice  the price after the change
+	 */
+	public void recordPriceChange(long productId, double oldPrice, double newPrice) {
+		record(productId, oldPrice, newPrice);
+	}
+
+	/**
+	 * Logs the changes one window of a bulk repricing is about to make. Must be called inside the
+	 * window's transaction, before the update.
+	 *
+	 * @param request     the repricing request
+	 * @param fromId      the first ID of the window (inclusive)
+	 * @param toId        the last ID of the window (inclusive)
+	 * @param namePattern the LIKE pattern for keyword requests, or null for price range requests
+	 */
+	public void recordRepricing(BulkRepricingRequest request, long fromId, long toId, String namePattern) {
+		if (!enabled) {
+			return;
+		}
+		Instant now = Instant.now();
+		if (request.selectsByPriceRange()) {
+			historyRepository.logRepricingInPriceRange(fromId, toId, request.minPrice(), request.maxPrice(),
+					request.factor(), request.delta(), now);
+		} else {
+			historyRepository.logRepricingByNamePattern(fromId, toId, namePattern,
+					request.factor(), request.delta(), now);
+		}
+	}
+
+	/**
+	 * Finds the newest price history entries of a product. Changes still waiting in the buffer are
+	 * not included.
+	 *
+	 * @param productId the product ID
+	 * @param limit     the maximum number of entries, between 1 and {@value #MAX_QUERY_LIMIT}
+	 * @return the entries, newest first
+	 */
+	public List<PriceHistoryEntry> history(long productId, int limit) {
+		if (limit < 1 || limit > MAX_QUERY_LIMIT) {
+			throw new ProductValidationException("Limit must be between 1 and " + MAX_QUERY_LIMIT);
+		}
+		return historyRepository.findByProductIdOrderByChangedAtDescIdDesc(productId, Limit.of(limit));
+	}
+
+	/**
+	 * Waits until every change recorded so far has been written or given up on.
+	 *
+	 * @param timeout the maximum time to wait
+	 * @return true if nothing is left to write, false if the timeout elapsed first
+	 */
+	public boolean flush(Duration timeout) {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		while (buffer.size() > 0 || writerBusy || Files.exists(spillFile) || Files.exists(replayFile)) {
+			if (System.nanoTime() - deadline > 0) {
+				return false;
+			}
+			wakeWriter();
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of changes written to the database.
+	 *
+	 * @return the written count
+	 */
+	public long writtenCount() {
+		return written.get();
+	}
+
+	/**
+	 * Returns the number of changes lost because the buffer was full or a write failed.
+	 *
+	 * @return the dropped count
+	 */
+	public long droppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Returns the number of changes appended to the spill file.
+	 *
+	 * @return the spilled count
+	 */
+	public long spilledCount() {
+		return spilled.get();
+	}
+
+	private void record(long productId, Double oldPrice, double newPrice) {
+		if (!enabled) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					publish(new PriceChange(productId, oldPrice, newPrice, Instant.now()));
+				}
+			});
+		} else {
+			publish(new PriceChange(productId, oldPrice, newPrice, Instant.now()));
+		}
+	}
+
+	private void publish(PriceChange change) {
+		if (buffer.offer(change)) {
+			if (buffer.size() >= batchSize) {
+				wakeWriter();
+			}
+			return;
+		}
+		switch (overflowPolicy) {
+			case BLOCK -> {
+				while (!buffer.offer(change)) {
+					if (!running) {
+						// nobody would ever make room
+						write(List.of(change));
+						return;
+					}
+					wakeWriter();
+					LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+				}
+				wakeWriter();
+			}
+			case DROP -> {
+				long total = dropped.incrementAndGet();
+				// logged at powers of two, so a long overload does not flood the log
+				if ((total & (total - 1)) == 0) {
+					log.warn("price_history.dropped total={}", total);
+				}
+			}
+			case SPILL -> spill(List.of(change));
+		}
+	}
+
+	private void wakeWriter() {
+		if (writerIdle) {
+			LockSupport.unpark(writer);
+		}
+	}
+
+	private void runWriter() {
+		List<PriceChange> batch = new ArrayList<>(batchSize);
+		while (true) {
+			writerBusy = true;
+			buffer.drainTo(batch::add, batchSize);
+			if (!batch.isEmpty()) {
+				write(batch);
+				batch.clear();
+				continue;
+			}
+			boolean replayed = replaySpill();
+			writerBusy = false;
+			if (replayed) {
+				continue;
+			}
+			if (!running) {
+				return;
+			}
+			writerIdle = true;
+			// a producer completing a batch either sees the flag and unparks, or the batch is seen here
+			if (buffer.size() < batchSize) {
+				LockSupport.parkNanos(IDLE_PARK_NANOS);
+			}
+			writerIdle = false;
+		}
+	}
+
+	/**
+	 * Inserts a batch of changes. A failed batch is retried, spilled or dropped according to the policy.
+	 *
+	 * @return whether the batch was written
+	 */
+	private boolean write(List<PriceChange> changes) {
+		while (true) {
+			try {
+				insert(changes);
+				return true;
+			} catch (DataAccessException exception) {
+				log.warn("price_history.write_failed changes={}", changes.size(), exception);
+				// a batch the database rejects would fail forever, and stopping gives up on the rest
+				if (overflowPolicy == OverflowPolicy.BLOCK && running
+						&& !(exception instanceof DataIntegrityViolationException)) {
+					LockSupport.parkNanos(FAILURE_BACKOFF_NANOS);
+					continue;
+				}
+				if (overflowPolicy == OverflowPolicy.SPILL) {
+					spill(changes);
+				} else {
+					dropped.addAndGet(changes.size());
+				}
+				if (running) {
+					LockSupport.parkNanos(FAILURE_BACKOFF_NANOS);
+				}
+				return false;
+			}
+		}
+	}
+
+	private void insert(List<PriceChange> changes) {
+		jdbcTemplate.batchUpdate(INSERT_SQL, changes, changes.size(), (statement, change) -> {
+			statement.setLong(1, change.productId());
+			if (change.oldPrice() == null) {
+				statement.setNull(2, Types.DOUBLE);
+			} else {
+				statement.setDouble(2, change.oldPrice());
+			}
+			statement.setDouble(3, change.newPrice());
+			statement.setTimestamp(4, Timestamp.from(change.changedAt()));
+		});
+		written.addAndGet(changes.size());
+	}
+
+	private void spill(List<PriceChange> changes) {
+		synchronized (spillLock) {
+			try {
+				Path directory = spillFile.toAbsolutePath().getParent();
+				if (directory != null) {
+					Files.createDirectories(directory);
+				}
+				try (BufferedWriter out = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+						StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+					for (PriceChange change : changes) {
+						out.write(change.toLine());
+						out.newLine();
+					}
+				}
+				spilled.addAndGet(changes.size());
+			} catch (IOException exception) {
+				log.error("price_history.spill_failed changes={} file={}", changes.size(), spillFile, exception);
+				dropped.addAndGet(changes.size());
+			}
+		}
+	}
+
+	/**
+	 * Writes the spilled changes to the database. The spill file is moved aside first, so producers
+	 * can keep appending to a new one. If a batch fails, it and the rest of the file are spilled again.
+	 * <p>
+	 * The number of lines handled so far is saved after every batch, so a replay interrupted by an
+	 * error or a crash resumes after the last handled batch. Only a crash between writing a batch and
+	 * saving the position can insert that one batch twice. Lines that
+	 * cannot be parsed, such as one cut short by a crash while spilling, are skipped and counted as
+	 * dropped.
+	 *
+	 * @return whether any changes were written
+	 */
+	private boolean replaySpill() {
+		try {
+			synchronized (spillLock) {
+				if (!Files.exists(replayFile)) {
+					if (!Files.exists(spillFile)) {
+						return false;
+					}
+					Files.deleteIfExists(replayPositionFile);
+					Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+				}
+			}
+			long handled = readReplayPosition();
+			long lineNumber = 0;
+			long pending = 0;
+			boolean failed = false;
+			boolean wroteAny = false;
+			List<PriceChange> changes = new ArrayList<>(batchSize);
+			try (BufferedReader in = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = in.readLine()) != null) {
+					if (++lineNumber <= handled || line.isEmpty()) {
+						continue;
+					}
+					pending++;
+					PriceChange change = parseSpilled(line, lineNumber);
+					if (change != null) {
+						changes.add(change);
+					}
+					if (changes.size() == batchSize) {
+						failed = !writeReplayed(changes, failed);
+						wroteAny |= !failed;
+						changes.clear();
+						saveReplayPosition(lineNumber);
+						// changes spilled again were counted again, so the count stays at what is still waiting
+						spilled.addAndGet(-pending);
+						pending = 0;
+					}
+				}
+			}
+			if (!changes.isEmpty()) {
+				failed = !writeReplayed(changes, failed);
+				wroteAny |= !failed;
+			}
+			saveReplayPosition(lineNumber);
+			spilled.addAndGet(-pending);
+			Files.delete(replayFile);
+			Files.deleteIfExists(replayPositionFile);
+			return wroteAny;
+		} catch (IOException | RuntimeException exception) {
+			log.error("price_history.replay_failed file={}", replayFile, exception);
+			if (running) {
+				LockSupport.parkNanos(FAILURE_BACKOFF_NANOS);
+			}
+			return false;
+		}
+	}
+
+	private PriceChange parseSpilled(String line, long lineNumber) {
+		try {
+			return PriceChange.fromLine(line);
+		} catch (RuntimeException exception) {
+			log.warn("price_history.replay_skipped file={} line={} content=\"{}\"", replayFile, lineNumber, line);
+			dropped.incrementAndGet();
+			return null;
+		}
+	}
+
+	private long readReplayPosition() throws IOException {
+		if (!Files.exists(replayPositionFile)) {
+			return 0;
+		}
+		String position = Files.readString(replayPositionFile, StandardCharsets.UTF_8).trim();
+		try {
+			return Long.parseLong(position);
+		} catch (NumberFormatException exception) {
+			// written by an atomic move, so this only happens if the file was edited by hand
+			throw new IOException("Unreadable replay position \"" + position + "\" in " + replayPositionFile, exception);
+		}
+	}
+
+	private void saveReplayPosition(long lineNumber) throws IOException {
+		Path temporary = replayPositionFile.resolveSibling(replayPositionFile.getFileName() + ".tmp");
+		Files.writeString(temporary, Long.toString(lineNumber), StandardCharsets.UTF_8);
+		Files.move(temporary, replayPositionFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private boolean writeReplayed(List<PriceChange> changes, boolean failedBefore) {
+		if (failedBefore) {
+			// the database is down, so keep the order of the rest of the file
+			spill(changes);
+			return false;
+		}
+		return write(changes);
+	}
+
+	/**
+	 * One committed price change waiting to be written.
+	 *
+	 * @param productId the ID of the changed product
+	 * @param oldPrice  the price before the change, or null for a created product
+	 * @param newPrice  the price after the change
+	 * @param changedAt the time the change was committed
+	 */
+	record PriceChange(long productId, Double oldPrice, double newPrice, Instant changedAt) {
+
+		String toLine() {
+			return productId + "," + (oldPrice == null ? "" : oldPrice) + "," + newPrice + "," + changedAt;
+		}
+
+		static PriceChange fromLine(String line) {
+			String[] fields = line.split(",", -1);
+			return new PriceChange(Long.parseLong(fields[0]),
+					fields[1].isEmpty() ? null : Double.valueOf(fields[1]),
+					Double.parseDouble(fields[2]), Instant.parse(fields[3]));
+		}
+	}
+}
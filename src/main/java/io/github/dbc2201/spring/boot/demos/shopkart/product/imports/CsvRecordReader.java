@@ -0,0 +1,103 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.imports;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader for RFC 4180 style CSV.
+ * <p>
+ * Reads one record at a time from the underlying reader, so files of any size can be
+ * processed in constant memory. Supports quoted fields containing commas, doubled quotes
+ * and line breaks.
+ */
+public class CsvRecordReader implements Closeable {
+
+	private final BufferedReader reader;
+	private long lineNumber;
+
+	/**
+	 * Creates a new CsvRecordReader over the given reader.
+	 *
+	 * @param reader the character stream to read records from
+	 */
+	public CsvRecordReader(BufferedReader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @return the fields of the next record, or null at the end of the input
+	 * @throws IOException if the input cannot be read
+	 */
+	public CsvRecord next() throws IOException {
+		String line = reader.readLine();
+		if (line == null) {
+			return null;
+		}
+		lineNumber++;
+		long startLine = lineNumber;
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		StringBuilder raw = new StringBuilder(line);
+		boolean quoted = false;
+		int i = 0;
+		while (true) {
+			if (i == line.length()) {
+				if (!quoted) {
+					break;
+				}
+				// a quoted field continues on the next line
+				line = reader.readLine();
+				if (line == null) {
+					break;
+				}
+				lineNumber++;
+				raw.append('\n').append(line);
+				field.append('\n');
+				i = 0;
+				continue;
+			}
+			char c = line.charAt(i++);
+			if (quoted) {
+				if (c == '"') {
+					if (i < line.length() && line.charAt(i) == '"') {
+						field.append('"');
+						i++;
+					} else {
+						quoted = false;
+					}
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return new CsvRecord(startLine, fields, raw.toString());
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * A single CSV record.
+	 *
+	 * @param lineNumber the line number the record starts on (1-based)
+	 * @param fields     the parsed field values
+	 * @param raw        the record exactly as it appeared in the input
+	 */
+	public record CsvRecord(long lineNumber, List<String> fields, String raw) {
+	}
+}
@@ -0,0 +1,16 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.imports;
+
+/**
+ * How imported rows are written to the products table.
+ */
+public enum ImportMode {
+	/**
+	 * Every valid row is inserted as a new product.
+	 */
+	INSERT,
+
+	/**
+	 * Rows whose name matches an existing product update that product, all other rows are inserted.
+	 */
+	UPSERT
+}
@@ -0,0 +1,26 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.imports;
+
+/**
+ * Summary of a bulk import run.
+ *
+ * @param jobId         the identifier of the import job
+ * @param rowsRead      the number of data rows read and processed in this run
+ * @param rowsImported  the number of products inserted or updated in this run; in upsert mode, rows
+ *                      repeating a name within one batch count once
+ * @param rowsRejected  the number of rows that failed validation in this run
+ * @param rowsSkipped   the number of rows skipped because an earlier run had already processed them
+ * @param elapsedMillis the wall clock time of this run in milliseconds
+ * @param rowsPerSecond the average throughput of this run
+ * @param errorFile     the path of the file rejected rows were written to
+ */
+public record ImportResult(
+		String jobId,
+		long rowsRead,
+		long rowsImported,
+		long rowsRejected,
+		long rowsSkipped,
+		long elapsedMillis,
+		double rowsPerSecond,
+		String errorFile
+) {
+}
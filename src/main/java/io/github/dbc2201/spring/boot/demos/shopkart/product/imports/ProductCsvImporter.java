@@ -0,0 +1,399 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.imports;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductLookupFilter;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductNearCache;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.search.ProductSuggestionIndex;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.ProductStatistics;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.imports.CsvRecordReader.CsvRecord;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Streams products from CSV into the database.
+ * <p>
+ * The input is read one batch at a time, so memory use does not depend on the file size.
+ * Each batch is validated in parallel against the Bean Validation constraints on {@link Product}
+ * while the previous batch is being written, and valid rows are written with JDBC batch statements
+ * in one transaction per batch. Rejected rows are appended to an error file together with the reason.
+ * <p>
+ * After every committed batch, the number of processed rows is saved to a checkpoint file named after
+ * the job ID. Running an import again with the same job ID skips the rows that were already processed.
+ * If the process stops between a commit and the checkpoint write, that one batch is processed again,
+ * which is harmless in {@link ImportMode#UPSERT} mode.
+ * <p>
+ * The input must start with a header row containing the columns {@code name}, {@code description},
+ * {@code price} and {@code imageUrl}, in any order. Other columns are ignored.
+ */
+@Service
+public class ProductCsvImporter {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductCsvImporter.class);
+
+	private static final Pattern JOB_ID_PATTERN = Pattern.compile("[A-Za-z0-9._-]{1,100}");
+	private static final List<String> REQUIRED_COLUMNS = List.of("name", "description", "price", "imageurl");
+	private static final int IN_CLAUSE_LIMIT = 500;
+	private static final long PROGRESS_INTERVAL_NANOS = 10_000_000_000L;
+
+	private static final String INSERT_SQL =
+			"INSERT INTO products (name, description, price, image_url) VALUES (?, ?, ?, ?)";
+	private static final String UPDATE_SQL =
+			"UPDATE products SET description = ?, price = ?, image_url = ? WHERE name = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final Validator validator;
+	private final ProductLookupFilter lookupFilter;
+	private final ProductNearCache nearCache;
+	private final ProductSuggestionIndex suggestionIndex;
+	private final ProductStatistics productStatistics;
+	private final int batchSize;
+	private final Path workDirectory;
+
+	/**
+	 * Creates a new ProductCsvImporter.
+	 *
+	 * @param jdbcTemplate        the template used for batch writes
+	 * @param transactionTemplate the template used to run each batch in its own transaction
+	 * @param validator           the Bean Validation validator for imported products
+	 * @param lookupFilter        the negative lookup cache, updated with imported products
+	 * @param nearCache           the near cache, told about created and updated products
+	 * @param suggestionIndex     the name suggestion index, updated with imported products
+	 * @param productStatistics   the price statistics, updated with imported products
+	 * @param batchSize           the number of rows validated and written together
+	 * @param workDirectory       the directory for checkpoint and error files
+	 */
+	public ProductCsvImporter(
+			JdbcTemplate jdbcTemplate,
+			TransactionTemplate transactionTemplate,
+			Validator validator,
+			ProductLookupFilter lookupFilter,
+			ProductNearCache nearCache,
+			ProductSuggestionIndex suggestionIndex,
+			ProductStatistics productStatistics,
+			@Value("${shopkart.import.batch-size:1000}") int batchSize,
+			@Value("${shopkart.import.work-directory:import}") Path workDirectory
+	) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.validator = validator;
+		this.lookupFilter = lookupFilter;
+		this.nearCache = nearCache;
+		this.suggestionIndex = suggestionIndex;
+		this.productStatistics = productStatistics;
+		this.batchSize = batchSize;
+		this.workDirectory = workDirectory;
+	}
+
+	/**
+	 * Imports products from a CSV stream, resuming from the job's checkpoint if one exists.
+	 *
+	 * @param jobId the identifier of the import, used to name the checkpoint and error files
+	 * @param input the CSV input, which is read to the end but not closed
+	 * @param mode  whether rows are always inserted or matched by name first
+	 * @return a summary of the rows processed in this run
+	 * @throws IOException if the input cannot be read or the work files cannot be written
+	 */
+	public ImportResult importCsv(String jobId, InputStream input, ImportMode mode) throws IOException {
+		if (jobId == null || !JOB_ID_PATTERN.matcher(jobId).matches()) {
+			throw new ProductValidationException("Import job id must be 1 to 100 letters, digits, '.', '_' or '-'");
+		}
+		Files.createDirectories(workDirectory);
+		Path checkpointFile = workDirectory.resolve(jobId + ".checkpoint");
+		Path errorFile = workDirectory.resolve(jobId + ".errors.csv");
+		long alreadyProcessed = readCheckpoint(checkpointFile);
+
+		CsvRecordReader reader = new CsvRecordReader(
+				new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16));
+		StandardOpenOption errorFileMode = alreadyProcessed > 0
+				? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+		try (BufferedWriter errors = Files.newBufferedWriter(errorFile, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, errorFileMode)) {
+			CsvRecord header = reader.next();
+			if (header == null) {
+				throw new ProductValidationException("Import file is empty");
+			}
+			int[] columns = resolveColumns(header);
+			for (long i = 0; i < alreadyProcessed; i++) {
+				if (reader.next() == null) {
+					break;
+				}
+			}
+			if (alreadyProcessed > 0) {
+				log.info("Import {}: resuming after {} rows", jobId, alreadyProcessed);
+			}
+
+			long started = System.nanoTime();
+			long lastReport = started;
+			long processed = alreadyProcessed;
+			long imported = 0;
+			long rejected = 0;
+
+			// validate the next batch while the current one is being written
+			CompletableFuture<List<ValidatedRow>> inFlight = validateAsync(readBatch(reader), columns);
+			while (inFlight != null) {
+				List<CsvRecord> nextBatch = readBatch(reader);
+				CompletableFuture<List<ValidatedRow>> next = validateAsync(nextBatch, columns);
+
+				List<ValidatedRow> rows = inFlight.join();
+				List<Product> valid = new ArrayList<>(rows.size());
+				for (ValidatedRow row : rows) {
+					if (row.error() == null) {
+						valid.add(row.product());
+					} else {
+						writeError(errors, row);
+						rejected++;
+					}
+				}
+				imported += write(valid, mode);
+				processed += rows.size();
+				errors.flush();
+				writeCheckpoint(checkpointFile, processed);
+
+				long now = System.nanoTime();
+				if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+					log.info("Import {}: {} rows processed, {} rows/s", jobId, processed,
+							Math.round(rowsPerSecond(processed - alreadyProcessed, now - started)));
+					lastReport = now;
+				}
+				inFlight = next;
+			}
+
+			Files.deleteIfExists(checkpointFile);
+			if (mode == ImportMode.UPSERT && imported > 0) {
+				// updated rows replaced prices that were not read, so the statistics are recomputed
+				productStatistics.reconcile();
+			}
+			long elapsed = System.nanoTime() - started;
+			long rowsRead = processed - alreadyProcessed;
+			ImportResult result = new ImportResult(jobId, rowsRead, imported, rejected, alreadyProcessed,
+					elapsed / 1_000_000, rowsPerSecond(rowsRead, elapsed), errorFile.toAbsolutePath().toString());
+			log.info("Import {} finished: {} rows read, {} imported, {} rejected, {} rows/s",
+					jobId, rowsRead, imported, rejected, Math.round(result.rowsPerSecond()));
+			return result;
+		}
+	}
+
+	private List<CsvRecord> readBatch(CsvRecordReader reader) throws IOException {
+		List<CsvRecord> batch = new ArrayList<>(batchSize);
+		CsvRecord record;
+		while (batch.size() < batchSize && (record = reader.next()) != null) {
+			batch.add(record);
+		}
+		return batch;
+	}
+
+	private CompletableFuture<List<ValidatedRow>> validateAsync(List<CsvRecord> batch, int[] columns) {
+		if (batch.isEmpty()) {
+			return null;
+		}
+		return CompletableFuture.supplyAsync(() -> batch.parallelStream()
+				.map(record -> validate(record, columns))
+				.toList());
+	}
+
+	private ValidatedRow validate(CsvRecord record, int[] columns) {
+		List<String> fields = record.fields();
+		for (int column : columns) {
+			if (column >= fields.size()) {
+				return new ValidatedRow(record, null, "Expected at least " + (column + 1) + " columns");
+			}
+		}
+		double price;
+		try {
+			price = Double.parseDouble(fields.get(columns[2]).trim());
+		} catch (NumberFormatException exception) {
+			return new ValidatedRow(record, null, "Product price is not a number.");
+		}
+		Product product = new Product(fields.get(columns[0]), fields.get(columns[1]), price, fields.get(columns[3]));
+		Set<ConstraintViolation<Product>> violations = validator.validate(product);
+		if (!violations.isEmpty()) {
+			String reason = violations.stream()
+					.map(ConstraintViolation::getMessage)
+					.sorted()
+					.collect(Collectors.joining(" "));
+			return new ValidatedRow(record, null, reason);
+		}
+		return new ValidatedRow(record, product, null);
+	}
+
+	private long write(List<Product> products, ImportMode mode) {
+		if (products.isEmpty()) {
+			return 0;
+		}
+		// names are recorded before the write, so they are never rejected once visible
+		products.forEach(product -> lookupFilter.recordName(product.getName()));
+		Long written = transactionTemplate.execute(status -> {
+			long maxIdBefore = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM products", Long.class);
+			long count = mode == ImportMode.UPSERT ? upsert(products) : insert(products);
+			nearCache.recordCreationsAfter(maxIdBefore);
+			// recorded before the commit, as createProduct does, so new products are never rejected once visible
+			jdbcTemplate.query("SELECT id, name, price FROM products WHERE id > ?", row -> {
+				long id = row.getLong("id");
+				lookupFilter.recordId(id);
+				suggestionIndex.recordProduct(id, row.getString("name"));
+				productStatistics.recordCreation(row.getDouble("price"));
+			}, maxIdBefore);
+			return count;
+		});
+		return written == null ? 0 : written;
+	}
+
+	/**
+	 * Inserts a batch of products.
+	 *
+	 * @return the number of inserted products
+	 */
+	private long insert(List<Product> products) {
+		jdbcTemplate.batchUpdate(INSERT_SQL, products, products.size(), (statement, product) -> {
+			statement.setString(1, product.getName());
+			statement.setString(2, product.getDescription());
+			statement.setDouble(3, product.getPrice());
+			statement.setString(4, product.getImageUrl());
+		});
+		return products.size();
+	}
+
+	/**
+	 * Updates the products whose names already exist and inserts the others.
+	 * <p>
+	 * Whether a name exists is decided by the database, from the number of rows its update changed,
+	 * so names are matched under the column's collation: with the default MySQL collation, a row
+	 * named "iphone" updates the existing "iPhone" rather than adding a second product.
+	 *
+	 * @return the number of distinct products updated or inserted
+	 */
+	private long upsert(List<Product> products) {
+		// the last row for a name wins within a batch, as it would across batches;
+		// names are folded like the collation, so two spellings of one name are not both inserted
+		Map<String, Product> byName = new LinkedHashMap<>();
+		products.forEach(product -> byName.put(ProductLookupFilter.fold(product.getName()), product));
+		List<Product> candidates = new ArrayList<>(byName.values());
+
+		// matched by the same condition as the update, so these are the rows it changes
+		List<Long> existingIds = findExistingIds(candidates.stream().map(Product::getName).toList());
+		List<Product> inserts = candidates;
+		if (!existingIds.isEmpty()) {
+			int[][] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, candidates, candidates.size(), (statement, product) -> {
+				statement.setString(1, product.getDescription());
+				statement.setDouble(2, product.getPrice());
+				statement.setString(3, product.getImageUrl());
+				statement.setString(4, product.getName());
+			});
+			nearCache.recordInvalidations(existingIds);
+			inserts = new ArrayList<>();
+			int index = 0;
+			for (int[] counts : updated) {
+				for (int count : counts) {
+					if (count == 0) {
+						inserts.add(candidates.get(index));
+					}
+					index++;
+				}
+			}
+		}
+		if (!inserts.isEmpty()) {
+			insert(inserts);
+		}
+		return candidates.size();
+	}
+
+	/**
+	 * Finds the IDs of the existing products with the given names, matched by the database, so
+	 * updates by name can be logged for just the affected products.
+	 */
+	private List<Long> findExistingIds(List<String> names) {
+		List<Long> existing = new ArrayList<>();
+		for (int from = 0; from < names.size(); from += IN_CLAUSE_LIMIT) {
+			List<String> chunk = names.subList(from, Math.min(names.size(), from + IN_CLAUSE_LIMIT));
+			String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+			existing.addAll(jdbcTemplate.queryForList(
+					"SELECT id FROM products WHERE name IN (" + placeholders + ")", Long.class, chunk.toArray()));
+		}
+		return existing;
+	}
+
+	private static int[] resolveColumns(CsvRecord header) {
+		List<String> names = header.fields().stream()
+				.map(name -> name.trim().toLowerCase(Locale.ROOT))
+				.toList();
+		int[] columns = new int[REQUIRED_COLUMNS.size()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = names.indexOf(REQUIRED_COLUMNS.get(i));
+			if (columns[i] < 0) {
+				throw new ProductValidationException("Import file header must contain the columns "
+						+ "name, description, price and imageUrl");
+			}
+		}
+		return columns;
+	}
+
+	private static void writeError(BufferedWriter errors, ValidatedRow row) {
+		try {
+			errors.write(row.record().lineNumber() + "," + quote(row.error()) + "," + quote(row.record().raw()));
+			errors.newLine();
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	private static String quote(String value) {
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	private static long readCheckpoint(Path checkpointFile) throws IOException {
+		if (!Files.exists(checkpointFile)) {
+			return 0;
+		}
+		return Long.parseLong(Files.readString(checkpointFile).trim());
+	}
+
+	private static void writeCheckpoint(Path checkpointFile, long processed) throws IOException {
+		Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+		Files.writeString(temporary, Long.toString(processed));
+		Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static double rowsPerSecond(long rows, long elapsedNanos) {
+		return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+	}
+
+	/**
+	 * The outcome of validating a single CSV record.
+	 *
+	 * @param record  the record that was validated
+	 * @param product the product built from the record, or null if it was rejected
+	 * @param error   the reason the record was rejected, or null if it is valid
+	 */
+	private record ValidatedRow(CsvRecord record, Product product, String error) {
+	}
+}
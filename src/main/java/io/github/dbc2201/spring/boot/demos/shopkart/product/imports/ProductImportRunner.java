@@ -0,0 +1,82 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.imports;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command line entry point for bulk imports.
+ * <p>
+ * Only active when {@code shopkart.import.file} is set. For a one-off import without starting
+ * the web server, run:
+ * <pre>
+ * java -jar shopkart.jar --spring.main.web-application-type=none \
+ *     --shopkart.import.file=feed.csv --shopkart.import.mode=UPSERT
+ * </pre>
+ * The job ID defaults to the file name, so running the same command again after a failure
+ * resumes from the last checkpoint.
+ * <p>
+ * The application exits once the import finishes, with a non-zero status if it failed, as the
+ * scheduler threads would otherwise keep the JVM running.
+ */
+@Component
+@ConditionalOnProperty("shopkart.import.file")
+public class ProductImportRunner implements ApplicationRunner {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductImportRunner.class);
+
+	private final ConfigurableApplicationContext context;
+	private final ProductCsvImporter importer;
+	private final Path file;
+	private final String jobId;
+	private final ImportMode mode;
+
+	/**
+	 * Creates a new ProductImportRunner.
+	 *
+	 * @param context  the application context, closed once the import finishes
+	 * @param importer the importer to run
+	 * @param file     the CSV file to import
+	 * @param jobId    the import job ID, or empty to use the file name
+	 * @param mode     whether rows are always inserted or matched by name first
+	 */
+	public ProductImportRunner(
+			ConfigurableApplicationContext context,
+			ProductCsvImporter importer,
+			@Value("${shopkart.import.file}") Path file,
+			@Value("${shopkart.import.job-id:}") String jobId,
+			@Value("${shopkart.import.mode:INSERT}") ImportMode mode
+	) {
+		this.context = context;
+		this.importer = importer;
+		this.file = file;
+		this.jobId = jobId.isEmpty() ? file.getFileName().toString() : jobId;
+		this.mode = mode;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		log.info("Importing {} as job {} in {} mode", file, jobId, mode);
+		int exitCode = 0;
+		try (InputStream input = Files.newInputStream(file)) {
+			ImportResult result = importer.importCsv(jobId, input, mode);
+			log.info("Import result: {}", result);
+		} catch (IOException | RuntimeException exception) {
+			log.error("Import of {} failed", file, exception);
+			exitCode = 1;
+		}
+		int status = exitCode;
+		System.exit(SpringApplication.exit(context, () -> status));
+	}
+}
@@ -0,0 +1,154 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.model;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+
+import java.util.Locale;
+
+/**
+ * A request to change the price of every product matching a selector.
+ * <p>
+ * Products are selected either by a price range (inclusive on both ends, like
+ * {@code findProductsInPriceRange}) or by a keyword contained in the name, ignoring case
+ * (like {@code findByNameContainingIgnoreCase}). Exactly one selector must be given.
+ * New prices are rounded to cents. Like a single price update, an adjustment that would bring the
+ * price of any selected product to 0 or below is rejected as a whole.
+ * <p>
+ * The database service applies a request in ID windows, each in its own transaction. A request
+ * with an operation ID can be retried after a failure: windows committed by an earlier attempt
+ * with the same ID are not repriced again.
+ *
+ * @param minPrice    the lowest price to select, used together with maxPrice
+ * @param maxPrice    the highest price to select, used together with minPrice
+ * @param keyword     the text the product name must contain, ignoring case
+ * @param type        whether the amount is a percentage or an absolute change
+ * @param amount      the size of the change, negative for a discount
+ * @param operationId a client-chosen ID that makes retries safe, or null
+ */
+public record BulkRepricingRequest(
+		Double minPrice,
+		Double maxPrice,
+		String keyword,
+		PriceAdjustmentType type,
+		double amount,
+		String operationId
+) {
+
+	/**
+	 * The maximum length of an operation ID.
+	 */
+	public static final int MAX_OPERATION_ID_LENGTH = 64;
+
+	/**
+	 * The lowest price a repricing can leave, also applied if a price changed concurrently after
+	 * the request was checked.
+	 */
+	public static final double LOWEST_PRICE = 0.01;
+
+	/**
+	 * Creates a request without an operation ID.
+	 *
+	 * @param minPrice the lowest price to select, used together with maxPrice
+	 * @param maxPrice the highest price to select, used together with minPrice
+	 * @param keyword  the text the product name must contain, ignoring case
+	 * @param type     whether the amount is a percentage or an absolute change
+	 * @param amount   the size of the change, negative for a discount
+	 */
+	public BulkRepricingRequest(Double minPrice, Double maxPrice, String keyword, PriceAdjustmentType type, double amount) {
+		this(minPrice, maxPrice, keyword, type, amount, null);
+	}
+
+	/**
+	 * Checks that the request has exactly one selector and a usable adjustment.
+	 *
+	 * @throws ProductValidationException if the request is invalid
+	 */
+	public void validate() {
+		boolean hasRange = minPrice != null || maxPrice != null;
+		boolean hasKeyword = keyword != null && !keyword.isEmpty();
+		if (hasRange == hasKeyword) {
+			throw new ProductValidationException("Either a price range or a keyword must be given, but not both");
+		}
+		if (hasRange && (minPrice == null || maxPrice == null || minPrice > maxPrice)) {
+			throw new ProductValidationException("Price range must have a minimum that is not greater than the maximum");
+		}
+		if (type == null) {
+			throw new ProductValidationException("Price adjustment type must not be null");
+		}
+		if (type == PriceAdjustmentType.PERCENTAGE && amount <= -100) {
+			throw new ProductValidationException("Percentage adjustment must be greater than -100");
+		}
+		if (operationId != null && (operationId.isBlank() || operationId.length() > MAX_OPERATION_ID_LENGTH)) {
+			throw new ProductValidationException("Operation ID must not be blank or longer than "
+					+ MAX_OPERATION_ID_LENGTH + " characters");
+		}
+	}
+
+	/**
+	 * Checks that the adjustment leaves every selected product with a price above 0. As the factor
+	 * is always positive, only the lowest selected price needs to be checked.
+	 *
+	 * @param lowestSelectedPrice the lowest price among the selected products, or null if none is selected
+	 * @throws ProductValidationException if the lowest price would drop to 0 or below
+	 */
+	public void validateLowestPrice(Double lowestSelectedPrice) {
+		if (lowestSelectedPrice != null && round(lowestSelectedPrice * factor() + delta()) <= 0) {
+			throw new ProductValidationException("Price adjustment would lower the price of a selected product "
+					+ "from " + lowestSelectedPrice + " to 0 or below");
+		}
+	}
+
+	/**
+	 * Returns whether products are selected by price range rather than by keyword.
+	 *
+	 * @return true for a price range selector
+	 */
+	public boolean selectsByPriceRange() {
+		return minPrice != null;
+	}
+
+	/**
+	 * Returns the factor every selected price is multiplied by.
+	 *
+	 * @return the multiplier, 1 for absolute adjustments
+	 */
+	public double factor() {
+		return type == PriceAdjustmentType.PERCENTAGE ? 1 + amount / 100 : 1;
+	}
+
+	/**
+	 * Returns the amount added to every selected price after multiplying by the factor.
+	 *
+	 * @return the offset, 0 for percentage adjustments
+	 */
+	public double delta() {
+		return type == PriceAdjustmentType.ABSOLUTE ? amount : 0;
+	}
+
+	/**
+	 * Checks whether a product is selected by this request.
+	 *
+	 * @param product the product to check
+	 * @return true if the product's price or name matches the selector
+	 */
+	public boolean matches(Product product) {
+		if (selectsByPriceRange()) {
+			return product.getPrice() >= minPrice && product.getPrice() <= maxPrice;
+		}
+		return product.getName() != null
+				&& product.getName().toLowerCase(Locale.ROOT).contains(keyword.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Computes the new price for a selected product.
+	 *
+	 * @param price the current price
+	 * @return the adjusted price, rounded to cents and not below {@value #LOWEST_PRICE}
+	 */
+	public double apply(double price) {
+		return Math.max(LOWEST_PRICE, round(price * factor() + delta()));
+	}
+
+	private static double round(double price) {
+		return Math.round(price * 100) / 100.0;
+	}
+}
@@ -0,0 +1,9 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.model;
+
+/**
+ * The outcome of a bulk repricing.
+ *
+ * @param affected the number of products whose price was changed
+ */
+public record BulkRepricingResult(long affected) {
+}
@@ -0,0 +1,16 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.model;
+
+/**
+ * How the amount of a bulk price adjustment is applied to each price.
+ */
+public enum PriceAdjustmentType {
+	/**
+	 * The amount is a percentage of the current price, for example -10 for 10% off.
+	 */
+	PERCENTAGE,
+
+	/**
+	 * The amount is added to the current price, for example -5 for 5 off.
+	 */
+	ABSOLUTE
+}
@@ -0,0 +1,91 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * An entry in the append-only price history of a product.
+ * <p>
+ * One entry is written for every price a product is given: when it is created, when its price is
+ * updated and when it is repriced in bulk. Entries are never updated, and are kept after the
+ * product is deleted.
+ */
+@Entity
+@Table(name = "price_history", indexes = @Index(name = "idx_price_history_product", columnList = "product_id, changed_at"))
+public class PriceHistoryEntry {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private long id;
+
+	/**
+	 * The ID of the product whose price changed.
+	 */
+	@Column(name = "product_id", nullable = false)
+	private long productId;
+
+	/**
+	 * The price before the change, or null if the product was created.
+	 */
+	@Column(name = "old_price")
+	private Double oldPrice;
+
+	/**
+	 * The price after the change.
+	 */
+	@Column(name = "new_price", nullable = false)
+	private double newPrice;
+
+	/**
+	 * The time the change was committed.
+	 */
+	@Column(name = "changed_at", nullable = false)
+	private Instant changedAt;
+
+	public PriceHistoryEntry() {
+	}
+
+	public PriceHistoryEntry(long productId, Double oldPrice, double newPrice, Instant changedAt) {
+		this.productId = productId;
+		this.oldPrice = oldPrice;
+		this.newPrice = newPrice;
+		this.changedAt = changedAt;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public long getProductId() {
+		return productId;
+	}
+
+	public Double getOldPrice() {
+		return oldPrice;
+	}
+
+	public double getNewPrice() {
+		return newPrice;
+	}
+
+	public Instant getChangedAt() {
+		return changedAt;
+	}
+
+	@Override
+	public String toString() {
+		return "PriceHistoryEntry{" +
+				"id=" + id +
+				", productId=" + productId +
+				", oldPrice=" + oldPrice +
+				", newPrice=" + newPrice +
+				", changedAt=" + changedAt +
+				'}';
+	}
+}
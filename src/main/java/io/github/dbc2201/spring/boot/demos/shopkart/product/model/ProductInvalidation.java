@@ -0,0 +1,79 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * An entry in the product invalidation log.
+ * <p>
+ * Every product creation and mutation writes one entry in the same transaction as the change itself.
+ * Each application node tails the log in ID order and evicts the affected products from its
+ * near cache, which keeps the caches of several nodes sharing one database coherent without
+ * an external message broker.
+ */
+@Entity
+@Table(name = "product_invalidations")
+public class ProductInvalidation {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private long id;
+
+	/**
+	 * The ID of the changed product, or null if any number of products may have changed.
+	 */
+	@Column(name = "product_id")
+	private Long productId;
+
+	/**
+	 * The name of a created or renamed product, so other nodes can add it to their lookup filters.
+	 */
+	@Column(name = "product_name")
+	private String productName;
+
+	/**
+	 * The time the entry was written, used to purge old entries.
+	 */
+	@Column(nullable = false)
+	private Instant createdAt;
+
+	public ProductInvalidation() {
+	}
+
+	public ProductInvalidation(Long productId, String productName, Instant createdAt) {
+		this.productId = productId;
+		this.productName = productName;
+		this.createdAt = createdAt;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public Long getProductId() {
+		return productId;
+	}
+
+	public String getProductName() {
+		return productName;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	@Override
+	public String toString() {
+		return "ProductInvalidation{" +
+				"id=" + id +
+				", productId=" + productId +
+				", productName='" + productName + '\'' +
+				", createdAt=" + createdAt +
+				'}';
+	}
+}
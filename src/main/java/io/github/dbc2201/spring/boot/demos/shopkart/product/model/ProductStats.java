@@ -0,0 +1,26 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.model;
+
+import java.util.List;
+
+/**
+ * Summary statistics of the catalog's prices.
+ *
+ * @param count     the number of products
+ * @param minPrice  the lowest price, or null if there are no products
+ * @param maxPrice  the highest price, or null if there are no products
+ * @param meanPrice the mean price, or null if there are no products
+ * @param histogram the number of products in each price bucket, lowest bucket first
+ */
+public record ProductStats(long count, Double minPrice, Double maxPrice, Double meanPrice,
+						   List<PriceBucket> histogram) {
+
+	/**
+	 * The products whose price falls in {@code [from, to)}.
+	 *
+	 * @param from  the lowest price in the bucket (inclusive)
+	 * @param to    the highest price in the bucket (exclusive), or null for the open-ended last bucket
+	 * @param count the number of products in the bucket
+	 */
+	public record PriceBucket(double from, Double to, long count) {
+	}
+}
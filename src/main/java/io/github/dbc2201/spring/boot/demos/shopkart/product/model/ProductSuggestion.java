@@ -0,0 +1,72 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.model;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * A product name offered as a completion for a search prefix.
+ *
+ * @param id   the ID of the product
+ * @param name the name of the product, as stored
+ */
+public record ProductSuggestion(long id, String name) {
+
+	/**
+	 * The largest number of suggestions that can be requested at once. The database service's
+	 * prefix index precomputes this many completions per prefix, so every service can return it.
+	 */
+	public static final int MAX_LIMIT = 20;
+
+	/**
+	 * The order in which completions are offered: shorter names first, then alphabetically
+	 * ignoring case, then by ID.
+	 */
+	public static final Comparator<ProductSuggestion> RANKING = (left, right) ->
+			compare(fold(left.name()), left.id(), fold(right.name()), right.id());
+
+	/**
+	 * Compares two completions by their folded names and IDs, in {@link #RANKING} order.
+	 *
+	 * @param leftKey  the folded name of the first completion
+	 * @param leftId   the ID of the first completion
+	 * @param rightKey the folded name of the second completion
+	 * @param rightId  the ID of the second completion
+	 * @return a negative number if the first completion ranks higher
+	 */
+	public static int compare(String leftKey, long leftId, String rightKey, long rightId) {
+		int byLength = Integer.compare(leftKey.length(), rightKey.length());
+		if (byLength != 0) {
+			return byLength;
+		}
+		int byKey = leftKey.compareTo(rightKey);
+		return byKey != 0 ? byKey : Long.compare(leftId, rightId);
+	}
+
+	/**
+	 * Checks the arguments of a suggestion query.
+	 *
+	 * @param prefix the requested prefix
+	 * @param limit  the requested number of suggestions
+	 * @throws ProductValidationException if the prefix is missing or the limit is out of range
+	 */
+	public static void validateQuery(String prefix, int limit) {
+		if (prefix == null || prefix.isEmpty()) {
+			throw new ProductValidationException("Prefix must not be null or empty");
+		}
+		if (limit <= 0 || limit > MAX_LIMIT) {
+			throw new ProductValidationException("Limit must be between 1 and " + MAX_LIMIT);
+		}
+	}
+
+	/**
+	 * Case-folds a name or prefix for matching.
+	 *
+	 * @param text the text to fold
+	 * @return the folded text
+	 */
+	public static String fold(String text) {
+		return text.toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,107 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+
+import java.time.Instant;
+
+/**
+ * The progress of a bulk repricing submitted with an operation ID.
+ * <p>
+ * A bulk repricing updates the catalog one ID window at a time, each in its own transaction. The
+ * window's transaction also moves this record past the window, so a retry of an interrupted
+ * operation continues after the last committed window instead of repricing it again. The ID range
+ * is fixed by the first attempt, so products created later are never picked up by a retry.
+ */
+@Entity
+@Table(name = "repricing_operations")
+public class RepricingOperation {
+	@Id
+	@Column(length = BulkRepricingRequest.MAX_OPERATION_ID_LENGTH)
+	private String id;
+
+	/**
+	 * The largest product ID when the operation started, the end of the last window.
+	 */
+	@Column(nullable = false)
+	private long endId;
+
+	/**
+	 * The last ID of the newest committed window.
+	 */
+	@Column(nullable = false)
+	private long lastId;
+
+	/**
+	 * The number of products repriced by the committed windows.
+	 */
+	@Column(nullable = false)
+	private long affected;
+
+	/**
+	 * The time the last window committed, used to purge old operations.
+	 */
+	@Column(nullable = false)
+	private Instant updatedAt;
+
+	/**
+	 * Guards against two attempts of the same operation committing the same window.
+	 */
+	@Version
+	private long version;
+
+	public RepricingOperation() {
+	}
+
+	public RepricingOperation(String id, long endId) {
+		this.id = id;
+		this.endId = endId;
+	}
+
+	/**
+	 * Moves the operation past a committed window.
+	 *
+	 * @param toId      the last ID of the window
+	 * @param changed   the number of products repriced in the window
+	 * @param updatedAt the time of the change
+	 */
+	public void recordWindow(long toId, long changed, Instant updatedAt) {
+		this.lastId = toId;
+		this.affected += changed;
+		this.updatedAt = updatedAt;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public long getEndId() {
+		return endId;
+	}
+
+	public long getLastId() {
+		return lastId;
+	}
+
+	public long getAffected() {
+		return affected;
+	}
+
+	public Instant getUpdatedAt() {
+		return updatedAt;
+	}
+
+	@Override
+	public String toString() {
+		return "RepricingOperation{" +
+				"id='" + id + '\'' +
+				", endId=" + endId +
+				", lastId=" + lastId +
+				", affected=" + affected +
+				", updatedAt=" + updatedAt +
+				'}';
+	}
+}
@@ -0,0 +1,86 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.repository;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.PriceHistoryEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository interface for the {@link PriceHistoryEntry} log.
+ * <p>
+ * Single price changes are written in JDBC batches by the price history log, not through this
+ * repository. Bulk repricing logs its changes here, with set-based statements that mirror
+ * {@link ProductRepository#repriceInPriceRange} and {@link ProductRepository#repriceByNamePattern}.
+ */
+@Repository
+public interface PriceHistoryRepository extends JpaRepository<PriceHistoryEntry, Long> {
+
+	/**
+	 * Finds the newest price history entries of a product.
+	 *
+	 * @param productId the product ID
+	 * @param limit     the maximum number of entries to return
+	 * @return the entries, newest first
+	 */
+	List<PriceHistoryEntry> findByProductIdOrderByChangedAtDescIdDesc(long productId, Limit limit);
+
+	/**
+	 * Logs the price changes that {@link ProductRepository#repriceInPriceRange} is about to make.
+	 * Must run before the update, in the same transaction.
+	 *
+	 * @param fromId    the first ID of the window (inclusive)
+	 * @param toId      the last ID of the window (inclusive)
+	 * @param minPrice  the lowest price to select (inclusive)
+	 * @param maxPrice  the highest price to select (inclusive)
+	 * @param factor    the multiplier applied to the current price
+	 * @param delta     the amount added after multiplying
+	 * @param changedAt the time to record for the entries
+	 * @return the number of entries written
+	 */
+	@Modifying
+	@Query("INSERT INTO PriceHistoryEntry (productId, oldPrice, newPrice, changedAt) "
+			+ "SELECT p.id, p.price, CASE WHEN ROUND(p.price * :factor + :delta, 2) < 0.01 THEN 0.01 "
+			+ "ELSE ROUND(p.price * :factor + :delta, 2) END, :changedAt FROM Product p "
+			+ "WHERE p.id BETWEEN :fromId AND :toId AND p.price BETWEEN :minPrice AND :maxPrice")
+	int logRepricingInPriceRange(
+			@Param("fromId") long fromId,
+			@Param("toId") long toId,
+			@Param("minPrice") double minPrice,
+			@Param("maxPrice") double maxPrice,
+			@Param("factor") double factor,
+			@Param("delta") double delta,
+			@Param("changedAt") Instant changedAt
+	);
+
+	/**
+	 * Logs the price changes that {@link ProductRepository#repriceByNamePattern} is about to make.
+	 * Must run before the update, in the same transaction.
+	 *
+	 * @param fromId      the first ID of the window (inclusive)
+	 * @param toId        the last ID of the window (inclusive)
+	 * @param namePattern the lower-case LIKE pattern the name must match, with {@code !} as escape character
+	 * @param factor      the multiplier applied to the current price
+	 * @param delta       the amount added after multiplying
+	 * @param changedAt   the time to record for the entries
+	 * @return the number of entries written
+	 */
+	@Modifying
+	@Query("INSERT INTO PriceHistoryEntry (productId, oldPrice, newPrice, changedAt) "
+			+ "SELECT p.id, p.price, CASE WHEN ROUND(p.price * :factor + :delta, 2) < 0.01 THEN 0.01 "
+			+ "ELSE ROUND(p.price * :factor + :delta, 2) END, :changedAt FROM Product p "
+			+ "WHERE p.id BETWEEN :fromId AND :toId AND LOWER(p.name) LIKE :namePattern ESCAPE '!'")
+	int logRepricingByNamePattern(
+			@Param("fromId") long fromId,
+			@Param("toId") long toId,
+			@Param("namePattern") String namePattern,
+			@Param("factor") double factor,
+			@Param("delta") double delta,
+			@Param("changedAt") Instant changedAt
+	);
+}
@@ -0,0 +1,76 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.repository;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductInvalidation;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for the {@link ProductInvalidation} log.
+ */
+@Repository
+public interface ProductInvalidationRepository extends JpaRepository<ProductInvalidation, Long> {
+
+	/**
+	 * Finds the log entries written after the given entry, oldest first.
+	 *
+	 * @param id    the ID of the last entry already seen
+	 * @param limit the maximum number of entries to return
+	 * @return the following entries in ID order
+	 */
+	List<ProductInvalidation> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+	/**
+	 * Finds the ID of the newest log entry.
+	 *
+	 * @return the largest ID, or null if the log is empty
+	 */
+	@Query("SELECT MAX(i.id) FROM ProductInvalidation i")
+	Long findMaxId();
+
+	/**
+	 * Logs the creation of every product with an ID above the given one, in a single statement.
+	 * Used after batch inserts that bypass JPA.
+	 *
+	 * @param id        the largest product ID before the inserts
+	 * @param createdAt the time to record for the entries
+	 * @return the number of entries written
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "INSERT INTO product_invalidations (product_id, product_name, created_at) " +
+			"SELECT p.id, p.name, :createdAt FROM products p WHERE p.id > :id ORDER BY p.id", nativeQuery = true)
+	int logCreationsAfter(long id, Instant createdAt);
+
+	/**
+	 * Logs a change to each of the given products, in a single statement. Used after batch updates
+	 * that bypass JPA.
+	 *
+	 * @param ids       the IDs of the changed products
+	 * @param createdAt the time to record for the entries
+	 * @return the number of entries written
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "INSERT INTO product_invalidations (product_id, product_name, created_at) " +
+			"SELECT p.id, NULL, :createdAt FROM products p WHERE p.id IN (:ids) ORDER BY p.id", nativeQuery = true)
+	int logChangesOf(Collection<Long> ids, Instant createdAt);
+
+	/**
+	 * Deletes log entries written before the given time.
+	 *
+	 * @param cutoff entries older than this are deleted
+	 * @return the number of deleted entries
+	 */
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM ProductInvalidation i WHERE i.createdAt < :cutoff")
+	int deleteOlderThan(Instant cutoff);
+}
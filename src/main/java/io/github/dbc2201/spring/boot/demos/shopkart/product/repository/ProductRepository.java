@@ -1,12 +1,19 @@
 package io.github.dbc2201.spring.boot.demos.shopkart.product.repository;
 
 import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing {@link Product} entities in the database.
@@ -70,4 +77,208 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
 	@Query("SELECT p FROM Product p WHERE p.price BETWEEN ?1 AND ?2 ORDER BY p.price ASC")
 	List<Product> findProductsInPriceRange(double minPrice, double maxPrice);
-}
\ No newline at end of file
+
+	/**
+	 * Finds a page of products whose price lies in the given range.
+	 * <p>
+	 * Used with a sorted {@link Pageable} to push {@code ORDER BY ... LIMIT} down to the database,
+	 * for example to find the cheapest products without loading the whole range.
+	 * Unlike {@code findAll(Pageable)}, no count query is issued.
+	 *
+	 * @param minPrice the lowest price to include
+	 * @param maxPrice the highest price to include
+	 * @param pageable the page size and sort order
+	 * @return the requested page of products
+	 */
+	List<Product> findByPriceBetween(double minPrice, double maxPrice, Pageable pageable);
+
+	/**
+	 * Finds a page of products whose name contains the keyword, ignoring case, and whose price lies in the given range.
+	 * <p>
+	 * Used with a sorted {@link Pageable} to push {@code ORDER BY ... LIMIT} down to the database.
+	 *
+	 * @param keyword  the search term to look for in product names
+	 * @param minPrice the lowest price to include
+	 * @param maxPrice the highest price to include
+	 * @param pageable the page size and sort order
+	 * @return the requested page of products
+	 */
+	List<Product> findByNameContainingIgnoreCaseAndPriceBetween(
+			String keyword, double minPrice, double maxPrice, Pageable pageable);
+
+	/**
+	 * Streams the IDs of all products without loading the entities.
+	 * <p>
+	 * The returned stream holds an open database cursor, so it must be consumed inside a
+	 * transaction and closed afterwards (for example, with try-with-resources).
+	 *
+	 * @return a stream of all product IDs
+	 */
+	@Query("SELECT p.id FROM Product p")
+	Stream<Long> streamAllIds();
+
+	/**
+	 * Streams the names of all products without loading the entities.
+	 * <p>
+	 * The returned stream holds an open database cursor, so it must be consumed inside a
+	 * transaction and closed afterwards (for example, with try-with-resources).
+	 *
+	 * @return a stream of all product names
+	 */
+	@Query("SELECT p.name FROM Product p")
+	Stream<String> streamAllNames();
+
+	/**
+	 * Streams the IDs and names of all products without loading the entities.
+	 * <p>
+	 * The returned stream holds an open database cursor, so it must be consumed inside a
+	 * transaction and closed afterwards (for example, with try-with-resources).
+	 *
+	 * @return a stream of all product IDs and names
+	 */
+	@Query("SELECT new io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion(p.id, p.name) FROM Product p")
+	Stream<ProductSuggestion> streamAllSuggestions();
+
+	/**
+	 * Finds the smallest product ID in the database.
+	 *
+	 * @return the smallest ID, or null if there are no products
+	 */
+	@Query("SELECT MIN(p.id) FROM Product p")
+	Long findMinId();
+
+	/**
+	 * Finds the largest product ID in the database.
+	 *
+	 * @return the largest ID, or null if there are no products
+	 */
+	@Query("SELECT MAX(p.id) FROM Product p")
+	Long findMaxId();
+
+	/**
+	 * Groups the product prices into the buckets of {@code PriceHistogram}, whose bounds are repeated here.
+	 *
+	 * @return one row per non-empty bucket: the bucket index, the number of products, and the sum,
+	 * minimum and maximum of their prices
+	 */
+	@Query(value = "SELECT bucket, COUNT(*), SUM(price), MIN(price), MAX(price) FROM ("
+			+ "SELECT CASE WHEN price < 1 THEN 0 WHEN price < 2 THEN 1 WHEN price < 5 THEN 2 "
+			+ "WHEN price < 10 THEN 3 WHEN price < 20 THEN 4 WHEN price < 50 THEN 5 "
+			+ "WHEN price < 100 THEN 6 WHEN price < 200 THEN 7 WHEN price < 500 THEN 8 "
+			+ "WHEN price < 1000 THEN 9 WHEN price < 2000 THEN 10 WHEN price < 5000 THEN 11 "
+			+ "WHEN price < 10000 THEN 12 WHEN price < 20000 THEN 13 WHEN price < 50000 THEN 14 "
+			+ "WHEN price < 100000 THEN 15 WHEN price < 200000 THEN 16 WHEN price < 500000 THEN 17 "
+			+ "WHEN price < 1000000 THEN 18 ELSE 19 END AS bucket, price FROM products) bucketed "
+			+ "GROUP BY bucket", nativeQuery = true)
+	List<Object[]> aggregatePricesByBucket();
+
+	/**
+	 * Finds the lowest product prices.
+	 *
+	 * @param limit the number of prices to return
+	 * @return the prices, lowest first
+	 */
+	@Query("SELECT p.price FROM Product p ORDER BY p.price ASC")
+	List<Double> findLowestPrices(Limit limit);
+
+	/**
+	 * Finds the highest product prices.
+	 *
+	 * @param limit the number of prices to return
+	 * @return the prices, highest first
+	 */
+	@Query("SELECT p.price FROM Product p ORDER BY p.price DESC")
+	List<Double> findHighestPrices(Limit limit);
+
+	/**
+	 * Finds the lowest price among the products in an ID range whose price lies in the given range.
+	 * Used to check a bulk repricing before it changes anything.
+	 *
+	 * @param fromId   the first ID of the range (inclusive)
+	 * @param toId     the last ID of the range (inclusive)
+	 * @param minPrice the lowest price to select (inclusive)
+	 * @param maxPrice the highest price to select (inclusive)
+	 * @return the lowest selected price, or null if no product is selected
+	 */
+	@Query("SELECT MIN(p.price) FROM Product p "
+			+ "WHERE p.id BETWEEN :fromId AND :toId AND p.price BETWEEN :minPrice AND :maxPrice")
+	Double findLowestPriceInPriceRange(
+			@Param("fromId") long fromId,
+			@Param("toId") long toId,
+			@Param("minPrice") double minPrice,
+			@Param("maxPrice") double maxPrice
+	);
+
+	/**
+	 * Finds the lowest price among the products in an ID range whose lower-cased name matches a
+	 * LIKE pattern. Used to check a bulk repricing before it changes anything.
+	 *
+	 * @param fromId      the first ID of the range (inclusive)
+	 * @param toId        the last ID of the range (inclusive)
+	 * @param namePattern the lower-case LIKE pattern the name must match, with {@code !} as escape character
+	 * @return the lowest selected price, or null if no product is selected
+	 */
+	@Query("SELECT MIN(p.price) FROM Product p "
+			+ "WHERE p.id BETWEEN :fromId AND :toId AND LOWER(p.name) LIKE :namePattern ESCAPE '!'")
+	Double findLowestPriceByNamePattern(
+			@Param("fromId") long fromId,
+			@Param("toId") long toId,
+			@Param("namePattern") String namePattern
+	);
+
+	/**
+	 * Changes the price of every product in an ID window whose price lies in the given range.
+	 * <p>
+	 * The new price is {@code price * factor + delta}, rounded to cents and never below 0.01.
+	 * The update runs as a single set-based statement in its own transaction. Callers
+	 * split large tables into ID windows to keep each transaction small.
+	 *
+	 * @param fromId   the first ID of the window (inclusive)
+	 * @param toId     the last ID of the window (inclusive)
+	 * @param minPrice the lowest price to select (inclusive)
+	 * @param maxPrice the highest price to select (inclusive)
+	 * @param factor   the multiplier applied to the current price
+	 * @param delta    the amount added after multiplying
+	 * @return the number of products updated
+	 */
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE Product p SET p.price = CASE WHEN ROUND(p.price * :factor + :delta, 2) < 0.01 THEN 0.01 "
+			+ "ELSE ROUND(p.price * :factor + :delta, 2) END "
+			+ "WHERE p.id BETWEEN :fromId AND :toId AND p.price BETWEEN :minPrice AND :maxPrice")
+	int repriceInPriceRange(
+			@Param("fromId") long fromId,
+			@Param("toId") long toId,
+			@Param("minPrice") double minPrice,
+			@Param("maxPrice") double maxPrice,
+			@Param("factor") double factor,
+			@Param("delta") double delta
+	);
+
+	/**
+	 * Changes the price of every product in an ID window whose lower-cased name matches a LIKE pattern.
+	 * <p>
+	 * The new price is {@code price * factor + delta}, rounded to cents and never below 0.01.
+	 * The pattern uses {@code !} as escape character (a backslash would need escaping itself on MySQL),
+	 * so callers can match literal {@code %}, {@code _} and {@code !}.
+	 *
+	 * @param fromId      the first ID of the window (inclusive)
+	 * @param toId        the last ID of the window (inclusive)
+	 * @param namePattern the lower-case LIKE pattern the name must match
+	 * @param factor      the multiplier applied to the current price
+	 * @param delta       the amount added after multiplying
+	 * @return the number of products updated
+	 */
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE Product p SET p.price = CASE WHEN ROUND(p.price * :factor + :delta, 2) < 0.01 THEN 0.01 "
+			+ "ELSE ROUND(p.price * :factor + :delta, 2) END "
+			+ "WHERE p.id BETWEEN :fromId AND :toId AND LOWER(p.name) LIKE :namePattern ESCAPE '!'")
+	int repriceByNamePattern(
+			@Param("fromId") long fromId,
+			@Param("toId") long toId,
+			@Param("namePattern") String namePattern,
+			@Param("factor") double factor,
+			@Param("delta") double delta
+	);
+}
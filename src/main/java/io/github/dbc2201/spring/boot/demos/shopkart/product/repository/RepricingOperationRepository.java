@@ -0,0 +1,28 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.repository;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.RepricingOperation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Repository interface for the progress of {@link RepricingOperation}s.
+ */
+@Repository
+public interface RepricingOperationRepository extends JpaRepository<RepricingOperation, String> {
+
+	/**
+	 * Deletes operations whose last window committed before the given time.
+	 *
+	 * @param cutoff operations older than this are deleted
+	 * @return the number of deleted operations
+	 */
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM RepricingOperation o WHERE o.updatedAt < :cutoff")
+	int deleteOlderThan(Instant cutoff);
+}
@@ -0,0 +1,158 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * A circuit breaker that stops calls to a failing dependency for a while.
+ * <p>
+ * While closed, calls go through and consecutive failures are counted. Once the count reaches the
+ * threshold the breaker opens, and callers are expected not to make the call at all. After the open
+ * duration, exactly one caller is allowed a trial call: its success closes the breaker, its failure
+ * opens it for another open duration.
+ * <p>
+ * Checking a closed breaker and recording a success while nothing has failed are a volatile read
+ * each, so the breaker costs nothing measurable while the dependency is healthy.
+ */
+public final class CircuitBreaker {
+
+	private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	/**
+	 * The states of a circuit breaker.
+	 */
+	public enum State {
+		/**
+		 * Calls go through.
+		 */
+		CLOSED,
+		/**
+		 * Calls are not made until the open duration has passed.
+		 */
+		OPEN,
+		/**
+		 * A trial call is in progress, and no other calls are made until it has finished.
+		 */
+		HALF_OPEN
+	}
+
+	private final String name;
+	private final int failureThreshold;
+	private final long openNanos;
+
+	private volatile State state = State.CLOSED;
+
+	/**
+	 * The number of failures since the last success. Only written while holding the lock.
+	 */
+	private volatile int consecutiveFailures;
+
+	/**
+	 * When the breaker last opened, from {@link System#nanoTime()}. Only used while holding the lock.
+	 */
+	private long openedAt;
+
+	/**
+	 * Creates a closed circuit breaker.
+	 *
+	 * @param name             the name of the protected dependency, used in log messages
+	 * @param failureThreshold the number of consecutive failures that open the breaker
+	 * @param openDuration     how long the breaker stays open before a trial call is allowed
+	 */
+	public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+		if (failureThreshold < 1) {
+			throw new IllegalArgumentException("Failure threshold must be at least 1");
+		}
+		this.name = name;
+		this.failureThreshold = failureThreshold;
+		this.openNanos = openDuration.toNanos();
+	}
+
+	/**
+	 * Checks whether calls may be made.
+	 *
+	 * @return true if the breaker is closed
+	 */
+	public boolean isClosed() {
+		return state == State.CLOSED;
+	}
+
+	/**
+	 * Returns the current state.
+	 *
+	 * @return the state
+	 */
+	public State state() {
+		return state;
+	}
+
+	/**
+	 * Claims the trial call if the breaker is open and the open duration has passed. The caller
+	 * must report the outcome with {@link #recordSuccess()} or {@link #recordFailure()}.
+	 *
+	 * @return true if the caller should make the trial call, false if it should not make the call
+	 */
+	public synchronized boolean tryAcquireTrial() {
+		if (state != State.OPEN || System.nanoTime() - openedAt < openNanos) {
+			return false;
+		}
+		state = State.HALF_OPEN;
+		return true;
+	}
+
+	/**
+	 * Records a successful call, closing the breaker if it was not closed.
+	 */
+	public void recordSuccess() {
+		if (state == State.CLOSED && consecutiveFailures == 0) {
+			return;
+		}
+		synchronized (this) {
+			consecutiveFailures = 0;
+			if (state != State.CLOSED) {
+				state = State.CLOSED;
+				log.info("circuit_breaker.closed name={}", name);
+			}
+		}
+	}
+
+	/**
+	 * Records a failed or timed out call, opening the breaker once the threshold is reached or when
+	 * the trial call failed.
+	 */
+	public synchronized void recordFailure() {
+		switch (state) {
+			case CLOSED -> {
+				consecutiveFailures++;
+				if (consecutiveFailures >= failureThreshold) {
+					open();
+				}
+			}
+			case HALF_OPEN -> open();
+			case OPEN -> {
+				// calls made before the breaker opened are still finishing
+			}
+		}
+	}
+
+	/**
+	 * Returns how long until a trial call is allowed.
+	 *
+	 * @return the remaining open duration, or zero if the breaker is not open
+	 */
+	public synchronized Duration retryAfter() {
+		if (state == State.CLOSED) {
+			return Duration.ZERO;
+		}
+		return Duration.ofNanos(Math.max(0, openNanos - (System.nanoTime() - openedAt)));
+	}
+
+	private void open() {
+		state = State.OPEN;
+		openedAt = System.nanoTime();
+		log.warn("circuit_breaker.opened name={} consecutive_failures={} open_ms={}",
+				name, consecutiveFailures, Duration.ofNanos(openNanos).toMillis());
+	}
+}
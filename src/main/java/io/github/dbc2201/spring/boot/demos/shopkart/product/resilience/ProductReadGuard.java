@@ -0,0 +1,338 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.resilience;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.instrumentation.SqlInstrumentation;
+import io.github.dbc2201.spring.boot.demos.shopkart.instrumentation.SqlStatistics;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductNotFoundException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductServiceUnavailableException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Keeps product reads answering while the database is slow or down.
+ * <p>
+ * Every guarded read runs on a small pool of reader threads and is waited for at most the read
+ * timeout, so a stalled database costs a request the timeout instead of the JDBC socket timeout.
+ * The read also runs in a read-only transaction with the read timeout, rounded up to whole seconds,
+ * which sets it as the query timeout of every statement. A statement the database does not answer
+ * is therefore cancelled soon after the caller stopped waiting, and gives its reader thread and
+ * pooled connection back instead of holding them until the socket timeout.
+ * Timeouts and database errors are counted by a {@link CircuitBreaker}; once it opens, reads do not
+ * reach the database at all.
+ * <p>
+ * The result of every successful read is kept as the last known good copy under the read's key.
+ * A read that times out, fails or finds the breaker open is answered from that copy instead, and the
+ * request is marked so that {@link StaleResponseAdvice} adds {@code Warning} and {@code Age} headers.
+ * Without a copy, a {@link ProductServiceUnavailableException} is thrown, which becomes a 503 with a
+ * {@code Retry-After} header.
+ * <p>
+ * Copies are revalidated in the background: a read that times out still finishes on its reader
+ * thread and refreshes the copy, and once the breaker's open duration has passed, the next stale
+ * read starts a single trial read in the background whose success closes the breaker. Requests never
+ * wait for a revalidation.
+ * <p>
+ * Only reads go through the guard. Writes need the database anyway, and run on the caller's thread
+ * so that they join its transaction.
+ */
+@Component
+public class ProductReadGuard {
+
+	/**
+	 * The request attribute holding the fetch time of the oldest copy served to the request.
+	 */
+	public static final String STALE_SINCE_ATTRIBUTE = ProductReadGuard.class.getName() + ".staleSince";
+
+	private final boolean enabled;
+	private final long timeoutNanos;
+	private final int maxEntries;
+	private final CircuitBreaker breaker;
+	private final ThreadPoolExecutor readers;
+	private final TransactionTemplate readTransaction;
+
+	private final ConcurrentHashMap<String, Copy> lastKnownGood = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a new ProductReadGuard.
+	 *
+	 * @param enabled          whether reads are guarded at all; if not, they run directly on the caller's thread
+	 * @param readTimeout      how long a request waits for a read before falling back
+	 * @param readerThreads    the number of threads reads run on, which bounds the connections tied up by a stalled database
+	 * @param failureThreshold the number of consecutive failed or timed out reads that open the breaker
+	 * @param openDuration     how long reads are answered from copies before the database is tried again
+	 * @param maxEntries       the maximum number of last known good copies
+	 * @param transactionManager the manager of the transactions that bound each read's statements,
+	 *                           or null to run reads without a transaction or statement timeout
+	 */
+	public ProductReadGuard(
+			@Value("${shopkart.read-guard.enabled:true}") boolean enabled,
+			@Value("${shopkart.read-guard.read-timeout:PT2S}") Duration readTimeout,
+			@Value("${shopkart.read-guard.reader-threads:16}") int readerThreads,
+			@Value("${shopkart.read-guard.failure-threshold:5}") int failureThreshold,
+			@Value("${shopkart.read-guard.open-duration:PT10S}") Duration openDuration,
+			@Value("${shopkart.read-guard.max-entries:10000}") int maxEntries,
+			PlatformTransactionManager transactionManager
+	) {
+		this.enabled = enabled;
+		this.timeoutNanos = readTimeout.toNanos();
+		this.maxEntries = maxEntries;
+		this.breaker = new CircuitBreaker("product-reads", failureThreshold, openDuration);
+		if (enabled) {
+			AtomicInteger threadNumber = new AtomicInteger();
+			// a queue as long as the pool absorbs bursts; beyond that, the database is not keeping up
+			this.readers = new ThreadPoolExecutor(readerThreads, readerThreads, 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<>(readerThreads), runnable -> {
+				Thread thread = new Thread(runnable, "product-reader-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.readers.allowCoreThreadTimeOut(true);
+		} else {
+			this.readers = null;
+		}
+		if (enabled && transactionManager != null) {
+			TransactionTemplate template = new TransactionTemplate(transactionManager);
+			template.setReadOnly(true);
+			// JDBC query timeouts are whole seconds
+			template.setTimeout((int) Math.max(1, readTimeout.plusMillis(999).toSeconds()));
+			this.readTransaction = template;
+		} else {
+			this.readTransaction = null;
+		}
+	}
+
+	/**
+	 * Stops the reader threads.
+	 */
+	@PreDestroy
+	public void stop() {
+		if (readers != null) {
+			readers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Runs a read against the database, or answers it from the last known good copy.
+	 * <p>
+	 * {@link ProductNotFoundException} and other errors that are not database failures are passed
+	 * on to the caller and do not count against the breaker. A product that is not found also loses
+	 * its copy.
+	 *
+	 * @param key   identifies the read, so that its copy can be found again; equal reads must use equal keys
+	 * @param query the read, which must not depend on the caller's thread or transaction
+	 * @param <T>   the type of the result, which must not be modified once returned
+	 * @return the current result, or the last known good one if the database did not answer
+	 * @throws ProductServiceUnavailableException if the database did not answer and there is no copy
+	 */
+	public <T> T read(String key, Supplier<T> query) {
+		if (!enabled) {
+			return query.get();
+		}
+		if (!breaker.isClosed()) {
+			return fallback(key, query, null);
+		}
+		GuardedRead<T> read = new GuardedRead<>(key, query);
+		CompletableFuture<T> future;
+		try {
+			future = read.start();
+		} catch (RejectedExecutionException exception) {
+			// every reader is busy and the queue is full, so the database is not keeping up
+			breaker.recordFailure();
+			return fallback(key, query, exception);
+		}
+		try {
+			T value = future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+			read.publishStatistics();
+			breaker.recordSuccess();
+			return value;
+		} catch (TimeoutException exception) {
+			breaker.recordFailure();
+			return fallback(key, query, exception);
+		} catch (ExecutionException exception) {
+			read.publishStatistics();
+			Throwable cause = exception.getCause();
+			if (isDatabaseFailure(cause)) {
+				breaker.recordFailure();
+				return fallback(key, query, cause);
+			}
+			// the database answered, the answer is just not a result
+			breaker.recordSuccess();
+			throw rethrow(cause);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			return fallback(key, query, exception);
+		}
+	}
+
+	/**
+	 * Drops the last known good copy of a read, for example after the product it found was deleted.
+	 *
+	 * @param key the key of the read
+	 */
+	public void forget(String key) {
+		lastKnownGood.remove(key);
+	}
+
+	/**
+	 * Returns the state of the breaker around the database.
+	 *
+	 * @return the breaker's state
+	 */
+	public CircuitBreaker.State state() {
+		return breaker.state();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T fallback(String key, Supplier<T> query, Throwable cause) {
+		Copy copy = lastKnownGood.get(key);
+		revalidateInBackground(key, query);
+		if (copy == null) {
+			throw new ProductServiceUnavailableException("Products are temporarily unavailable, please retry later",
+					breaker.retryAfter(), cause);
+		}
+		markStale(copy.fetchedAt());
+		return (T) copy.value();
+	}
+
+	/**
+	 * Starts the breaker's trial read, if it is due. The trial reads the data the caller fell back
+	 * on, so its success also refreshes that copy.
+	 */
+	private <T> void revalidateInBackground(String key, Supplier<T> query) {
+		if (!breaker.tryAcquireTrial()) {
+			return;
+		}
+		CompletableFuture<T> future;
+		try {
+			future = new GuardedRead<>(key, query).start();
+		} catch (RejectedExecutionException exception) {
+			breaker.recordFailure();
+			return;
+		}
+		future.orTimeout(timeoutNanos, TimeUnit.NANOSECONDS).whenComplete((value, failure) -> {
+			if (failure != null && isDatabaseFailure(unwrap(failure))) {
+				breaker.recordFailure();
+			} else {
+				breaker.recordSuccess();
+			}
+		});
+	}
+
+	private void remember(String key, Copy copy) {
+		if (lastKnownGood.size() >= maxEntries && !lastKnownGood.containsKey(key)) {
+			Iterator<String> victims = lastKnownGood.keySet().iterator();
+			if (victims.hasNext()) {
+				lastKnownGood.remove(victims.next());
+			}
+		}
+		// a slow read finishing late must not replace a copy fetched after it started
+		lastKnownGood.merge(key, copy, (current, fetched) ->
+				fetched.fetchedAt().isBefore(current.fetchedAt()) ? current : fetched);
+	}
+
+	private static void markStale(Instant fetchedAt) {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes == null) {
+			return;
+		}
+		Object staleSince = attributes.getAttribute(STALE_SINCE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		if (!(staleSince instanceof Instant oldest) || fetchedAt.isBefore(oldest)) {
+			attributes.setAttribute(STALE_SINCE_ATTRIBUTE, fetchedAt, RequestAttributes.SCOPE_REQUEST);
+		}
+	}
+
+	private static boolean isDatabaseFailure(Throwable failure) {
+		return failure instanceof DataAccessException
+				|| failure instanceof TransactionException
+				|| failure instanceof TimeoutException
+				|| failure instanceof RejectedExecutionException;
+	}
+
+	private static Throwable unwrap(Throwable failure) {
+		return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+	}
+
+	private static RuntimeException rethrow(Throwable cause) {
+		if (cause instanceof RuntimeException runtimeException) {
+			throw runtimeException;
+		}
+		if (cause instanceof Error error) {
+			throw error;
+		}
+		throw new IllegalStateException(cause);
+	}
+
+	/**
+	 * One read on a reader thread. The SQL statistics it collects there are handed to the caller's
+	 * captures when the caller gets the result, so per-request statement counts still include it.
+	 */
+	private final class GuardedRead<T> implements Supplier<T> {
+
+		private final String key;
+		private final Supplier<T> query;
+		private final Instant startedAt = Instant.now();
+
+		/**
+		 * Written by the reader thread before the read completes, read by the caller after.
+		 */
+		private SqlStatistics statistics;
+
+		private GuardedRead(String key, Supplier<T> query) {
+			this.key = key;
+			this.query = query;
+		}
+
+		CompletableFuture<T> start() {
+			CompletableFuture<T> future = CompletableFuture.supplyAsync(this, readers);
+			// also runs for reads the caller stopped waiting for, which is what revalidates their copies
+			future.whenComplete((value, failure) -> {
+				if (failure == null) {
+					remember(key, new Copy(value, startedAt));
+				} else if (unwrap(failure) instanceof ProductNotFoundException) {
+					forget(key);
+				}
+			});
+			return future;
+		}
+
+		@Override
+		public T get() {
+			try (SqlInstrumentation.Capture capture = SqlInstrumentation.capture()) {
+				statistics = capture.statistics();
+				return readTransaction == null ? query.get() : readTransaction.execute(status -> query.get());
+			}
+		}
+
+		void publishStatistics() {
+			if (statistics != null) {
+				SqlInstrumentation.record(statistics);
+			}
+		}
+	}
+
+	/**
+	 * A last known good result and when the read that produced it started.
+	 */
+	private record Copy(Object value, Instant fetchedAt) {
+	}
+}
@@ -0,0 +1,49 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.resilience;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Marks responses that were answered from last known good copies by the {@link ProductReadGuard}.
+ * <p>
+ * Such responses get an {@code Age} header with the age of the oldest copy used, in seconds, and a
+ * {@code Warning: 110 - "Response is Stale"} header, so that clients and caches can tell them apart
+ * from fresh ones.
+ */
+@ControllerAdvice
+public class StaleResponseAdvice implements ResponseBodyAdvice<Object> {
+
+	/**
+	 * The warning sent with stale responses.
+	 */
+	public static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+		return true;
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+								  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+								  ServerHttpRequest request, ServerHttpResponse response) {
+		if (request instanceof ServletServerHttpRequest servletRequest
+				&& servletRequest.getServletRequest().getAttribute(ProductReadGuard.STALE_SINCE_ATTRIBUTE)
+				instanceof Instant fetchedAt) {
+			long ageSeconds = Math.max(0, Duration.between(fetchedAt, Instant.now()).toSeconds());
+			response.getHeaders().set(HttpHeaders.AGE, Long.toString(ageSeconds));
+			response.getHeaders().set(HttpHeaders.WARNING, STALE_WARNING);
+		}
+		return body;
+	}
+}
@@ -0,0 +1,202 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.search;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Type-ahead index of product names.
+ * <p>
+ * Wraps a {@link SuggestionTrie} with a read-write lock, so lookups run concurrently and only
+ * wait for the short incremental updates made when a product is created, renamed or deleted.
+ * Changes made inside a transaction are applied when it commits.
+ * <p>
+ * The index is rebuilt from the database at startup and periodically afterwards, which also picks
+ * up changes made by other nodes. A rebuild fills a new trie without holding the lock; changes
+ * recorded while it runs are queued and replayed onto the new trie before it replaces the old one,
+ * so they are not lost. Changes are queued from before the products are read, so a change the read
+ * does not see is still replayed, and rebuilds run one at a time.
+ */
+@Component
+public class ProductSuggestionIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductSuggestionIndex.class);
+
+	private final int topN;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final ReentrantLock rebuildLock = new ReentrantLock();
+	private SuggestionTrie trie;
+
+	/**
+	 * Changes recorded while a rebuild is running, or null if none is.
+	 */
+	private List<Consumer<SuggestionTrie>> pendingChanges;
+
+	/**
+	 * Creates a new, empty ProductSuggestionIndex that precomputes as many completions per prefix
+	 * as can be requested, {@link ProductSuggestion#MAX_LIMIT}.
+	 */
+	@Autowired
+	public ProductSuggestionIndex() {
+		this(ProductSuggestion.MAX_LIMIT);
+	}
+
+	/**
+	 * Creates a new, empty ProductSuggestionIndex.
+	 *
+	 * @param topN the number of completions precomputed for every prefix, and so the largest useful limit
+	 */
+	public ProductSuggestionIndex(int topN) {
+		this.topN = topN;
+		this.trie = new SuggestionTrie(topN);
+	}
+
+	/**
+	 * Returns the best completions for a prefix.
+	 *
+	 * @param prefix the prefix, matched ignoring case
+	 * @param limit  the maximum number of completions
+	 * @return the completions, shortest names first
+	 */
+	public List<ProductSuggestion> suggest(String prefix, int limit) {
+		lock.readLock().lock();
+		try {
+			return trie.suggest(prefix, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a product, or updates its name if it is already indexed.
+	 *
+	 * @param product the created or renamed product
+	 */
+	public void recordProduct(Product product) {
+		recordProduct(product.getId(), product.getName());
+	}
+
+	/**
+	 * Adds a product, or updates its name if it is already indexed.
+	 *
+	 * @param id   the product ID
+	 * @param name the current product name
+	 */
+	public void recordProduct(long id, String name) {
+		if (name != null) {
+			change(trie -> trie.put(id, name));
+		}
+	}
+
+	/**
+	 * Removes a deleted product.
+	 *
+	 * @param id the product ID
+	 */
+	public void removeProduct(long id) {
+		change(trie -> trie.remove(id));
+	}
+
+	/**
+	 * Replaces the contents of the index. Waits for a rebuild already running to finish first.
+	 *
+	 * @param products opens the stream of the IDs and names of all products; called once changes
+	 *                 are being queued, so the query must not be started before
+	 */
+	public void rebuild(Supplier<Stream<ProductSuggestion>> products) {
+		rebuildLock.lock();
+		try {
+			lock.writeLock().lock();
+			try {
+				pendingChanges = new ArrayList<>();
+			} finally {
+				lock.writeLock().unlock();
+			}
+			SuggestionTrie rebuilt = new SuggestionTrie(topN);
+			boolean complete = false;
+			try (Stream<ProductSuggestion> stream = products.get()) {
+				stream.forEach(product -> rebuilt.put(product.id(), product.name()));
+				complete = true;
+			} finally {
+				lock.writeLock().lock();
+				try {
+					if (complete) {
+						pendingChanges.forEach(change -> change.accept(rebuilt));
+						trie = rebuilt;
+					}
+					pendingChanges = null;
+				} finally {
+					lock.writeLock().unlock();
+				}
+			}
+		} finally {
+			rebuildLock.unlock();
+		}
+		Stats stats = stats();
+		log.info("Rebuilt product suggestion index: {} products, {} nodes, about {} KiB",
+				stats.products(), stats.nodes(), stats.estimatedBytes() / 1024);
+	}
+
+	/**
+	 * Returns the size of the index.
+	 *
+	 * @return the product and node counts and the estimated memory footprint
+	 */
+	public Stats stats() {
+		lock.readLock().lock();
+		try {
+			return new Stats(trie.size(), trie.nodeCount(), trie.estimatedBytes());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void change(Consumer<SuggestionTrie> change) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			// applied once the change is committed, so rolled back names are never suggested
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					apply(change);
+				}
+			});
+		} else {
+			apply(change);
+		}
+	}
+
+	private void apply(Consumer<SuggestionTrie> change) {
+		lock.writeLock().lock();
+		try {
+			change.accept(trie);
+			if (pendingChanges != null) {
+				pendingChanges.add(change);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * The size of the index.
+	 *
+	 * @param products       the number of indexed products
+	 * @param nodes          the number of trie nodes
+	 * @param estimatedBytes the estimated heap used by the index
+	 */
+	public record Stats(int products, int nodes, long estimatedBytes) {
+	}
+}
@@ -0,0 +1,377 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.search;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compressed trie (radix tree) over case-folded product names, for prefix completion.
+ * <p>
+ * Each edge is labelled with a run of characters rather than a single one, so chains of nodes with
+ * one child are collapsed and the node count stays close to the number of distinct names. Every node
+ * keeps the best {@code topN} completions of its subtree, sorted by {@link ProductSuggestion#RANKING}.
+ * A lookup walks at most one edge per character of the prefix and then returns that node's list,
+ * without visiting the subtree below it.
+ * <p>
+ * Adding a name offers it to the lists on its path. Removing one recomputes only the lists that
+ * contained it, each from its own terminals and its children's lists, bottom-up. Lists are never
+ * modified in place but replaced, so they can be shared between nodes.
+ * <p>
+ * Not thread-safe.
+ */
+final class SuggestionTrie {
+
+	private static final Entry[] NO_ENTRIES = new Entry[0];
+	private static final Node[] NO_CHILDREN = new Node[0];
+	private static final char[] NO_KEYS = new char[0];
+
+	private final int topN;
+	private final Node root = new Node("");
+	private final Map<Long, Entry> entriesById = new HashMap<>();
+	private int nodeCount = 1;
+
+	/**
+	 * Creates an empty trie.
+	 *
+	 * @param topN the number of completions precomputed for every node
+	 */
+	SuggestionTrie(int topN) {
+		if (topN < 1) {
+			throw new IllegalArgumentException("topN must be at least 1");
+		}
+		this.topN = topN;
+	}
+
+	/**
+	 * Adds a product, or moves it if it was added under another name.
+	 *
+	 * @param id   the product ID
+	 * @param name the product name
+	 */
+	void put(long id, String name) {
+		Entry existing = entriesById.get(id);
+		if (existing != null) {
+			if (existing.name.equals(name)) {
+				return;
+			}
+			delete(existing);
+		}
+		Entry entry = new Entry(id, name, ProductSuggestion.fold(name));
+		entriesById.put(id, entry);
+		insert(entry);
+	}
+
+	/**
+	 * Removes a product.
+	 *
+	 * @param id the product ID
+	 */
+	void remove(long id) {
+		Entry existing = entriesById.remove(id);
+		if (existing != null) {
+			delete(existing);
+		}
+	}
+
+	/**
+	 * Returns the best completions for a prefix.
+	 *
+	 * @param prefix the prefix, matched ignoring case
+	 * @param limit  the maximum number of completions, capped at the precomputed count
+	 * @return the completions in ranking order
+	 */
+	List<ProductSuggestion> suggest(String prefix, int limit) {
+		String key = ProductSuggestion.fold(prefix);
+		Node node = root;
+		int i = 0;
+		while (i < key.length()) {
+			int slot = node.find(key.charAt(i));
+			if (slot < 0) {
+				return List.of();
+			}
+			Node child = node.children[slot];
+			int remaining = key.length() - i;
+			if (remaining <= child.label.length()) {
+				// the prefix ends inside or at the end of this edge
+				return child.label.regionMatches(0, key, i, remaining) ? take(child.top, limit) : List.of();
+			}
+			if (!key.regionMatches(i, child.label, 0, child.label.length())) {
+				return List.of();
+			}
+			i += child.label.length();
+			node = child;
+		}
+		return take(node.top, limit);
+	}
+
+	/**
+	 * Returns the number of products in the trie.
+	 *
+	 * @return the product count
+	 */
+	int size() {
+		return entriesById.size();
+	}
+
+	/**
+	 * Returns the number of nodes in the trie, including the root.
+	 *
+	 * @return the node count
+	 */
+	int nodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Estimates the heap used by the trie, assuming a 64-bit JVM with compressed references and
+	 * compact strings. Lists shared by several nodes are counted once per node.
+	 *
+	 * @return the estimated size in bytes
+	 */
+	long estimatedBytes() {
+		long bytes = 0;
+		List<Node> pending = new ArrayList<>();
+		pending.add(root);
+		while (!pending.isEmpty()) {
+			Node node = pending.removeLast();
+			bytes += align(12 + 5 * 4) + stringBytes(node.label)
+					+ arrayBytes(node.keys.length, 2) + arrayBytes(node.children.length, 4)
+					+ arrayBytes(node.terminals.length, 4) + arrayBytes(node.top.length, 4);
+			pending.addAll(Arrays.asList(node.children));
+		}
+		for (Entry entry : entriesById.values()) {
+			// the entry, its name and folded key, plus the HashMap node and boxed key of the ID index
+			bytes += align(12 + 8 + 2 * 4) + stringBytes(entry.name)
+					+ (entry.key == entry.name ? 0 : stringBytes(entry.key))
+					+ align(12 + 4 * 4) + align(12 + 8) + 4;
+		}
+		return bytes;
+	}
+
+	private void insert(Entry entry) {
+		String key = entry.key;
+		List<Node> path = new ArrayList<>();
+		Node node = root;
+		path.add(node);
+		int i = 0;
+		while (i < key.length()) {
+			int slot = node.find(key.charAt(i));
+			if (slot < 0) {
+				Node leaf = new Node(key.substring(i));
+				node.addChild(leaf);
+				nodeCount++;
+				node = leaf;
+				path.add(node);
+				break;
+			}
+			Node child = node.children[slot];
+			int common = commonPrefixLength(child.label, key, i);
+			if (common < child.label.length()) {
+				child = split(node, slot, common);
+			}
+			node = child;
+			path.add(node);
+			i += common;
+		}
+		node.terminals = append(node.terminals, entry);
+		for (Node onPath : path) {
+			onPath.top = offer(onPath.top, entry);
+		}
+	}
+
+	private void delete(Entry entry) {
+		String key = entry.key;
+		List<Node> path = new ArrayList<>();
+		Node node = root;
+		path.add(node);
+		int i = 0;
+		while (i < key.length()) {
+			node = node.children[node.find(key.charAt(i))];
+			path.add(node);
+			i += node.label.length();
+		}
+		node.terminals = without(node.terminals, entry);
+		// an entry missing from a node's list cannot be in any list above it
+		for (int depth = path.size() - 1; depth >= 0 && contains(path.get(depth).top, entry); depth--) {
+			path.get(depth).top = recompute(path.get(depth));
+		}
+		compact(path);
+	}
+
+	/**
+	 * Removes the emptied terminal node and merges nodes left with a single child into it,
+	 * so the trie stays compressed after deletions.
+	 */
+	private void compact(List<Node> path) {
+		for (int depth = path.size() - 1; depth >= 1; depth--) {
+			Node node = path.get(depth);
+			Node parent = path.get(depth - 1);
+			if (node.terminals.length > 0) {
+				return;
+			}
+			if (node.children.length == 0) {
+				parent.removeChild(node);
+				nodeCount--;
+			} else if (node.children.length == 1) {
+				Node child = node.children[0];
+				node.label = node.label + child.label;
+				node.keys = child.keys;
+				node.children = child.children;
+				node.terminals = child.terminals;
+				node.top = child.top;
+				nodeCount--;
+				return;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private Node split(Node parent, int slot, int at) {
+		Node child = parent.children[slot];
+		Node middle = new Node(child.label.substring(0, at));
+		child.label = child.label.substring(at);
+		middle.keys = new char[]{child.label.charAt(0)};
+		middle.children = new Node[]{child};
+		middle.top = child.top;
+		parent.children[slot] = middle;
+		nodeCount++;
+		return middle;
+	}
+
+	private Entry[] recompute(Node node) {
+		List<Entry> candidates = new ArrayList<>(Arrays.asList(node.terminals));
+		for (Node child : node.children) {
+			candidates.addAll(Arrays.asList(child.top));
+		}
+		candidates.sort(Entry::compareTo);
+		return candidates.isEmpty() ? NO_ENTRIES
+				: candidates.subList(0, Math.min(topN, candidates.size())).toArray(NO_ENTRIES);
+	}
+
+	private Entry[] offer(Entry[] top, Entry entry) {
+		int position = 0;
+		while (position < top.length && top[position].compareTo(entry) < 0) {
+			position++;
+		}
+		if (position >= topN) {
+			return top;
+		}
+		Entry[] updated = new Entry[Math.min(topN, top.length + 1)];
+		System.arraycopy(top, 0, updated, 0, position);
+		updated[position] = entry;
+		System.arraycopy(top, position, updated, position + 1, updated.length - position - 1);
+		return updated;
+	}
+
+	private static List<ProductSuggestion> take(Entry[] top, int limit) {
+		int count = Math.min(limit, top.length);
+		List<ProductSuggestion> suggestions = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			suggestions.add(new ProductSuggestion(top[i].id, top[i].name));
+		}
+		return suggestions;
+	}
+
+	private static int commonPrefixLength(String label, String key, int offset) {
+		int max = Math.min(label.length(), key.length() - offset);
+		int length = 0;
+		while (length < max && label.charAt(length) == key.charAt(offset + length)) {
+			length++;
+		}
+		return length;
+	}
+
+	private static boolean contains(Entry[] entries, Entry entry) {
+		for (Entry candidate : entries) {
+			if (candidate == entry) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Entry[] append(Entry[] entries, Entry entry) {
+		Entry[] updated = Arrays.copyOf(entries, entries.length + 1);
+		updated[entries.length] = entry;
+		return updated;
+	}
+
+	private static Entry[] without(Entry[] entries, Entry entry) {
+		return entries.length == 1 && entries[0] == entry ? NO_ENTRIES
+				: Arrays.stream(entries).filter(candidate -> candidate != entry).toArray(Entry[]::new);
+	}
+
+	private static long stringBytes(String value) {
+		return align(12 + 4 + 4 + 4) + arrayBytes(value.length(), 1);
+	}
+
+	private static long arrayBytes(int length, int elementBytes) {
+		return length == 0 ? 0 : align(16 + (long) length * elementBytes);
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	/**
+	 * A product as stored in the trie.
+	 */
+	private record Entry(long id, String name, String key) implements Comparable<Entry> {
+		@Override
+		public int compareTo(Entry other) {
+			return ProductSuggestion.compare(key, id, other.key, other.id);
+		}
+	}
+
+	/**
+	 * A node and the edge leading to it. Children are kept sorted by the first character of their label.
+	 */
+	private static final class Node {
+		private String label;
+		private char[] keys = NO_KEYS;
+		private Node[] children = NO_CHILDREN;
+		private Entry[] terminals = NO_ENTRIES;
+		private Entry[] top = NO_ENTRIES;
+
+		private Node(String label) {
+			this.label = label;
+		}
+
+		private int find(char key) {
+			int slot = Arrays.binarySearch(keys, key);
+			return slot >= 0 ? slot : -1;
+		}
+
+		private void addChild(Node child) {
+			char key = child.label.charAt(0);
+			int insertAt = -Arrays.binarySearch(keys, key) - 1;
+			char[] newKeys = new char[keys.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, insertAt);
+			System.arraycopy(children, 0, newChildren, 0, insertAt);
+			newKeys[insertAt] = key;
+			newChildren[insertAt] = child;
+			System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+			System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+			keys = newKeys;
+			children = newChildren;
+		}
+
+		private void removeChild(Node child) {
+			int slot = find(child.label.charAt(0));
+			char[] newKeys = new char[keys.length - 1];
+			Node[] newChildren = new Node[children.length - 1];
+			System.arraycopy(keys, 0, newKeys, 0, slot);
+			System.arraycopy(children, 0, newChildren, 0, slot);
+			System.arraycopy(keys, slot + 1, newKeys, slot, keys.length - slot - 1);
+			System.arraycopy(children, slot + 1, newChildren, slot, children.length - slot - 1);
+			keys = newKeys;
+			children = newChildren;
+		}
+	}
+}
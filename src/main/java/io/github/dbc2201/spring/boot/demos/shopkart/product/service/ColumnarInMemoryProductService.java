@@ -0,0 +1,748 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.service;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductStats;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.PriceStatistics;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * In-memory product service that stores the catalog column by column instead of as objects.
+ * <p>
+ * Each product is a row index into parallel primitive arrays: a {@code long[]} of IDs, a
+ * {@code double[]} of prices and {@code int[]} codes into deduplicated string dictionaries for the
+ * name, description and image URL. Price filters, rankings and aggregates are plain loops over the
+ * price column, which the JIT can unroll and which read memory sequentially instead of following a
+ * reference per product. Name filters are evaluated once per distinct name and then applied to the
+ * rows by code. {@link Product} objects are only built for the rows that are returned.
+ * <p>
+ * Deleted rows are marked in a tombstone bit set and skipped by scans. When tombstones make up a
+ * quarter of the rows, the columns are compacted and the dictionaries rebuilt, dropping strings
+ * that are no longer used. Updates leave the replaced strings in their dictionary too, so the
+ * columns are also compacted once a dictionary holds more than twice as many strings as there are
+ * live rows, at which point at least half of its strings are unused.
+ * <p>
+ * Reads share a read lock and writes take the write lock. Returned products are copies, so
+ * changing them does not change the catalog. Products without an ID are given the next free one.
+ */
+@Service
+public class ColumnarInMemoryProductService implements ProductService {
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int MIN_ROWS_TO_COMPACT = 1024;
+	private static final int MIN_DICTIONARY_SIZE_TO_COMPACT = 1024;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final PriceStatistics statistics = new PriceStatistics();
+
+	private long[] ids = new long[INITIAL_CAPACITY];
+	private double[] prices = new double[INITIAL_CAPACITY];
+	private int[] nameCodes = new int[INITIAL_CAPACITY];
+	private int[] descriptionCodes = new int[INITIAL_CAPACITY];
+	private int[] imageUrlCodes = new int[INITIAL_CAPACITY];
+	private long[] tombstones = new long[INITIAL_CAPACITY / 64];
+
+	private StringColumn names = new StringColumn();
+	private StringColumn descriptions = new StringColumn();
+	private StringColumn imageUrls = new StringColumn();
+	private RowIndex rowsById = new RowIndex();
+
+	/**
+	 * The number of rows in use, including tombstones.
+	 */
+	private int rows;
+
+	/**
+	 * The number of tombstones among the rows in use.
+	 */
+	private int deleted;
+
+	private long lastId;
+
+	/**
+	 * Adds a product as a new row, assigning the next free ID if it has none.
+	 *
+	 * @param product The product to be created and stored
+	 * @return A copy of the stored product
+	 */
+	@Override
+	public Product createProduct(Product product) {
+		if (product == null) {
+			throw new ProductValidationException("Product must not be null");
+		}
+		return write(() -> {
+			long id = product.getId() == 0 ? lastId + 1 : product.getId();
+			if (rowsById.get(id) >= 0) {
+				throw new ProductValidationException("Product with id " + id + " already exists");
+			}
+			lastId = Math.max(lastId, id);
+			product.setId(id);
+			ensureCapacity(rows + 1);
+			int row = rows++;
+			ids[row] = id;
+			prices[row] = product.getPrice();
+			nameCodes[row] = names.encode(product.getName());
+			descriptionCodes[row] = descriptions.encode(product.getDescription());
+			imageUrlCodes[row] = imageUrls.encode(product.getImageUrl());
+			rowsById.put(id, row);
+			statistics.add(product.getPrice());
+			return toProduct(row);
+		});
+	}
+
+	/**
+	 * Retrieves all products, in the order they were created.
+	 *
+	 * @return List of copies of all products
+	 */
+	@Override
+	public List<Product> getAllProducts() {
+		return read(() -> {
+			List<Product> products = new ArrayList<>(rows - deleted);
+			for (int row = 0; row < rows; row++) {
+				if (!isDeleted(row)) {
+					products.add(toProduct(row));
+				}
+			}
+			return products;
+		});
+	}
+
+	/**
+	 * Finds a product by its ID.
+	 *
+	 * @param id The ID of the product to find
+	 * @return A copy of the found product or null if not found
+	 */
+	@Override
+	public Product getProductById(long id) {
+		return read(() -> {
+			int row = rowsById.get(id);
+			return row < 0 ? null : toProduct(row);
+		});
+	}
+
+	/**
+	 * Finds a product by its name. The name is looked up in the dictionary once, and the name
+	 * column is then scanned for its code. If several products share the name, the one with the
+	 * lowest ID is returned.
+	 *
+	 * @param name The name of the product to find
+	 * @return A copy of the found product or null if not found
+	 */
+	@Override
+	public Product getProductByName(String name) {
+		return read(() -> {
+			int code = names.codeOf(name);
+			if (code == StringColumn.ABSENT) {
+				return null;
+			}
+			int found = -1;
+			for (int row = 0; row < rows; row++) {
+				if (nameCodes[row] == code && !isDeleted(row) && (found < 0 || ids[row] < ids[found])) {
+					found = row;
+				}
+			}
+			return found < 0 ? null : toProduct(found);
+		});
+	}
+
+	/**
+	 * Updates the price of a product identified by its ID.
+	 *
+	 * @param id       The ID of the product to update
+	 * @param newPrice The new price to set
+	 * @return A copy of the updated product or null if not found
+	 */
+	@Override
+	public Product updateProductPrice(long id, double newPrice) {
+		return update(id, row -> {
+			statistics.change(prices[row], newPrice);
+			prices[row] = newPrice;
+		});
+	}
+
+	/**
+	 * Updates the name of a product identified by its ID.
+	 *
+	 * @param id      The ID of the product to update
+	 * @param newName The new name to set
+	 * @return A copy of the updated product or null if not found
+	 */
+	@Override
+	public Product updateProductName(long id, String newName) {
+		return update(id, row -> nameCodes[row] = names.encode(newName));
+	}
+
+	/**
+	 * Updates the description of a product identified by its ID.
+	 *
+	 * @param id             The ID of the product to update
+	 * @param newDescription The new description to set
+	 * @return A copy of the updated product or null if not found
+	 */
+	@Override
+	public Product updateProductDescription(long id, String newDescription) {
+		return update(id, row -> descriptionCodes[row] = descriptions.encode(newDescription));
+	}
+
+	/**
+	 * Updates the image URL of a product identified by its ID.
+	 *
+	 * @param id          The ID of the product to update
+	 * @param newImageUrl The new image URL to set
+	 * @return A copy of the updated product or null if not found
+	 */
+	@Override
+	public Product updateProductImageUrl(long id, String newImageUrl) {
+		return update(id, row -> imageUrlCodes[row] = imageUrls.encode(newImageUrl));
+	}
+
+	/**
+	 * Deletes a product by its ID, leaving a tombstone in its row.
+	 * Compacts the columns once a quarter of the rows are tombstones.
+	 *
+	 * @param id The ID of the product to delete
+	 * @return true if product was deleted, false if not found
+	 */
+	@Override
+	public boolean deleteProduct(long id) {
+		return write(() -> {
+			int row = rowsById.remove(id);
+			if (row < 0) {
+				return false;
+			}
+			tombstones[row >>> 6] |= 1L << row;
+			deleted++;
+			statistics.remove(prices[row]);
+			if (rows >= MIN_ROWS_TO_COMPACT && deleted * 4 >= rows) {
+				compact();
+			}
+			return true;
+		});
+	}
+
+	/**
+	 * Changes the price of every product matching the request's selector. A price range selector
+	 * is a single loop over the price column.
+	 *
+	 * @param request The selector and the adjustment to apply
+	 * @return The number of products whose price was changed
+	 */
+	@Override
+	public long repriceProducts(BulkRepricingRequest request) {
+		request.validate();
+		return write(() -> {
+			IntPredicate selected;
+			if (request.selectsByPriceRange()) {
+				double lower = request.minPrice();
+				double upper = request.maxPrice();
+				selected = row -> prices[row] >= lower && prices[row] <= upper;
+			} else {
+				boolean[] matchingNames = names.matching(request.keyword().toLowerCase(Locale.ROOT));
+				selected = row -> nameCodes[row] >= 0 && matchingNames[nameCodes[row]];
+			}
+			Double lowest = null;
+			for (int row = 0; row < rows; row++) {
+				if (!isDeleted(row) && selected.test(row) && (lowest == null || prices[row] < lowest)) {
+					lowest = prices[row];
+				}
+			}
+			request.validateLowestPrice(lowest);
+			long changed = 0;
+			for (int row = 0; row < rows; row++) {
+				if (!isDeleted(row) && selected.test(row)) {
+					double newPrice = request.apply(prices[row]);
+					statistics.change(prices[row], newPrice);
+					prices[row] = newPrice;
+					changed++;
+				}
+			}
+			return changed;
+		});
+	}
+
+	/**
+	 * Finds the cheapest products, optionally filtered by a name keyword and a price range.
+	 * The price column is scanned into a bounded heap of row numbers, and products are only
+	 * built for the rows that make the cut.
+	 *
+	 * @param keyword  The text the name must contain, ignoring case, or null for any name
+	 * @param minPrice The lowest price to include, or null
+	 * @param maxPrice The highest price to include, or null
+	 * @param limit    The maximum number of products to return
+	 * @return The matching products, cheapest first
+	 */
+	@Override
+	public List<Product> getCheapestProducts(String keyword, Double minPrice, Double maxPrice, int limit) {
+		return topByPrice(keyword, minPrice, maxPrice, limit, false);
+	}
+
+	/**
+	 * Finds the most expensive products, optionally filtered by a name keyword and a price range.
+	 * The price column is scanned into a bounded heap of row numbers, and products are only
+	 * built for the rows that make the cut.
+	 *
+	 * @param keyword  The text the name must contain, ignoring case, or null for any name
+	 * @param minPrice The lowest price to include, or null
+	 * @param maxPrice The highest price to include, or null
+	 * @param limit    The maximum number of products to return
+	 * @return The matching products, most expensive first
+	 */
+	@Override
+	public List<Product> getMostExpensiveProducts(String keyword, Double minPrice, Double maxPrice, int limit) {
+		return topByPrice(keyword, minPrice, maxPrice, limit, true);
+	}
+
+	/**
+	 * Suggests completions for a name prefix, shortest names first. The prefix is checked once
+	 * per distinct name.
+	 *
+	 * @param prefix The start of the name, matched ignoring case
+	 * @param limit  The maximum number of suggestions to return
+	 * @return The matching products' IDs and names
+	 */
+	@Override
+	public List<ProductSuggestion> suggestProducts(String prefix, int limit) {
+		ProductSuggestion.validateQuery(prefix, limit);
+		String key = ProductSuggestion.fold(prefix);
+		return read(() -> {
+			boolean[] matchingNames = names.matchingPrefix(key);
+			PriorityQueue<ProductSuggestion> heap = new PriorityQueue<>(limit + 1, ProductSuggestion.RANKING.reversed());
+			for (int row = 0; row < rows; row++) {
+				int code = nameCodes[row];
+				if (code >= 0 && matchingNames[code] && !isDeleted(row)) {
+					heap.add(new ProductSuggestion(ids[row], names.decode(code)));
+					if (heap.size() > limit) {
+						heap.poll();
+					}
+				}
+			}
+			List<ProductSuggestion> suggestions = new ArrayList<>(heap);
+			suggestions.sort(ProductSuggestion.RANKING);
+			return suggestions;
+		});
+	}
+
+	/**
+	 * Returns the price statistics, kept up to date on every change instead of scanning the price column.
+	 *
+	 * @return The count, price range, mean price and price histogram
+	 */
+	@Override
+	public ProductStats getProductStats() {
+		return statistics.summary().toProductStats();
+	}
+
+	/**
+	 * Summarizes the prices of the products in a price range in one pass over the price column.
+	 *
+	 * @param minPrice the lowest price to include, or null
+	 * @param maxPrice the highest price to include, or null
+	 * @return the count, sum, minimum and maximum of the matching prices
+	 */
+	public PriceSummary summarizePrices(Double minPrice, Double maxPrice) {
+		double lower = PriceRanking.lowerBound(minPrice);
+		double upper = PriceRanking.upperBound(maxPrice);
+		return read(() -> {
+			long count = 0;
+			double sum = 0;
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			double[] column = prices;
+			for (int row = 0; row < rows; row++) {
+				double price = column[row];
+				if (price >= lower && price <= upper && !isDeleted(row)) {
+					count++;
+					sum += price;
+					min = Math.min(min, price);
+					max = Math.max(max, price);
+				}
+			}
+			return new PriceSummary(count, sum, count == 0 ? 0 : min, count == 0 ? 0 : max);
+		});
+	}
+
+	/**
+	 * Estimates the heap used per product by this store and by the object layout of
+	 * {@link InMemoryProductService} holding the same products. Assumes a 64-bit JVM with
+	 * compressed references and compact strings.
+	 *
+	 * @return the memory estimate
+	 */
+	public MemoryFootprint memoryFootprint() {
+		return read(() -> {
+			long columnBytes = arrayBytes(ids.length, 8) + arrayBytes(prices.length, 8)
+					+ 3 * arrayBytes(nameCodes.length, 4) + arrayBytes(tombstones.length, 8)
+					+ rowsById.bytes();
+			long columnar = columnBytes + names.bytes() + descriptions.bytes() + imageUrls.bytes();
+			long objects = 0;
+			for (int row = 0; row < rows; row++) {
+				if (!isDeleted(row)) {
+					// Product object plus its ArrayList slot, and three strings that are not shared
+					objects += align(12 + 8 + 8 + 3 * 4) + 4 + stringBytes(names.decode(nameCodes[row]))
+							+ stringBytes(descriptions.decode(descriptionCodes[row]))
+							+ stringBytes(imageUrls.decode(imageUrlCodes[row]));
+				}
+			}
+			return new MemoryFootprint(rows - deleted, columnar, objects);
+		});
+	}
+
+	private List<Product> topByPrice(String keyword, Double minPrice, Double maxPrice, int limit,
+									 boolean mostExpensiveFirst) {
+		PriceRanking.validate(minPrice, maxPrice, limit);
+		double lower = PriceRanking.lowerBound(minPrice);
+		double upper = PriceRanking.upperBound(maxPrice);
+		return read(() -> {
+			boolean[] matchingNames = keyword == null || keyword.isEmpty()
+					? null : names.matching(keyword.toLowerCase(Locale.ROOT));
+			Comparator<Integer> byPrice = Comparator.comparingDouble(row -> prices[row]);
+			Comparator<Integer> order = (mostExpensiveFirst ? byPrice.reversed() : byPrice)
+					.thenComparingLong(row -> ids[row]);
+			PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, order.reversed());
+			double[] column = prices;
+			for (int row = 0; row < rows; row++) {
+				double price = column[row];
+				if (price < lower || price > upper || isDeleted(row)) {
+					continue;
+				}
+				if (matchingNames != null && (nameCodes[row] < 0 || !matchingNames[nameCodes[row]])) {
+					continue;
+				}
+				if (heap.size() < limit) {
+					heap.add(row);
+				} else if (order.compare(row, heap.peek()) < 0) {
+					heap.poll();
+					heap.add(row);
+				}
+			}
+			List<Integer> ranked = new ArrayList<>(heap);
+			ranked.sort(order);
+			return ranked.stream().map(this::toProduct).toList();
+		});
+	}
+
+	private Product update(long id, IntConsumer change) {
+		return write(() -> {
+			int row = rowsById.get(id);
+			if (row < 0) {
+				return null;
+			}
+			change.accept(row);
+			Product updated = toProduct(row);
+			// a live row has at most one string per dictionary, so the excess are replaced strings
+			int live = rows - deleted;
+			if (Math.max(names.size(), Math.max(descriptions.size(), imageUrls.size()))
+					>= Math.max(MIN_DICTIONARY_SIZE_TO_COMPACT, 2 * live + 1)) {
+				compact();
+			}
+			return updated;
+		});
+	}
+
+	private Product toProduct(int row) {
+		Product product = new Product(names.decode(nameCodes[row]), descriptions.decode(descriptionCodes[row]),
+				prices[row], imageUrls.decode(imageUrlCodes[row]));
+		product.setId(ids[row]);
+		return product;
+	}
+
+	private boolean isDeleted(int row) {
+		return (tombstones[row >>> 6] & (1L << row)) != 0;
+	}
+
+	private void ensureCapacity(int required) {
+		if (required <= ids.length) {
+			return;
+		}
+		int capacity = Math.max(required, ids.length + (ids.length >> 1));
+		ids = Arrays.copyOf(ids, capacity);
+		prices = Arrays.copyOf(prices, capacity);
+		nameCodes = Arrays.copyOf(nameCodes, capacity);
+		descriptionCodes = Arrays.copyOf(descriptionCodes, capacity);
+		imageUrlCodes = Arrays.copyOf(imageUrlCodes, capacity);
+		tombstones = Arrays.copyOf(tombstones, (capacity + 63) >>> 6);
+	}
+
+	/**
+	 * Moves the live rows to the front of new columns and rebuilds the dictionaries and the ID index.
+	 */
+	private void compact() {
+		int live = rows - deleted;
+		int capacity = Math.max(INITIAL_CAPACITY, live + (live >> 1));
+		long[] newIds = new long[capacity];
+		double[] newPrices = new double[capacity];
+		int[] newNameCodes = new int[capacity];
+		int[] newDescriptionCodes = new int[capacity];
+		int[] newImageUrlCodes = new int[capacity];
+		StringColumn newNames = new StringColumn();
+		StringColumn newDescriptions = new StringColumn();
+		StringColumn newImageUrls = new StringColumn();
+		RowIndex newRowsById = new RowIndex();
+		int target = 0;
+		for (int row = 0; row < rows; row++) {
+			if (isDeleted(row)) {
+				continue;
+			}
+			newIds[target] = ids[row];
+			newPrices[target] = prices[row];
+			newNameCodes[target] = newNames.encode(names.decode(nameCodes[row]));
+			newDescriptionCodes[target] = newDescriptions.encode(descriptions.decode(descriptionCodes[row]));
+			newImageUrlCodes[target] = newImageUrls.encode(imageUrls.decode(imageUrlCodes[row]));
+			newRowsById.put(ids[row], target);
+			target++;
+		}
+		ids = newIds;
+		prices = newPrices;
+		nameCodes = newNameCodes;
+		descriptionCodes = newDescriptionCodes;
+		imageUrlCodes = newImageUrlCodes;
+		tombstones = new long[(capacity + 63) >>> 6];
+		names = newNames;
+		descriptions = newDescriptions;
+		imageUrls = newImageUrls;
+		rowsById = newRowsById;
+		rows = live;
+		deleted = 0;
+	}
+
+	private <R> R read(Supplier<R> task) {
+		return locked(lock.readLock(), task);
+	}
+
+	private <R> R write(Supplier<R> task) {
+		return locked(lock.writeLock(), task);
+	}
+
+	private static <R> R locked(Lock held, Supplier<R> task) {
+		held.lock();
+		try {
+			return task.get();
+		} finally {
+			held.unlock();
+		}
+	}
+
+	private static long stringBytes(String value) {
+		return value == null ? 0 : align(12 + 3 * 4) + arrayBytes(value.length(), 1);
+	}
+
+	private static long arrayBytes(int length, int elementBytes) {
+		return align(16 + (long) length * elementBytes);
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	/**
+	 * The count, sum and bounds of a set of prices.
+	 *
+	 * @param count the number of prices
+	 * @param sum   the sum of the prices
+	 * @param min   the lowest price, or 0 if there are none
+	 * @param max   the highest price, or 0 if there are none
+	 */
+	public record PriceSummary(long count, double sum, double min, double max) {
+	}
+
+	/**
+	 * Estimated heap use of the catalog in both layouts.
+	 *
+	 * @param products           the number of live products
+	 * @param columnarBytes      the bytes used by this store, including unused capacity
+	 * @param objectLayoutBytes  the bytes the same products would use as objects in a list
+	 */
+	public record MemoryFootprint(long products, long columnarBytes, long objectLayoutBytes) {
+
+		/**
+		 * @return the columnar bytes per live product
+		 */
+		public double columnarBytesPerProduct() {
+			return products == 0 ? 0 : (double) columnarBytes / products;
+		}
+
+		/**
+		 * @return the object layout bytes per live product
+		 */
+		public double objectLayoutBytesPerProduct() {
+			return products == 0 ? 0 : (double) objectLayoutBytes / products;
+		}
+	}
+
+	/**
+	 * A dictionary-encoded string column: every distinct string is stored once and rows refer to it
+	 * by code. Null is encoded as {@link #NULL}.
+	 */
+	private static final class StringColumn {
+		static final int NULL = -1;
+		static final int ABSENT = -2;
+
+		private String[] values = new String[64];
+		private final Map<String, Integer> codes = new HashMap<>();
+		private int size;
+
+		int encode(String value) {
+			if (value == null) {
+				return NULL;
+			}
+			Integer code = codes.get(value);
+			if (code != null) {
+				return code;
+			}
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size] = value;
+			codes.put(value, size);
+			return size++;
+		}
+
+		String decode(int code) {
+			return code == NULL ? null : values[code];
+		}
+
+		int size() {
+			return size;
+		}
+
+		int codeOf(String value) {
+			if (value == null) {
+				return NULL;
+			}
+			Integer code = codes.get(value);
+			return code == null ? ABSENT : code;
+		}
+
+		/**
+		 * Returns, for every code, whether its string contains the folded keyword ignoring case.
+		 */
+		boolean[] matching(String foldedKeyword) {
+			boolean[] matches = new boolean[size];
+			for (int code = 0; code < size; code++) {
+				matches[code] = values[code].toLowerCase(Locale.ROOT).contains(foldedKeyword);
+			}
+			return matches;
+		}
+
+		/**
+		 * Returns, for every code, whether its string starts with the folded prefix ignoring case.
+		 */
+		boolean[] matchingPrefix(String foldedPrefix) {
+			boolean[] matches = new boolean[size];
+			for (int code = 0; code < size; code++) {
+				matches[code] = ProductSuggestion.fold(values[code]).startsWith(foldedPrefix);
+			}
+			return matches;
+		}
+
+		long bytes() {
+			long bytes = arrayBytes(values.length, 4);
+			for (int code = 0; code < size; code++) {
+				// the string, plus its HashMap node, table slot and boxed code
+				bytes += stringBytes(values[code]) + align(12 + 4 * 4) + 4 + (code < 128 ? 0 : align(12 + 4));
+			}
+			return bytes;
+		}
+	}
+
+	/**
+	 * Open-addressing hash map from product ID to row, with linear probing and no boxing.
+	 * ID 0 is never stored, so it marks free slots.
+	 */
+	private static final class RowIndex {
+		private long[] keys = new long[INITIAL_CAPACITY * 2];
+		private int[] values = new int[INITIAL_CAPACITY * 2];
+		private int size;
+
+		int get(long id) {
+			int mask = keys.length - 1;
+			for (int slot = slot(id, mask); keys[slot] != 0; slot = (slot + 1) & mask) {
+				if (keys[slot] == id) {
+					return values[slot];
+				}
+			}
+			return -1;
+		}
+
+		void put(long id, int row) {
+			if ((size + 1) * 2 > keys.length) {
+				resize();
+			}
+			int mask = keys.length - 1;
+			int slot = slot(id, mask);
+			while (keys[slot] != 0 && keys[slot] != id) {
+				slot = (slot + 1) & mask;
+			}
+			if (keys[slot] == 0) {
+				size++;
+			}
+			keys[slot] = id;
+			values[slot] = row;
+		}
+
+		int remove(long id) {
+			int mask = keys.length - 1;
+			int slot = slot(id, mask);
+			while (keys[slot] != id) {
+				if (keys[slot] == 0) {
+					return -1;
+				}
+				slot = (slot + 1) & mask;
+			}
+			int row = values[slot];
+			size--;
+			// shift later entries of the probe sequence back, so lookups never stop at a gap
+			int gap = slot;
+			for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+				int home = slot(keys[next], mask);
+				if (((next - home) & mask) >= ((next - gap) & mask)) {
+					keys[gap] = keys[next];
+					values[gap] = values[next];
+					gap = next;
+				}
+			}
+			keys[gap] = 0;
+			return row;
+		}
+
+		long bytes() {
+			return arrayBytes(keys.length, 8) + arrayBytes(values.length, 4);
+		}
+
+		private void resize() {
+			long[] oldKeys = keys;
+			int[] oldValues = values;
+			keys = new long[oldKeys.length * 2];
+			values = new int[oldValues.length * 2];
+			size = 0;
+			for (int slot = 0; slot < oldKeys.length; slot++) {
+				if (oldKeys[slot] != 0) {
+					put(oldKeys[slot], oldValues[slot]);
+				}
+			}
+		}
+
+		private static int slot(long id, int mask) {
+			long hash = id * 0x9E3779B97F4A7C15L;
+			return (int) (hash ^ (hash >>> 32)) & mask;
+		}
+	}
+}
@@ -1,13 +1,35 @@
 package io.github.dbc2201.spring.boot.demos.shopkart.product.service;
 
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductLookupFilter;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductNearCache;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductNotFoundException;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.history.PriceHistoryLog;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductStats;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.RepricingOperation;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.RepricingOperationRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.resilience.ProductReadGuard;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.search.ProductSuggestionIndex;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.ProductStatistics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * A service that uses a database to store and manage product information.
@@ -16,19 +38,116 @@ import java.util.List;
  */
 @Service
 public class DatabaseProductService implements ProductService {
+	/**
+	 * The number of IDs covered by each set-based update of a bulk repricing.
+	 */
+	private static final long REPRICING_CHUNK_SIZE = 10_000;
+
+	/**
+	 * How long the progress of a repricing operation is kept for retries.
+	 */
+	private static final Duration REPRICING_OPERATION_RETENTION = Duration.ofDays(7);
+
 	/**
 	 * The repository used to access the database.
 	 */
 	private final ProductRepository productRepository;
 
+	/**
+	 * The negative lookup cache used to reject lookups for products that do not exist.
+	 */
+	private final ProductLookupFilter lookupFilter;
+
+	/**
+	 * The per-node cache of products by ID, and the log that keeps it coherent across nodes.
+	 */
+	private final ProductNearCache nearCache;
+
+	/**
+	 * The prefix index used for name suggestions.
+	 */
+	private final ProductSuggestionIndex suggestionIndex;
+
+	/**
+	 * The price statistics, kept up to date with every change made through this service.
+	 */
+	private final ProductStatistics productStatistics;
+
+	/**
+	 * The asynchronous log of price changes.
+	 */
+	private final PriceHistoryLog priceHistory;
+
+	/**
+	 * The timeouts, circuit breaker and last known good copies around database reads.
+	 */
+	private final ProductReadGuard readGuard;
+
+	/**
+	 * The progress of bulk repricing operations, kept so they can be retried.
+	 */
+	private final RepricingOperationRepository operationRepository;
+
+	/**
+	 * The template used to run each repricing window in its own transaction.
+	 */
+	private final TransactionTemplate transactionTemplate;
+
 	/**
 	 * Creates a new DatabaseProductService with the provided repository.
 	 *
-	 * @param productRepository the repository to use for database operations
+	 * @param productRepository   the repository to use for database operations
+	 * @param lookupFilter        the negative lookup cache for product IDs and names
+	 * @param nearCache           the near cache for products by ID
+	 * @param suggestionIndex     the prefix index of product names
+	 * @param productStatistics   the incrementally maintained price statistics
+	 * @param priceHistory        the log every price change is recorded in
+	 * @param readGuard           the guard that reads run through
+	 * @param operationRepository the repository of repricing progress
+	 * @param transactionTemplate the template used for bulk updates
 	 */
 	@Autowired
-	public DatabaseProductService(ProductRepository productRepository) {
+	public DatabaseProductService(ProductRepository productRepository, ProductLookupFilter lookupFilter,
+								  ProductNearCache nearCache, ProductSuggestionIndex suggestionIndex,
+								  ProductStatistics productStatistics, PriceHistoryLog priceHistory,
+								  ProductReadGuard readGuard, RepricingOperationRepository operationRepository,
+								  TransactionTemplate transactionTemplate) {
 		this.productRepository = productRepository;
+		this.lookupFilter = lookupFilter;
+		this.nearCache = nearCache;
+		this.suggestionIndex = suggestionIndex;
+		this.productStatistics = productStatistics;
+		this.priceHistory = priceHistory;
+		this.readGuard = readGuard;
+		this.operationRepository = operationRepository;
+		this.transactionTemplate = transactionTemplate;
+	}
+
+	/**
+	 * Rebuilds the negative lookup cache from the IDs and names currently in the database.
+	 * Runs once the application has started.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Transactional(readOnly = true)
+	public void rebuildLookupFilter() {
+		lookupFilter.rebuild(
+				productRepository.count(),
+				productRepository::streamAllIds,
+				productRepository::streamAllNames
+		);
+	}
+
+	/**
+	 * Rebuilds the name suggestion index from the database. Runs once the application has started,
+	 * and then periodically to pick up names changed by other nodes.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${shopkart.suggest.rebuild-interval-ms:600000}",
+			fixedDelayString = "${shopkart.suggest.rebuild-interval-ms:600000}")
+	@Transactional(readOnly = true)
+	public void rebuildSuggestionIndex() {
+		// the query is opened by the index, once it records concurrent changes
+		suggestionIndex.rebuild(productRepository::streamAllSuggestions);
 	}
 
 	/**
@@ -38,21 +157,29 @@ public class DatabaseProductService implements ProductService {
 	 * @return the saved product with any database-generated values (like ID)
 	 */
 	@Override
+	@Transactional
 	public Product createProduct(Product product) {
 		if (product == null) {
 			throw new ProductValidationException("Product must not be null");
 		}
-		return productRepository.save(product);
+		Product savedProduct = productRepository.save(product);
+		lookupFilter.recordProduct(savedProduct);
+		nearCache.recordCreation(savedProduct);
+		suggestionIndex.recordProduct(savedProduct);
+		productStatistics.recordCreation(savedProduct.getPrice());
+		priceHistory.recordCreation(savedProduct.getId(), savedProduct.getPrice());
+		return savedProduct;
 	}
 
 	/**
-	 * Gets a list of all products from the database.
+	 * Gets a list of all products from the database, or the last known list if the database does
+	 * not answer.
 	 *
 	 * @return a list containing all products
 	 */
 	@Override
 	public List<Product> getAllProducts() {
-		List<Product> productList = productRepository.findAll();
+		List<Product> productList = readGuard.read("all", productRepository::findAll);
 		if (productList.isEmpty()) {
 			throw new ProductNotFoundException("No products found");
 		}
@@ -60,27 +187,43 @@ public class DatabaseProductService implements ProductService {
 	}
 
 	/**
-	 * Finds a product in the database using its ID.
+	 * Finds a product using its ID, from the near cache if possible and from the database otherwise.
+	 * If the database does not answer, the last known copy of the product is returned.
 	 *
 	 * @param id the ID of the product to find
 	 * @return the found product, or null if no product exists with the given ID
 	 */
 	@Override
 	public Product getProductById(long id) {
-		return productRepository.findById(id)
-				.orElseThrow(() -> new ProductNotFoundException("Product with id " + id + " not found"));
+		Product cached = nearCache.get(id);
+		if (cached != null) {
+			return cached;
+		}
+		long generation = nearCache.generation();
+		// rejected here too, so that most misses do not wait for a reader thread
+		rejectUnknownId(id);
+		return readGuard.read("id:" + id, () -> {
+			Product product = findExistingProduct(id);
+			// cached here, so that copies served while the database is down are never cached
+			nearCache.put(product, generation);
+			return product;
+		});
 	}
 
 	/**
-	 * Finds a product in the database using its name.
+	 * Finds a product in the database using its name, or its last known copy if the database does
+	 * not answer.
 	 *
 	 * @param name the name of the product to find
 	 * @return the found product, or null if no product exists with the given name
 	 */
 	@Override
 	public Product getProductByName(String name) {
-		return productRepository.findByName(name)
-				.orElseThrow(() -> new ProductNotFoundException("Product with name " + name + " not found"));
+		if (!lookupFilter.mightContainName(name)) {
+			throw ProductNotFoundException.withoutStackTrace("Product with name " + name + " not found");
+		}
+		return readGuard.read("name:" + name, () -> productRepository.findByName(name)
+				.orElseThrow(() -> ProductNotFoundException.withoutStackTrace("Product with name " + name + " not found")));
 	}
 
 	/**
@@ -91,13 +234,17 @@ public class DatabaseProductService implements ProductService {
 	 * @return the updated product, or null if no product exists with the given ID
 	 */
 	@Override
+	@Transactional
 	public Product updateProductPrice(long id, double newPrice) {
 		if (newPrice <= 0) {
 			throw new ProductValidationException("Price must be greater than 0");
 		}
-		Product product = getProductById(id);
+		Product product = findExistingProduct(id);
 		if (product != null) {
+			productStatistics.recordPriceChange(product.getPrice(), newPrice);
+			priceHistory.recordPriceChange(id, product.getPrice(), newPrice);
 			product.setPrice(newPrice);
+			nearCache.recordInvalidation(id);
 			return productRepository.save(product);
 		}
 		return null;
@@ -111,13 +258,20 @@ public class DatabaseProductService implements ProductService {
 	 * @return the updated product, or null if no product exists with the given ID
 	 */
 	@Override
+	@Transactional
 	public Product updateProductName(long id, String newName) {
 		if (newName == null || newName.isEmpty()) {
 			throw new ProductValidationException("Name must not be null or empty");
 		}
-		Product product = getProductById(id);
+		Product product = findExistingProduct(id);
 		if (product != null) {
+			// the product is no longer found by its old name, so neither is its last known good copy
+			readGuard.forget("name:" + product.getName());
 			product.setName(newName);
+			nearCache.recordRename(id, newName);
+			suggestionIndex.recordProduct(id, newName);
+			// recorded before saving, so the new name is never rejected once it is visible
+			lookupFilter.recordName(newName);
 			return productRepository.save(product);
 		}
 		return null;
@@ -131,13 +285,15 @@ public class DatabaseProductService implements ProductService {
 	 * @return the updated product, or null if no product exists with the given ID
 	 */
 	@Override
+	@Transactional
 	public Product updateProductDescription(long id, String newDescription) {
 		if (newDescription == null || newDescription.isEmpty()) {
 			throw new ProductValidationException("Description must not be null or empty");
 		}
-		Product product = getProductById(id);
+		Product product = findExistingProduct(id);
 		if (product != null) {
 			product.setDescription(newDescription);
+			nearCache.recordInvalidation(id);
 			return productRepository.save(product);
 		}
 		return null;
@@ -151,13 +307,15 @@ public class DatabaseProductService implements ProductService {
 	 * @return the updated product, or null if no product exists with the given ID
 	 */
 	@Override
+	@Transactional
 	public Product updateProductImageUrl(long id, String newImageUrl) {
 		if (newImageUrl == null || newImageUrl.isEmpty()) {
 			throw new ProductValidationException("Image url must not be null or empty");
 		}
-		Product product = getProductById(id);
+		Product product = findExistingProduct(id);
 		if (product != null) {
 			product.setImageUrl(newImageUrl);
+			nearCache.recordInvalidation(id);
 			return productRepository.save(product);
 		}
 		return null;
@@ -170,12 +328,190 @@ public class DatabaseProductService implements ProductService {
 	 * @return true if a product was deleted, false if no product exists with the given ID
 	 */
 	@Override
+	@Transactional
 	public boolean deleteProduct(long id) {
-		if (productRepository.existsById(id)) {
-			productRepository.deleteById(id);
-			return true;
-		} else {
-			throw new ProductNotFoundException("Product with id " + id + " not found");
+		Product product = productRepository.findById(id)
+				.orElseThrow(() -> new ProductNotFoundException("Product with id " + id + " not found"));
+		productRepository.delete(product);
+		nearCache.recordInvalidation(id);
+		readGuard.forget("id:" + id);
+		readGuard.forget("name:" + product.getName());
+		suggestionIndex.removeProduct(id);
+		productStatistics.recordDeletion(product.getPrice());
+		return true;
+	}
+
+	/**
+	 * Changes the price of every product matching the request's selector.
+	 * <p>
+	 * Runs as set-based UPDATE statements over consecutive ID windows, each in its own transaction,
+	 * so no entities are loaded and huge ranges do not hold locks on the whole table at once.
+	 * Because every product belongs to exactly one window, no product is adjusted twice even when
+	 * its new price still falls inside the selected range. Each window also logs an invalidation of
+	 * the whole near cache in its transaction, as the changed IDs are not known. For the same reason,
+	 * the price statistics are reconciled with the database afterwards. The price history of each
+	 * window is written by a set-based statement in the same transaction.
+	 * <p>
+	 * The lowest selected price is checked first, so a request that would bring any price to 0 or
+	 * below changes nothing. A failure part way through leaves the committed windows repriced. With
+	 * an operation ID, every window records its progress in its transaction, and retrying the same
+	 * request continues after the last committed window.
+	 *
+	 * @param request the selector and the adjustment to apply
+	 * @return the number of products whose price was changed, by every attempt of the operation
+	 */
+	@Override
+	public long repriceProducts(BulkRepricingRequest request) {
+		if (request == null) {
+			throw new ProductValidationException("Repricing request must not be null");
+		}
+		request.validate();
+		String operationId = request.operationId();
+		RepricingOperation operation = operationId == null ? null : operationRepository.findById(operationId).orElse(null);
+		long affected = operation == null ? 0 : operation.getAffected();
+		Long minId = productRepository.findMinId();
+		Long maxId = operation == null ? productRepository.findMaxId() : Long.valueOf(operation.getEndId());
+		if (minId == null || maxId == null) {
+			return affected;
+		}
+		long firstId = operation == null ? minId : Math.max(minId, operation.getLastId() + 1);
+		long endId = maxId;
+		String namePattern = request.selectsByPriceRange() ? null : "%" + escapeLike(request.keyword()) + "%";
+		if (firstId > endId) {
+			return affected;
+		}
+		request.validateLowestPrice(request.selectsByPriceRange()
+				? productRepository.findLowestPriceInPriceRange(firstId, endId, request.minPrice(), request.maxPrice())
+				: productRepository.findLowestPriceByNamePattern(firstId, endId, namePattern));
+		long changedNow = 0;
+		for (long fromId = firstId; fromId <= endId; fromId += REPRICING_CHUNK_SIZE) {
+			long toId = Math.min(endId, fromId + REPRICING_CHUNK_SIZE - 1);
+			long windowStart = fromId;
+			Integer changed = transactionTemplate.execute(status -> {
+				RepricingOperation progress = operationId == null ? null : operationRepository.findById(operationId)
+						.orElseGet(() -> new RepricingOperation(operationId, endId));
+				if (progress != null && progress.getLastId() >= windowStart) {
+					// committed by a concurrent attempt of the same operation
+					return 0;
+				}
+				// logged first, as the selector may no longer match once prices have changed
+				priceHistory.recordRepricing(request, windowStart, toId, namePattern);
+				int count = request.selectsByPriceRange()
+						? productRepository.repriceInPriceRange(windowStart, toId, request.minPrice(),
+								request.maxPrice(), request.factor(), request.delta())
+						: productRepository.repriceByNamePattern(windowStart, toId, namePattern,
+								request.factor(), request.delta());
+				if (count > 0) {
+					nearCache.recordInvalidationOfAll();
+				}
+				if (progress != null) {
+					// the version check fails one of two attempts committing the same window
+					progress.recordWindow(toId, count, Instant.now());
+					operationRepository.save(progress);
+				}
+				return count;
+			});
+			changedNow += changed == null ? 0 : changed;
+		}
+		if (changedNow > 0) {
+			productStatistics.reconcile();
+		}
+		return affected + changedNow;
+	}
+
+	/**
+	 * Deletes the progress of repricing operations that have not changed for a week. Retrying an
+	 * operation after that applies it again.
+	 */
+	@Scheduled(fixedDelayString = "${shopkart.repricing.purge-interval-ms:3600000}")
+	public void purgeRepricingOperations() {
+		operationRepository.deleteOlderThan(Instant.now().minus(REPRICING_OPERATION_RETENTION));
+	}
+
+	/**
+	 * Finds the cheapest products, optionally filtered by a name keyword and a price range.
+	 * The ordering and limit are pushed down to the database as {@code ORDER BY price, id LIMIT k}.
+	 *
+	 * @param keyword  the text the name must contain, ignoring case, or null for any name
+	 * @param minPrice the lowest price to include, or null
+	 * @param maxPrice the highest price to include, or null
+	 * @param limit    the maximum number of products to return
+	 * @return the matching products, cheapest first
+	 */
+	@Override
+	public List<Product> getCheapestProducts(String keyword, Double minPrice, Double maxPrice, int limit) {
+		return topByPrice(keyword, minPrice, maxPrice, limit, Sort.Direction.ASC);
+	}
+
+	/**
+	 * Finds the most expensive products, optionally filtered by a name keyword and a price range.
+	 * The ordering and limit are pushed down to the database as {@code ORDER BY price DESC, id LIMIT k}.
+	 *
+	 * @param keyword  the text the name must contain, ignoring case, or null for any name
+	 * @param minPrice the lowest price to include, or null
+	 * @param maxPrice the highest price to include, or null
+	 * @param limit    the maximum number of products to return
+	 * @return the matching products, most expensive first
+	 */
+	@Override
+	public List<Product> getMostExpensiveProducts(String keyword, Double minPrice, Double maxPrice, int limit) {
+		return topByPrice(keyword, minPrice, maxPrice, limit, Sort.Direction.DESC);
+	}
+
+	/**
+	 * Suggests completions for a name prefix from the in-memory prefix index, shortest names first.
+	 * No database query is made.
+	 *
+	 * @param prefix the start of the name, matched ignoring case
+	 * @param limit  the maximum number of suggestions, at most {@link ProductSuggestion#MAX_LIMIT}
+	 * @return the matching products' IDs and names
+	 */
+	@Override
+	public List<ProductSuggestion> suggestProducts(String prefix, int limit) {
+		ProductSuggestion.validateQuery(prefix, limit);
+		return suggestionIndex.suggest(prefix, limit);
+	}
+
+	/**
+	 * Returns the price statistics of the catalog from memory. No database query is made.
+	 *
+	 * @return the count, price range, mean price and price histogram
+	 */
+	@Override
+	public ProductStats getProductStats() {
+		return productStatistics.stats();
+	}
+
+	private Product findExistingProduct(long id) {
+		rejectUnknownId(id);
+		return productRepository.findById(id)
+				.orElseThrow(() -> ProductNotFoundException.withoutStackTrace("Product with id " + id + " not found"));
+	}
+
+	private void rejectUnknownId(long id) {
+		if (!lookupFilter.mightContainId(id)) {
+			throw ProductNotFoundException.withoutStackTrace("Product with id " + id + " not found");
 		}
 	}
-}
\ No newline at end of file
+
+	private List<Product> topByPrice(String keyword, Double minPrice, Double maxPrice, int limit,
+									 Sort.Direction direction) {
+		PriceRanking.validate(minPrice, maxPrice, limit);
+		Pageable firstK = PageRequest.of(0, limit, Sort.by(direction, "price").and(Sort.by("id")));
+		double lower = PriceRanking.lowerBound(minPrice);
+		double upper = PriceRanking.upperBound(maxPrice);
+		if (keyword == null || keyword.isEmpty()) {
+			return readGuard.read(direction + ":" + limit + ":" + lower + ":" + upper,
+					() -> productRepository.findByPriceBetween(lower, upper, firstK));
+		}
+		return readGuard.read(direction + ":" + limit + ":" + lower + ":" + upper + ":" + keyword,
+				() -> productRepository.findByNameContainingIgnoreCaseAndPriceBetween(keyword, lower, upper, firstK));
+	}
+
+	private static String escapeLike(String keyword) {
+		return keyword.toLowerCase(Locale.ROOT)
+				.replace("!", "!!")
+				.replace("%", "!%")
+				.replace("_", "!_");
+	}
+}
@@ -1,10 +1,16 @@
 package io.github.dbc2201.spring.boot.demos.shopkart.product.service;
 
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductStats;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.PriceStatistics;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.OptionalDouble;
 
 /**
  * Service class for managing Product operations.
@@ -16,6 +22,9 @@ public class InMemoryProductService implements ProductService {
 	// Using an ArrayList to store products (in-memory storage)
 	private final List<Product> products;
 
+	// Price statistics, updated on every create, price change and delete
+	private final PriceStatistics statistics = new PriceStatistics();
+
 	public InMemoryProductService() {
 		this.products = new ArrayList<>();
 	}
@@ -29,6 +38,7 @@ public class InMemoryProductService implements ProductService {
 	@Override
 	public Product createProduct(Product product) {
 		products.add(product);
+		statistics.add(product.getPrice());
 		return product;
 	}
 
@@ -85,6 +95,7 @@ public class InMemoryProductService implements ProductService {
 	public Product updateProductPrice(long id, double newPrice) {
 		Product product = getProductById(id);
 		if (product != null) {
+			statistics.change(product.getPrice(), newPrice);
 			product.setPrice(newPrice);
 		}
 		return product;
@@ -149,8 +160,98 @@ public class InMemoryProductService implements ProductService {
 		Product product = getProductById(id);
 		if (product != null) {
 			products.remove(product);
+			statistics.remove(product.getPrice());
 			return true;
 		}
 		return false;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Changes the price of every product matching the request's selector.
+	 * The list is split across the common fork-join pool, so large catalogs are repriced in parallel.
+	 *
+	 * @param request The selector and the adjustment to apply
+	 * @return The number of products whose price was changed
+	 */
+	@Override
+	public long repriceProducts(BulkRepricingRequest request) {
+		request.validate();
+		OptionalDouble lowest = products.stream().filter(request::matches).mapToDouble(Product::getPrice).min();
+		request.validateLowestPrice(lowest.isPresent() ? lowest.getAsDouble() : null);
+		return products.parallelStream()
+				.filter(request::matches)
+				.mapToLong(product -> {
+					double newPrice = request.apply(product.getPrice());
+					statistics.change(product.getPrice(), newPrice);
+					product.setPrice(newPrice);
+					return 1;
+				})
+				.sum();
+	}
+
+	/**
+	 * Finds the cheapest products, optionally filtered by a name keyword and a price range.
+	 * The list is scanned in parallel, keeping only a bounded heap of the best {@code limit} products.
+	 *
+	 * @param keyword  The text the name must contain, ignoring case, or null for any name
+	 * @param minPrice The lowest price to include, or null
+	 * @param maxPrice The highest price to include, or null
+	 * @param limit    The maximum number of products to return
+	 * @return The matching products, cheapest first
+	 */
+	@Override
+	public List<Product> getCheapestProducts(String keyword, Double minPrice, Double maxPrice, int limit) {
+		return topByPrice(keyword, minPrice, maxPrice, limit, PriceRanking.CHEAPEST_FIRST);
+	}
+
+	/**
+	 * Finds the most expensive products, optionally filtered by a name keyword and a price range.
+	 * The list is scanned in parallel, keeping only a bounded heap of the best {@code limit} products.
+	 *
+	 * @param keyword  The text the name must contain, ignoring case, or null for any name
+	 * @param minPrice The lowest price to include, or null
+	 * @param maxPrice The highest price to include, or null
+	 * @param limit    The maximum number of products to return
+	 * @return The matching products, most expensive first
+	 */
+	@Override
+	public List<Product> getMostExpensiveProducts(String keyword, Double minPrice, Double maxPrice, int limit) {
+		return topByPrice(keyword, minPrice, maxPrice, limit, PriceRanking.MOST_EXPENSIVE_FIRST);
+	}
+
+	/**
+	 * Suggests completions for a name prefix, shortest names first.
+	 * The list is scanned in parallel, keeping only a bounded heap of the best {@code limit} names.
+	 *
+	 * @param prefix The start of the name, matched ignoring case
+	 * @param limit  The maximum number of suggestions to return
+	 * @return The matching products' IDs and names
+	 */
+	@Override
+	public List<ProductSuggestion> suggestProducts(String prefix, int limit) {
+		ProductSuggestion.validateQuery(prefix, limit);
+		String key = ProductSuggestion.fold(prefix);
+		return products.parallelStream()
+				.filter(product -> product.getName() != null && ProductSuggestion.fold(product.getName()).startsWith(key))
+				.map(product -> new ProductSuggestion(product.getId(), product.getName()))
+				.collect(TopKCollector.topK(limit, ProductSuggestion.RANKING));
+	}
+
+	/**
+	 * Returns the price statistics, kept up to date on every change instead of scanning the list.
+	 *
+	 * @return The count, price range, mean price and price histogram
+	 */
+	@Override
+	public ProductStats getProductStats() {
+		return statistics.summary().toProductStats();
+	}
+
+	private List<Product> topByPrice(String keyword, Double minPrice, Double maxPrice, int limit,
+									 Comparator<Product> order) {
+		PriceRanking.validate(minPrice, maxPrice, limit);
+		return products.parallelStream()
+				.filter(PriceRanking.filter(keyword, minPrice, maxPrice))
+				.collect(TopKCollector.topK(limit, order));
+	}
+}
@@ -0,0 +1,400 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.service;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductStats;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.PriceStatistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * In-memory product service for large catalogs with many concurrent users.
+ * <p>
+ * Products are sharded by a hash of their ID across a fixed number of partitions, each guarded
+ * by its own read-write lock. Operations on a single product lock only the partition holding it,
+ * so writers to different partitions never wait for each other. Scans (name lookups, price
+ * rankings, repricing and listing) fan out across the partitions on the common fork-join pool,
+ * each partition is scanned under its own lock, and the partial results are merged.
+ * <p>
+ * Unlike {@link InMemoryProductService}, products without an ID are given the next free one, as
+ * the ID decides the partition. Stored products are only touched under their partition's lock, so
+ * products are stored as copies and every product returned is a copy taken under the lock, as in
+ * {@link SnapshotProductService}.
+ */
+@Service
+public class PartitionedInMemoryProductService implements ProductService {
+
+	private static final Comparator<Product> BY_ID = Comparator.comparingLong(Product::getId);
+
+	private final Partition[] partitions;
+	private final int mask;
+	private final AtomicLong lastId = new AtomicLong();
+
+	/**
+	 * Creates a new PartitionedInMemoryProductService.
+	 *
+	 * @param partitions the number of partitions, rounded up to a power of two,
+	 *                   or 0 for the number of available processors
+	 */
+	public PartitionedInMemoryProductService(@Value("${shopkart.in-memory.partitions:0}") int partitions) {
+		if (partitions < 0) {
+			throw new IllegalArgumentException("Partition count must not be negative");
+		}
+		int requested = partitions == 0 ? Runtime.getRuntime().availableProcessors() : partitions;
+		int count = requested <= 1 ? 1 : Integer.highestOneBit(requested - 1) << 1;
+		this.partitions = new Partition[count];
+		Arrays.setAll(this.partitions, i -> new Partition());
+		this.mask = count - 1;
+	}
+
+	/**
+	 * Returns the number of partitions.
+	 *
+	 * @return the partition count
+	 */
+	public int partitionCount() {
+		return partitions.length;
+	}
+
+	/**
+	 * Adds a product to the partition for its ID, assigning the next free ID if it has none.
+	 *
+	 * @param product The product to be created and stored
+	 * @return A copy of the stored product
+	 */
+	@Override
+	public Product createProduct(Product product) {
+		if (product == null) {
+			throw new ProductValidationException("Product must not be null");
+		}
+		if (product.getId() == 0) {
+			product.setId(lastId.incrementAndGet());
+		} else {
+			lastId.accumulateAndGet(product.getId(), Math::max);
+		}
+		long id = product.getId();
+		Product stored = copyOf(product);
+		Partition partition = partitionOf(id);
+		Product existing = partition.write(products -> {
+			Product previous = products.putIfAbsent(id, stored);
+			if (previous == null) {
+				partition.statistics.add(stored.getPrice());
+			}
+			return previous;
+		});
+		if (existing != null) {
+			throw new ProductValidationException("Product with id " + id + " already exists");
+		}
+		return copyOf(stored);
+	}
+
+	/**
+	 * Retrieves all products, ordered by ID.
+	 *
+	 * @return Copies of all products
+	 */
+	@Override
+	public List<Product> getAllProducts() {
+		return fanOut(products -> products.values().stream()
+				.map(PartitionedInMemoryProductService::copyOf)
+				.toList())
+				.flatMap(List::stream)
+				.sorted(BY_ID)
+				.toList();
+	}
+
+	/**
+	 * Finds a product by its ID, locking only its partition.
+	 *
+	 * @param id The ID of the product to find
+	 * @return A copy of the found product or null if not found
+	 */
+	@Override
+	public Product getProductById(long id) {
+		return partitionOf(id).read(products -> copyOrNull(products.get(id)));
+	}
+
+	/**
+	 * Finds a product by its name, scanning all partitions in parallel.
+	 * If several products share the name, the one with the lowest ID is returned.
+	 *
+	 * @param name The name of the product to find
+	 * @return A copy of the found product or null if not found
+	 */
+	@Override
+	public Product getProductByName(String name) {
+		return fanOut(products -> products.values().stream()
+				.filter(product -> Objects.equals(product.getName(), name))
+				.min(BY_ID)
+				.map(PartitionedInMemoryProductService::copyOf)
+				.orElse(null))
+				.filter(Objects::nonNull)
+				.min(BY_ID)
+				.orElse(null);
+	}
+
+	/**
+	 * Updates the price of a product identified by its ID.
+	 *
+	 * @param id       The ID of the product to update
+	 * @param newPrice The new price to set
+	 * @return A copy of the updated product or null if not found
+	 */
+	@Override
+	public Product updateProductPrice(long id, double newPrice) {
+		return update(id, product -> product.setPrice(newPrice));
+	}
+
+	/**
+	 * Updates the name of a product identified by its ID.
+	 *
+	 * @param id      The ID of the product to update
+	 * @param newName The new name to set
+	 * @return A copy of the updated product or null if not found
+	 */
+	@Override
+	public Product updateProductName(long id, String newName) {
+		return update(id, product -> product.setName(newName));
+	}
+
+	/**
+	 * Updates the description of a product identified by its ID.
+	 *
+	 * @param id             The ID of the product to update
+	 * @param newDescription The new description to set
+	 * @return A copy of the updated product or null if not found
+	 */
+	@Override
+	public Product updateProductDescription(long id, String newDescription) {
+		return update(id, product -> product.setDescription(newDescription));
+	}
+
+	/**
+	 * Updates the image URL of a product identified by its ID.
+	 *
+	 * @param id          The ID of the product to update
+	 * @param newImageUrl The new image URL to set
+	 * @return A copy of the updated product or null if not found
+	 */
+	@Override
+	public Product updateProductImageUrl(long id, String newImageUrl) {
+		return update(id, product -> product.setImageUrl(newImageUrl));
+	}
+
+	/**
+	 * Deletes a product by its ID.
+	 *
+	 * @param id The ID of the product to delete
+	 * @return true if product was deleted, false if not found
+	 */
+	@Override
+	public boolean deleteProduct(long id) {
+		Partition partition = partitionOf(id);
+		return partition.write(products -> {
+			Product removed = products.remove(id);
+			if (removed != null) {
+				partition.statistics.remove(removed.getPrice());
+			}
+			return removed;
+		}) != null;
+	}
+
+	/**
+	 * Changes the price of every product matching the request's selector.
+	 * Each partition is repriced in parallel under its own write lock.
+	 *
+	 * @param request The selector and the adjustment to apply
+	 * @return The number of products whose price was changed
+	 */
+	@Override
+	public long repriceProducts(BulkRepricingRequest request) {
+		request.validate();
+		// checked before any partition changes; a price changed concurrently is kept at the lowest price
+		request.validateLowestPrice(fanOut(products -> products.values().stream()
+				.filter(request::matches)
+				.map(Product::getPrice)
+				.min(Double::compare)
+				.orElse(null))
+				.filter(Objects::nonNull)
+				.min(Double::compare)
+				.orElse(null));
+		return Arrays.stream(partitions).parallel()
+				.mapToLong(partition -> partition.write(products -> {
+					long changed = 0;
+					for (Product product : products.values()) {
+						if (request.matches(product)) {
+							double newPrice = request.apply(product.getPrice());
+							partition.statistics.change(product.getPrice(), newPrice);
+							product.setPrice(newPrice);
+							changed++;
+						}
+					}
+					return changed;
+				}))
+				.sum();
+	}
+
+	/**
+	 * Finds the cheapest products, optionally filtered by a name keyword and a price range.
+	 * Every partition keeps its own bounded heap of the best {@code limit} products, and the
+	 * partial results are merged into the final ranking.
+	 *
+	 * @param keyword  The text the name must contain, ignoring case, or null for any name
+	 * @param minPrice The lowest price to include, or null
+	 * @param maxPrice The highest price to include, or null
+	 * @param limit    The maximum number of products to return
+	 * @return The matching products, cheapest first
+	 */
+	@Override
+	public List<Product> getCheapestProducts(String keyword, Double minPrice, Double maxPrice, int limit) {
+		return topByPrice(keyword, minPrice, maxPrice, limit, PriceRanking.CHEAPEST_FIRST);
+	}
+
+	/**
+	 * Finds the most expensive products, optionally filtered by a name keyword and a price range.
+	 * Every partition keeps its own bounded heap of the best {@code limit} products, and the
+	 * partial results are merged into the final ranking.
+	 *
+	 * @param keyword  The text the name must contain, ignoring case, or null for any name
+	 * @param minPrice The lowest price to include, or null
+	 * @param maxPrice The highest price to include, or null
+	 * @param limit    The maximum number of products to return
+	 * @return The matching products, most expensive first
+	 */
+	@Override
+	public List<Product> getMostExpensiveProducts(String keyword, Double minPrice, Double maxPrice, int limit) {
+		return topByPrice(keyword, minPrice, maxPrice, limit, PriceRanking.MOST_EXPENSIVE_FIRST);
+	}
+
+	/**
+	 * Suggests completions for a name prefix, shortest names first.
+	 * The partitions are scanned in parallel, keeping only a bounded heap of the best {@code limit} names.
+	 *
+	 * @param prefix The start of the name, matched ignoring case
+	 * @param limit  The maximum number of suggestions to return
+	 * @return The matching products' IDs and names
+	 */
+	@Override
+	public List<ProductSuggestion> suggestProducts(String prefix, int limit) {
+		ProductSuggestion.validateQuery(prefix, limit);
+		String key = ProductSuggestion.fold(prefix);
+		return fanOut(products -> products.values().stream()
+				.filter(product -> product.getName() != null && ProductSuggestion.fold(product.getName()).startsWith(key))
+				.map(product -> new ProductSuggestion(product.getId(), product.getName()))
+				.collect(TopKCollector.topK(limit, ProductSuggestion.RANKING)))
+				.flatMap(List::stream)
+				.collect(TopKCollector.topK(limit, ProductSuggestion.RANKING));
+	}
+
+	private List<Product> topByPrice(String keyword, Double minPrice, Double maxPrice, int limit,
+									 Comparator<Product> order) {
+		PriceRanking.validate(minPrice, maxPrice, limit);
+		Predicate<Product> filter = PriceRanking.filter(keyword, minPrice, maxPrice);
+		return fanOut(products -> products.values().stream()
+				.filter(filter)
+				.collect(TopKCollector.topK(limit, order))
+				.stream()
+				.map(PartitionedInMemoryProductService::copyOf)
+				.toList())
+				.flatMap(List::stream)
+				.collect(TopKCollector.topK(limit, order));
+	}
+
+	/**
+	 * Returns the price statistics. Every partition keeps its own, updated under its write lock,
+	 * and they are merged on read.
+	 *
+	 * @return The count, price range, mean price and price histogram
+	 */
+	@Override
+	public ProductStats getProductStats() {
+		return PriceStatistics.Summary.mergeAll(Arrays.stream(partitions)
+						.map(partition -> partition.statistics.summary())
+						.toList())
+				.toProductStats();
+	}
+
+	private Product update(long id, Consumer<Product> change) {
+		Partition partition = partitionOf(id);
+		return partition.write(products -> {
+			Product product = products.get(id);
+			if (product != null) {
+				double oldPrice = product.getPrice();
+				change.accept(product);
+				if (Double.compare(oldPrice, product.getPrice()) != 0) {
+					partition.statistics.change(oldPrice, product.getPrice());
+				}
+			}
+			return copyOrNull(product);
+		});
+	}
+
+	/**
+	 * Runs a read-only task on every partition in parallel.
+	 */
+	private <R> Stream<R> fanOut(Function<Map<Long, Product>, R> task) {
+		// collected first, so each partition's lock is released before the results are merged
+		return Arrays.stream(partitions).parallel()
+				.map(partition -> partition.read(task))
+				.toList()
+				.stream();
+	}
+
+	private static Product copyOrNull(Product product) {
+		return product == null ? null : copyOf(product);
+	}
+
+	private static Product copyOf(Product product) {
+		Product copy = new Product(product.getName(), product.getDescription(), product.getPrice(), product.getImageUrl());
+		copy.setId(product.getId());
+		return copy;
+	}
+
+	private Partition partitionOf(long id) {
+		// Fibonacci hashing spreads sequential IDs evenly across the partitions
+		int hash = Long.hashCode(id * 0x9E3779B97F4A7C15L);
+		return partitions[(hash ^ (hash >>> 16)) & mask];
+	}
+
+	/**
+	 * One shard of the catalog, its price statistics and the lock guarding it.
+	 */
+	private static final class Partition {
+		private final Map<Long, Product> products = new HashMap<>();
+		private final PriceStatistics statistics = new PriceStatistics();
+		private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+		<R> R read(Function<Map<Long, Product>, R> task) {
+			return locked(lock.readLock(), task);
+		}
+
+		<R> R write(Function<Map<Long, Product>, R> task) {
+			return locked(lock.writeLock(), task);
+		}
+
+		private <R> R locked(Lock held, Function<Map<Long, Product>, R> task) {
+			held.lock();
+			try {
+				return task.apply(products);
+			} finally {
+				held.unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiPredicate;
+
+/**
+ * Immutable sorted map, implemented as a treap with path copying.
+ * <p>
+ * {@link #put} and {@link #remove} never change an existing map. They copy only the nodes on the
+ * path from the root to the changed key, about {@code 2 log n} of them, and share every other node
+ * with the original, so a new version costs O(log n) time and memory rather than a full copy.
+ * <p>
+ * Node priorities are random, so the tree stays balanced with high probability whatever the keys
+ * and the order they are added in. Priorities derived from the keys' hashes would let keys with
+ * colliding hashes, which are easy to construct for strings, degenerate the tree into a list.
+ * Safe to share between threads once published.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class PersistentSortedMap<K extends Comparable<? super K>, V> {
+
+	private static final PersistentSortedMap<?, ?> EMPTY = new PersistentSortedMap<>(null);
+
+	private final Node<K, V> root;
+
+	private PersistentSortedMap(Node<K, V> root) {
+		this.root = root;
+	}
+
+	/**
+	 * Returns the empty map.
+	 *
+	 * @param <K> the key type
+	 * @param <V> the value type
+	 * @return the empty map
+	 */
+	@SuppressWarnings("unchecked")
+	static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> empty() {
+		return (PersistentSortedMap<K, V>) EMPTY;
+	}
+
+	/**
+	 * Returns the number of entries.
+	 *
+	 * @return the entry count
+	 */
+	int size() {
+		return size(root);
+	}
+
+	/**
+	 * Returns the value for a key.
+	 *
+	 * @param key the key
+	 * @return the value, or null if the key is absent
+	 */
+	V get(K key) {
+		Node<K, V> node = root;
+		while (node != null) {
+			int comparison = key.compareTo(node.key);
+			if (comparison == 0) {
+				return node.value;
+			}
+			node = comparison < 0 ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a map with the key set to the value.
+	 *
+	 * @param key   the key
+	 * @param value the value, not null
+	 * @return the new map
+	 */
+	PersistentSortedMap<K, V> put(K key, V value) {
+		return new PersistentSortedMap<>(insert(root, key, value, ThreadLocalRandom.current().nextInt()));
+	}
+
+	/**
+	 * Returns a map without the key.
+	 *
+	 * @param key the key
+	 * @return the new map, or this map if the key is absent
+	 */
+	PersistentSortedMap<K, V> remove(K key) {
+		Node<K, V> updated = delete(root, key);
+		return updated == root ? this : new PersistentSortedMap<>(updated);
+	}
+
+	/**
+	 * Visits entries in ascending key order, starting at the first key not less than {@code from}.
+	 *
+	 * @param from    the lowest key to visit, or null to start at the first key
+	 * @param visitor called for each entry, returning false to stop
+	 */
+	void ascending(K from, BiPredicate<K, V> visitor) {
+		Deque<Node<K, V>> path = new ArrayDeque<>();
+		Node<K, V> node = root;
+		while (node != null) {
+			if (from == null || from.compareTo(node.key) <= 0) {
+				path.push(node);
+				node = node.left;
+			} else {
+				node = node.right;
+			}
+		}
+		while (!path.isEmpty()) {
+			Node<K, V> next = path.pop();
+			if (!visitor.test(next.key, next.value)) {
+				return;
+			}
+			for (node = next.right; node != null; node = node.left) {
+				path.push(node);
+			}
+		}
+	}
+
+	/**
+	 * Visits entries in descending key order, starting at the last key not greater than {@code from}.
+	 *
+	 * @param from    the highest key to visit, or null to start at the last key
+	 * @param visitor called for each entry, returning false to stop
+	 */
+	void descending(K from, BiPredicate<K, V> visitor) {
+		Deque<Node<K, V>> path = new ArrayDeque<>();
+		Node<K, V> node = root;
+		while (node != null) {
+			if (from == null || from.compareTo(node.key) >= 0) {
+				path.push(node);
+				node = node.right;
+			} else {
+				node = node.left;
+			}
+		}
+		while (!path.isEmpty()) {
+			Node<K, V> next = path.pop();
+			if (!visitor.test(next.key, next.value)) {
+				return;
+			}
+			for (node = next.left; node != null; node = node.right) {
+				path.push(node);
+			}
+		}
+	}
+
+	private static <K extends Comparable<? super K>, V> Node<K, V> insert(Node<K, V> node, K key, V value, int priority) {
+		if (node == null) {
+			return new Node<>(key, value, priority, null, null);
+		}
+		int comparison = key.compareTo(node.key);
+		if (comparison == 0) {
+			return new Node<>(key, value, node.priority, node.left, node.right);
+		}
+		if (comparison < 0) {
+			Node<K, V> left = insert(node.left, key, value, priority);
+			return left.priority > node.priority
+					// rotate right, so the heap order on priorities holds again
+					? left.with(left.left, node.with(left.right, node.right))
+					: node.with(left, node.right);
+		}
+		Node<K, V> right = insert(node.right, key, value, priority);
+		return right.priority > node.priority
+				? right.with(node.with(node.left, right.left), right.right)
+				: node.with(node.left, right);
+	}
+
+	private static <K extends Comparable<? super K>, V> Node<K, V> delete(Node<K, V> node, K key) {
+		if (node == null) {
+			return null;
+		}
+		int comparison = key.compareTo(node.key);
+		if (comparison == 0) {
+			return merge(node.left, node.right);
+		}
+		if (comparison < 0) {
+			Node<K, V> left = delete(node.left, key);
+			return left == node.left ? node : node.with(left, node.right);
+		}
+		Node<K, V> right = delete(node.right, key);
+		return right == node.right ? node : node.with(node.left, right);
+	}
+
+	/**
+	 * Joins two trees where every key of {@code left} is less than every key of {@code right}.
+	 */
+	private static <K, V> Node<K, V> merge(Node<K, V> left, Node<K, V> right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		return left.priority > right.priority
+				? left.with(left.left, merge(left.right, right))
+				: right.with(merge(left, right.left), right.right);
+	}
+
+	private static int size(Node<?, ?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private record Node<K, V>(K key, V value, int priority, Node<K, V> left, Node<K, V> right, int size) {
+
+		Node(K key, V value, int priority, Node<K, V> left, Node<K, V> right) {
+			this(key, value, priority, left, right, 1 + PersistentSortedMap.size(left) + PersistentSortedMap.size(right));
+		}
+
+		Node<K, V> with(Node<K, V> left, Node<K, V> right) {
+			return new Node<>(key, value, priority, left, right);
+		}
+	}
+}
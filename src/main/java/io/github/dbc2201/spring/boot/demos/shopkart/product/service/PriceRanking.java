@@ -0,0 +1,89 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.service;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * Shared rules for the top-K price queries of the {@link ProductService} implementations.
+ * <p>
+ * Products are ranked by price and then by ID, so that products with equal prices come back
+ * in a stable order from every implementation.
+ */
+final class PriceRanking {
+
+	/**
+	 * The largest number of products a single top-K query may return.
+	 */
+	static final int MAX_LIMIT = 1000;
+
+	static final Comparator<Product> CHEAPEST_FIRST =
+			Comparator.comparingDouble(Product::getPrice).thenComparingLong(Product::getId);
+
+	static final Comparator<Product> MOST_EXPENSIVE_FIRST =
+			Comparator.comparingDouble(Product::getPrice).reversed().thenComparingLong(Product::getId);
+
+	private PriceRanking() {
+	}
+
+	/**
+	 * Checks the arguments of a top-K query.
+	 *
+	 * @param minPrice the lowest price to include, or null for no lower bound
+	 * @param maxPrice the highest price to include, or null for no upper bound
+	 * @param limit    the number of products to return
+	 * @throws ProductValidationException if the range is empty or the limit is out of bounds
+	 */
+	static void validate(Double minPrice, Double maxPrice, int limit) {
+		if (limit <= 0 || limit > MAX_LIMIT) {
+			throw new ProductValidationException("Limit must be between 1 and " + MAX_LIMIT);
+		}
+		if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+			throw new ProductValidationException("Minimum price must not be greater than the maximum price");
+		}
+	}
+
+	/**
+	 * Returns the lower price bound to use in a range query.
+	 *
+	 * @param minPrice the requested lower bound, or null
+	 * @return the lower bound, or the smallest finite double if none was requested
+	 */
+	static double lowerBound(Double minPrice) {
+		return minPrice != null ? minPrice : -Double.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the upper price bound to use in a range query.
+	 *
+	 * @param maxPrice the requested upper bound, or null
+	 * @return the upper bound, or the largest finite double if none was requested
+	 */
+	static double upperBound(Double maxPrice) {
+		return maxPrice != null ? maxPrice : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Returns a predicate matching products by optional keyword and price range, with the same
+	 * semantics as {@code findByNameContainingIgnoreCaseAndPriceBetween}.
+	 *
+	 * @param keyword  the text the name must contain, ignoring case, or null/empty for any name
+	 * @param minPrice the lowest price to include, or null
+	 * @param maxPrice the highest price to include, or null
+	 * @return the predicate
+	 */
+	static Predicate<Product> filter(String keyword, Double minPrice, Double maxPrice) {
+		double lower = lowerBound(minPrice);
+		double upper = upperBound(maxPrice);
+		Predicate<Product> inRange = product -> product.getPrice() >= lower && product.getPrice() <= upper;
+		if (keyword == null || keyword.isEmpty()) {
+			return inRange;
+		}
+		String lowerCaseKeyword = keyword.toLowerCase(Locale.ROOT);
+		return inRange.and(product -> product.getName() != null
+				&& product.getName().toLowerCase(Locale.ROOT).contains(lowerCaseKeyword));
+	}
+}
@@ -2,7 +2,10 @@ package io.github.dbc2201.spring.boot.demos.shopkart.product.service;
 
 import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductNotFoundException;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductStats;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion;
 
 import java.util.List;
 
@@ -24,4 +27,16 @@ public interface ProductService {
 	Product updateProductImageUrl(long id, String newImageUrl) throws ProductValidationException;
 
 	boolean deleteProduct(long id) throws ProductNotFoundException;
+
+	long repriceProducts(BulkRepricingRequest request) throws ProductValidationException;
+
+	List<Product> getCheapestProducts(String keyword, Double minPrice, Double maxPrice, int limit)
+			throws ProductValidationException;
+
+	List<Product> getMostExpensiveProducts(String keyword, Double minPrice, Double maxPrice, int limit)
+			throws ProductValidationException;
+
+	List<ProductSuggestion> suggestProducts(String prefix, int limit) throws ProductValidationException;
+
+	ProductStats getProductStats();
 }
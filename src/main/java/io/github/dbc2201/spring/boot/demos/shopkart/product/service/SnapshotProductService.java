@@ -0,0 +1,628 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.service;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductStats;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.PriceStatistics;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * In-memory product service for read-mostly catalogs, where readers never lock.
+ * <p>
+ * The catalog is an immutable {@link CatalogSnapshot} behind an {@link AtomicReference}. Each read
+ * takes the current snapshot once and answers entirely from it, so a response never mixes two
+ * versions of the catalog, and readers never wait for writers or for each other. A snapshot is
+ * indexed by ID, by name and by price, each index a {@link PersistentSortedMap}, so lookups and
+ * price rankings are O(log n) walks rather than scans.
+ * <p>
+ * Writers queue their changes, and whichever writer holds the writer lock applies every queued change
+ * to the current snapshot and publishes the result once, so concurrent writers share one publish.
+ * The indexes share all unchanged nodes with the previous snapshot, so a publish copies O(log n)
+ * nodes per change rather than the catalog. A change that fails leaves the others in its batch
+ * unaffected.
+ * <p>
+ * Stored products are private copies and returned products are copies, so changing them does not
+ * change the catalog. Products without an ID are given the next free one.
+ * <p>
+ * Each snapshot also carries the price statistics of its products, updated from the price changes
+ * of every batch before it is published, so statistics are read without locking too.
+ */
+@Service
+public class SnapshotProductService implements ProductService {
+
+	private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>(CatalogSnapshot.EMPTY);
+	private final ConcurrentLinkedQueue<PendingChange<?>> pending = new ConcurrentLinkedQueue<>();
+	private final ReentrantLock writerLock = new ReentrantLock();
+
+	/**
+	 * The statistics of the latest snapshot, changed only by the writer holding the writer lock.
+	 */
+	private final PriceStatistics statistics = new PriceStatistics();
+
+	/**
+	 * Returns the current snapshot, for callers that need several reads from the same version.
+	 *
+	 * @return the latest published snapshot
+	 */
+	public CatalogSnapshot snapshot() {
+		return current.get();
+	}
+
+	/**
+	 * Adds a product, assigning the next free ID if it has none.
+	 *
+	 * @param product The product to be created and stored
+	 * @return A copy of the stored product
+	 */
+	@Override
+	public Product createProduct(Product product) {
+		if (product == null) {
+			throw new ProductValidationException("Product must not be null");
+		}
+		Product stored = copyOf(product);
+		Product created = write(snapshot -> snapshot.create(stored));
+		product.setId(created.getId());
+		return created;
+	}
+
+	/**
+	 * Adds several products in one publish, assigning IDs to those without one.
+	 * Either all products are added or, if one of them is a duplicate, none are.
+	 *
+	 * @param products the products to add
+	 * @return copies of the stored products, in the same order
+	 */
+	public List<Product> createProducts(Collection<Product> products) {
+		List<Product> stored = products.stream().map(SnapshotProductService::copyOf).toList();
+		return write(snapshot -> {
+			List<Product> created = new ArrayList<>(stored.size());
+			for (Product product : stored) {
+				Applied<Product> applied = snapshot.create(product);
+				snapshot = applied.snapshot();
+				created.add(applied.result());
+			}
+			return new Applied<>(snapshot, created);
+		});
+	}
+
+	/**
+	 * Retrieves all products of the current snapshot, ordered by ID.
+	 *
+	 * @return List of copies of all products
+	 */
+	@Override
+	public List<Product> getAllProducts() {
+		CatalogSnapshot snapshot = current.get();
+		List<Product> products = new ArrayList<>(snapshot.size());
+		snapshot.byId.ascending(null, (id, product) -> products.add(copyOf(product)));
+		return products;
+	}
+
+	/**
+	 * Finds a product by its ID.
+	 *
+	 * @param id The ID of the product to find
+	 * @return A copy of the found product or null if not found
+	 */
+	@Override
+	public Product getProductById(long id) {
+		Product product = current.get().byId.get(id);
+		return product == null ? null : copyOf(product);
+	}
+
+	/**
+	 * Finds a product by its name. If several products share the name, the one with the lowest ID is returned.
+	 *
+	 * @param name The name of the product to find
+	 * @return A copy of the found product or null if not found
+	 */
+	@Override
+	public Product getProductByName(String name) {
+		if (name == null) {
+			return null;
+		}
+		CatalogSnapshot snapshot = current.get();
+		long[] ids = snapshot.byName.get(NameKey.of(name));
+		return ids == null ? null : copyOf(snapshot.byId.get(ids[0]));
+	}
+
+	/**
+	 * Updates the price of a product identified by its ID.
+	 *
+	 * @param id       The ID of the product to update
+	 * @param newPrice The new price to set
+	 * @return A copy of the updated product or null if not found
+	 */
+	@Override
+	public Product updateProductPrice(long id, double newPrice) {
+		return update(id, product -> product.setPrice(newPrice));
+	}
+
+	/**
+	 * Updates the name of a product identified by its ID.
+	 *
+	 * @param id      The ID of the product to update
+	 * @param newName The new name to set
+	 * @return A copy of the updated product or null if not found
+	 */
+	@Override
+	public Product updateProductName(long id, String newName) {
+		return update(id, product -> product.setName(newName));
+	}
+
+	/**
+	 * Updates the description of a product identified by its ID.
+	 *
+	 * @param id             The ID of the product to update
+	 * @param newDescription The new description to set
+	 * @return A copy of the updated product or null if not found
+	 */
+	@Override
+	public Product updateProductDescription(long id, String newDescription) {
+		return update(id, product -> product.setDescription(newDescription));
+	}
+
+	/**
+	 * Updates the image URL of a product identified by its ID.
+	 *
+	 * @param id          The ID of the product to update
+	 * @param newImageUrl The new image URL to set
+	 * @return A copy of the updated product or null if not found
+	 */
+	@Override
+	public Product updateProductImageUrl(long id, String newImageUrl) {
+		return update(id, product -> product.setImageUrl(newImageUrl));
+	}
+
+	/**
+	 * Deletes a product by its ID.
+	 *
+	 * @param id The ID of the product to delete
+	 * @return true if product was deleted, false if not found
+	 */
+	@Override
+	public boolean deleteProduct(long id) {
+		return write(snapshot -> {
+			Product existing = snapshot.byId.get(id);
+			return existing == null ? new Applied<>(snapshot, false) : new Applied<>(snapshot.without(existing), true);
+		});
+	}
+
+	/**
+	 * Changes the price of every product matching the request's selector, publishing all changes at once.
+	 * Price range selectors walk only the matching part of the price index.
+	 *
+	 * @param request The selector and the adjustment to apply
+	 * @return The number of products whose price was changed
+	 */
+	@Override
+	public long repriceProducts(BulkRepricingRequest request) {
+		request.validate();
+		return write(snapshot -> {
+			List<Product> matching = new ArrayList<>();
+			if (request.selectsByPriceRange()) {
+				PriceKey upper = new PriceKey(request.maxPrice(), Long.MAX_VALUE);
+				snapshot.byPrice.ascending(new PriceKey(request.minPrice(), Long.MIN_VALUE), (key, product) -> {
+					if (key.compareTo(upper) > 0) {
+						return false;
+					}
+					matching.add(product);
+					return true;
+				});
+			} else {
+				snapshot.byId.ascending(null, (id, product) -> {
+					if (request.matches(product)) {
+						matching.add(product);
+					}
+					return true;
+				});
+			}
+			request.validateLowestPrice(matching.stream().map(Product::getPrice).min(Double::compare).orElse(null));
+			for (Product product : matching) {
+				Product repriced = copyOf(product);
+				repriced.setPrice(request.apply(product.getPrice()));
+				snapshot = snapshot.replace(product, repriced);
+			}
+			return new Applied<>(snapshot, (long) matching.size());
+		});
+	}
+
+	/**
+	 * Finds the cheapest products, optionally filtered by a name keyword and a price range.
+	 * Walks the price index upwards from the lower bound and stops once {@code limit} products match.
+	 *
+	 * @param keyword  The text the name must contain, ignoring case, or null for any name
+	 * @param minPrice The lowest price to include, or null
+	 * @param maxPrice The highest price to include, or null
+	 * @param limit    The maximum number of products to return
+	 * @return The matching products, cheapest first
+	 */
+	@Override
+	public List<Product> getCheapestProducts(String keyword, Double minPrice, Double maxPrice, int limit) {
+		PriceRanking.validate(minPrice, maxPrice, limit);
+		Predicate<Product> filter = PriceRanking.filter(keyword, minPrice, maxPrice);
+		double upper = PriceRanking.upperBound(maxPrice);
+		List<Product> cheapest = new ArrayList<>(Math.min(limit, 1024));
+		current.get().byPrice.ascending(new PriceKey(PriceRanking.lowerBound(minPrice), Long.MIN_VALUE), (key, product) -> {
+			if (key.price() > upper) {
+				return false;
+			}
+			if (filter.test(product)) {
+				cheapest.add(copyOf(product));
+			}
+			return cheapest.size() < limit;
+		});
+		return cheapest;
+	}
+
+	/**
+	 * Finds the most expensive products, optionally filtered by a name keyword and a price range.
+	 * Walks the price index downwards from the upper bound and stops once {@code limit} products match
+	 * and every product sharing the last price has been seen, as ties are ranked by ascending ID.
+	 *
+	 * @param keyword  The text the name must contain, ignoring case, or null for any name
+	 * @param minPrice The lowest price to include, or null
+	 * @param maxPrice The highest price to include, or null
+	 * @param limit    The maximum number of products to return
+	 * @return The matching products, most expensive first
+	 */
+	@Override
+	public List<Product> getMostExpensiveProducts(String keyword, Double minPrice, Double maxPrice, int limit) {
+		PriceRanking.validate(minPrice, maxPrice, limit);
+		Predicate<Product> filter = PriceRanking.filter(keyword, minPrice, maxPrice);
+		double lower = PriceRanking.lowerBound(minPrice);
+		List<Product> candidates = new ArrayList<>();
+		current.get().byPrice.descending(new PriceKey(PriceRanking.upperBound(maxPrice), Long.MAX_VALUE), (key, product) -> {
+			if (key.price() < lower || (candidates.size() >= limit
+					&& Double.compare(key.price(), candidates.getLast().getPrice()) != 0)) {
+				return false;
+			}
+			if (filter.test(product)) {
+				candidates.add(product);
+			}
+			return true;
+		});
+		return candidates.stream()
+				.sorted(PriceRanking.MOST_EXPENSIVE_FIRST)
+				.limit(limit)
+				.map(SnapshotProductService::copyOf)
+				.toList();
+	}
+
+	/**
+	 * Suggests completions for a name prefix, shortest names first.
+	 * Walks only the names in the name index that start with the prefix.
+	 *
+	 * @param prefix The start of the name, matched ignoring case
+	 * @param limit  The maximum number of suggestions to return
+	 * @return The matching products' IDs and names
+	 */
+	@Override
+	public List<ProductSuggestion> suggestProducts(String prefix, int limit) {
+		ProductSuggestion.validateQuery(prefix, limit);
+		String key = ProductSuggestion.fold(prefix);
+		List<ProductSuggestion> matching = new ArrayList<>();
+		current.get().byName.ascending(new NameKey(key, ""), (name, ids) -> {
+			if (!name.folded().startsWith(key)) {
+				return false;
+			}
+			for (long id : ids) {
+				matching.add(new ProductSuggestion(id, name.name()));
+			}
+			return true;
+		});
+		return matching.stream().collect(TopKCollector.topK(limit, ProductSuggestion.RANKING));
+	}
+
+	/**
+	 * Returns the price statistics of the current snapshot.
+	 *
+	 * @return The count, price range, mean price and price histogram
+	 */
+	@Override
+	public ProductStats getProductStats() {
+		return current.get().statistics.toProductStats();
+	}
+
+	private Product update(long id, Consumer<Product> change) {
+		return write(snapshot -> {
+			Product existing = snapshot.byId.get(id);
+			if (existing == null) {
+				return new Applied<>(snapshot, null);
+			}
+			Product updated = copyOf(existing);
+			change.accept(updated);
+			return new Applied<>(snapshot.replace(existing, updated), copyOf(updated));
+		});
+	}
+
+	/**
+	 * Queues a change and waits until it has been published, publishing the queue itself if no
+	 * other writer is doing so.
+	 */
+	private <R> R write(Function<CatalogSnapshot, Applied<R>> change) {
+		PendingChange<R> request = new PendingChange<>(change);
+		pending.add(request);
+		writerLock.lock();
+		try {
+			if (!request.done) {
+				publishPending();
+			}
+		} finally {
+			writerLock.unlock();
+		}
+		if (request.failure instanceof Error error) {
+			throw error;
+		}
+		if (request.failure != null) {
+			throw (RuntimeException) request.failure;
+		}
+		return request.result;
+	}
+
+	private void publishPending() {
+		CatalogSnapshot snapshot = current.get();
+		List<PendingChange<?>> batch = new ArrayList<>();
+		boolean published = false;
+		try {
+			for (PendingChange<?> next = pending.poll(); next != null; next = pending.poll()) {
+				batch.add(next);
+				snapshot = next.apply(snapshot).recordPriceChanges(statistics);
+			}
+			current.set(snapshot.next(statistics.summary()));
+			published = true;
+		} finally {
+			// completed only after the publish, so a writer always sees its own change, and completed
+			// even if publishing failed, as the changes are no longer queued for another writer
+			for (PendingChange<?> change : batch) {
+				if (!published && change.failure == null) {
+					change.failure = new IllegalStateException("Change was not published");
+				}
+				change.complete();
+			}
+		}
+	}
+
+	private static Product copyOf(Product product) {
+		Product copy = new Product(product.getName(), product.getDescription(), product.getPrice(), product.getImageUrl());
+		copy.setId(product.getId());
+		return copy;
+	}
+
+	/**
+	 * An immutable version of the catalog with its indexes.
+	 */
+	public static final class CatalogSnapshot {
+
+		private static final CatalogSnapshot EMPTY = new CatalogSnapshot(PersistentSortedMap.empty(),
+				PersistentSortedMap.empty(), PersistentSortedMap.empty(), 0, 0, PriceStatistics.Summary.EMPTY, null);
+
+		private final PersistentSortedMap<Long, Product> byId;
+		private final PersistentSortedMap<NameKey, long[]> byName;
+		private final PersistentSortedMap<PriceKey, Product> byPrice;
+		private final long lastId;
+		private final long version;
+		private final PriceStatistics.Summary statistics;
+
+		/**
+		 * The price changes made since the statistics were last updated, most recent first.
+		 */
+		private final PriceChange priceChanges;
+
+		private CatalogSnapshot(PersistentSortedMap<Long, Product> byId, PersistentSortedMap<NameKey, long[]> byName,
+								PersistentSortedMap<PriceKey, Product> byPrice, long lastId, long version,
+								PriceStatistics.Summary statistics, PriceChange priceChanges) {
+			this.byId = byId;
+			this.byName = byName;
+			this.byPrice = byPrice;
+			this.lastId = lastId;
+			this.version = version;
+			this.statistics = statistics;
+			this.priceChanges = priceChanges;
+		}
+
+		/**
+		 * Returns the number of products.
+		 *
+		 * @return the product count
+		 */
+		public int size() {
+			return byId.size();
+		}
+
+		/**
+		 * Returns the number of times the catalog has been published before this snapshot.
+		 *
+		 * @return the version, starting at 0 for the empty catalog
+		 */
+		public long version() {
+			return version;
+		}
+
+		private CatalogSnapshot next(PriceStatistics.Summary publishedStatistics) {
+			return new CatalogSnapshot(byId, byName, byPrice, lastId, version + 1, publishedStatistics, null);
+		}
+
+		/**
+		 * Applies the price changes of a successful change to the statistics, oldest first.
+		 */
+		private CatalogSnapshot recordPriceChanges(PriceStatistics target) {
+			if (priceChanges == null) {
+				return this;
+			}
+			List<PriceChange> changes = new ArrayList<>();
+			for (PriceChange change = priceChanges; change != null; change = change.previous()) {
+				changes.add(change);
+			}
+			for (PriceChange change : changes.reversed()) {
+				if (!Double.isNaN(change.removed())) {
+					target.remove(change.removed());
+				}
+				if (!Double.isNaN(change.added())) {
+					target.add(change.added());
+				}
+			}
+			return new CatalogSnapshot(byId, byName, byPrice, lastId, version, statistics, null);
+		}
+
+		private PriceChange priceChange(double removed, double added) {
+			return new PriceChange(removed, added, priceChanges);
+		}
+
+		private Applied<Product> create(Product product) {
+			long id = product.getId() == 0 ? lastId + 1 : product.getId();
+			if (byId.get(id) != null) {
+				throw new ProductValidationException("Product with id " + id + " already exists");
+			}
+			product.setId(id);
+			CatalogSnapshot added = new CatalogSnapshot(byId.put(id, product), withName(byName, product),
+					byPrice.put(PriceKey.of(product), product), Math.max(lastId, id), version, statistics,
+					priceChange(Double.NaN, product.getPrice()));
+			return new Applied<>(added, copyOf(product));
+		}
+
+		private CatalogSnapshot replace(Product existing, Product updated) {
+			PersistentSortedMap<NameKey, long[]> names = byName;
+			if (!Objects.equals(existing.getName(), updated.getName())) {
+				names = withName(withoutName(names, existing), updated);
+			}
+			PriceChange changes = Double.compare(existing.getPrice(), updated.getPrice()) == 0
+					? priceChanges : priceChange(existing.getPrice(), updated.getPrice());
+			return new CatalogSnapshot(byId.put(updated.getId(), updated), names,
+					byPrice.remove(PriceKey.of(existing)).put(PriceKey.of(updated), updated), lastId, version,
+					statistics, changes);
+		}
+
+		private CatalogSnapshot without(Product existing) {
+			return new CatalogSnapshot(byId.remove(existing.getId()), withoutName(byName, existing),
+					byPrice.remove(PriceKey.of(existing)), lastId, version, statistics,
+					priceChange(existing.getPrice(), Double.NaN));
+		}
+
+		private static PersistentSortedMap<NameKey, long[]> withName(PersistentSortedMap<NameKey, long[]> names,
+																	  Product product) {
+			if (product.getName() == null) {
+				return names;
+			}
+			NameKey key = NameKey.of(product.getName());
+			long[] ids = names.get(key);
+			if (ids == null) {
+				return names.put(key, new long[]{product.getId()});
+			}
+			int insertAt = -Arrays.binarySearch(ids, product.getId()) - 1;
+			long[] updated = new long[ids.length + 1];
+			System.arraycopy(ids, 0, updated, 0, insertAt);
+			updated[insertAt] = product.getId();
+			System.arraycopy(ids, insertAt, updated, insertAt + 1, ids.length - insertAt);
+			return names.put(key, updated);
+		}
+
+		private static PersistentSortedMap<NameKey, long[]> withoutName(PersistentSortedMap<NameKey, long[]> names,
+																		 Product product) {
+			if (product.getName() == null) {
+				return names;
+			}
+			NameKey key = NameKey.of(product.getName());
+			long[] ids = names.get(key);
+			if (ids.length == 1) {
+				return names.remove(key);
+			}
+			return names.put(key, Arrays.stream(ids).filter(id -> id != product.getId()).toArray());
+		}
+	}
+
+	/**
+	 * Orders the price index like {@link PriceRanking#CHEAPEST_FIRST}.
+	 */
+	private record PriceKey(double price, long id) implements Comparable<PriceKey> {
+
+		static PriceKey of(Product product) {
+			return new PriceKey(product.getPrice(), product.getId());
+		}
+
+		@Override
+		public int compareTo(PriceKey other) {
+			int comparison = Double.compare(price, other.price);
+			return comparison != 0 ? comparison : Long.compare(id, other.id);
+		}
+	}
+
+	/**
+	 * Orders the name index by case-folded name, so names sharing a prefix are adjacent, then by exact name.
+	 */
+	private record NameKey(String folded, String name) implements Comparable<NameKey> {
+
+		private static final Comparator<NameKey> ORDER =
+				Comparator.comparing(NameKey::folded).thenComparing(NameKey::name);
+
+		static NameKey of(String name) {
+			return new NameKey(ProductSuggestion.fold(name), name);
+		}
+
+		@Override
+		public int compareTo(NameKey other) {
+			return ORDER.compare(this, other);
+		}
+	}
+
+	/**
+	 * A price removed from and a price added to the catalog, either of which may be NaN for none,
+	 * linked to the change before it.
+	 */
+	private record PriceChange(double removed, double added, PriceChange previous) {
+	}
+
+	/**
+	 * A snapshot produced by a change, with the change's result.
+	 */
+	private record Applied<R>(CatalogSnapshot snapshot, R result) {
+	}
+
+	/**
+	 * A queued change and, once published, its outcome.
+	 */
+	private static final class PendingChange<R> {
+		private final Function<CatalogSnapshot, Applied<R>> change;
+		private R result;
+		/**
+		 * The exception the change failed with, a runtime exception or an error.
+		 */
+		private Throwable failure;
+		private volatile boolean done;
+
+		private PendingChange(Function<CatalogSnapshot, Applied<R>> change) {
+			this.change = change;
+		}
+
+		private CatalogSnapshot apply(CatalogSnapshot snapshot) {
+			try {
+				Applied<R> applied = change.apply(snapshot);
+				result = applied.result();
+				return applied.snapshot();
+			} catch (RuntimeException | Error e) {
+				// the snapshot is immutable, so a failed change leaves nothing half applied
+				failure = e;
+				return snapshot;
+			}
+		}
+
+		private void complete() {
+			done = true;
+		}
+	}
+}
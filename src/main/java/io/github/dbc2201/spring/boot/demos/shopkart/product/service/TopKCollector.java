@@ -0,0 +1,56 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+
+/**
+ * Collects the first {@code k} elements of a stream in a given order, using O(k) memory.
+ * <p>
+ * Each accumulator keeps a bounded heap whose head is the worst element kept so far, so an
+ * element only enters the heap if it beats that head. Partial heaps from parallel streams are
+ * merged the same way, which lets large catalogs be ranked across all cores without sorting
+ * or copying the whole catalog.
+ */
+final class TopKCollector {
+
+	private TopKCollector() {
+	}
+
+	/**
+	 * Returns a collector for the first {@code k} elements in the given order.
+	 *
+	 * @param k     the maximum number of elements to keep
+	 * @param order the order in which elements are ranked, best first
+	 * @param <T>   the element type
+	 * @return a collector producing at most {@code k} elements, sorted by {@code order}
+	 */
+	static <T> Collector<T, PriorityQueue<T>, List<T>> topK(int k, Comparator<? super T> order) {
+		Comparator<? super T> worstFirst = Collections.reverseOrder(order);
+		return Collector.of(
+				() -> new PriorityQueue<>(Math.min(k, 1024) + 1, worstFirst),
+				(heap, element) -> offer(heap, element, k, order),
+				(left, right) -> {
+					right.forEach(element -> offer(left, element, k, order));
+					return left;
+				},
+				heap -> {
+					List<T> result = new ArrayList<>(heap);
+					result.sort(order);
+					return result;
+				}
+		);
+	}
+
+	private static <T> void offer(PriorityQueue<T> heap, T element, int k, Comparator<? super T> order) {
+		if (heap.size() < k) {
+			heap.add(element);
+		} else if (order.compare(element, heap.peek()) < 0) {
+			heap.poll();
+			heap.add(element);
+		}
+	}
+}
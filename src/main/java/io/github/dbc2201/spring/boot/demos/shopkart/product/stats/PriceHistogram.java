@@ -0,0 +1,135 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.stats;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductStats.PriceBucket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counts of prices in fixed buckets whose bounds follow the 1-2-5 series, from 1 up to 1,000,000,
+ * with one bucket below 1 and one open-ended bucket above.
+ * <p>
+ * Every histogram uses the same bounds, so two histograms are merged by adding their counts, and a
+ * price is removed by decrementing its bucket. The bounds are repeated in
+ * {@code ProductRepository#aggregatePricesByBucket}, so the database buckets prices the same way.
+ * <p>
+ * Not thread-safe.
+ */
+public final class PriceHistogram {
+
+	/**
+	 * The exclusive upper bound of every bucket but the last.
+	 */
+	static final double[] UPPER_BOUNDS = {
+			1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000,
+			10_000, 20_000, 50_000, 100_000, 200_000, 500_000, 1_000_000
+	};
+
+	/**
+	 * The number of buckets.
+	 */
+	public static final int BUCKETS = UPPER_BOUNDS.length + 1;
+
+	private final long[] counts;
+
+	/**
+	 * Creates an empty histogram.
+	 */
+	public PriceHistogram() {
+		this(new long[BUCKETS]);
+	}
+
+	private PriceHistogram(long[] counts) {
+		this.counts = counts;
+	}
+
+	/**
+	 * Returns the bucket a price falls in.
+	 *
+	 * @param price the price
+	 * @return the bucket index, from 0 to {@link #BUCKETS} - 1
+	 */
+	public static int bucketOf(double price) {
+		int found = Arrays.binarySearch(UPPER_BOUNDS, price);
+		// a price equal to a bound belongs to the bucket starting there
+		return found >= 0 ? found + 1 : -found - 1;
+	}
+
+	/**
+	 * Changes the count of the bucket a price falls in.
+	 *
+	 * @param price the price
+	 * @param delta the number of prices added, or removed if negative
+	 */
+	public void add(double price, long delta) {
+		counts[bucketOf(price)] += delta;
+	}
+
+	/**
+	 * Changes the count of a bucket.
+	 *
+	 * @param bucket the bucket index
+	 * @param delta  the number of prices added, or removed if negative
+	 */
+	public void addToBucket(int bucket, long delta) {
+		counts[bucket] += delta;
+	}
+
+	/**
+	 * Returns the count of a bucket.
+	 *
+	 * @param bucket the bucket index
+	 * @return the number of prices in the bucket
+	 */
+	public long count(int bucket) {
+		return counts[bucket];
+	}
+
+	/**
+	 * Returns a histogram with the counts of both histograms.
+	 *
+	 * @param other the histogram to merge with
+	 * @return the merged histogram
+	 */
+	public PriceHistogram merge(PriceHistogram other) {
+		long[] merged = counts.clone();
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			merged[bucket] += other.counts[bucket];
+		}
+		return new PriceHistogram(merged);
+	}
+
+	/**
+	 * Returns a copy of this histogram.
+	 *
+	 * @return the copy
+	 */
+	public PriceHistogram copy() {
+		return new PriceHistogram(counts.clone());
+	}
+
+	/**
+	 * Returns the lowest price of a bucket.
+	 *
+	 * @param bucket the bucket index
+	 * @return the inclusive lower bound
+	 */
+	public static double lowerBound(int bucket) {
+		return bucket == 0 ? 0 : UPPER_BOUNDS[bucket - 1];
+	}
+
+	/**
+	 * Returns every bucket with its bounds and count.
+	 *
+	 * @return the buckets, lowest first
+	 */
+	public List<PriceBucket> buckets() {
+		List<PriceBucket> buckets = new ArrayList<>(BUCKETS);
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			Double to = bucket < UPPER_BOUNDS.length ? UPPER_BOUNDS[bucket] : null;
+			buckets.add(new PriceBucket(lowerBound(bucket), to, counts[bucket]));
+		}
+		return buckets;
+	}
+}
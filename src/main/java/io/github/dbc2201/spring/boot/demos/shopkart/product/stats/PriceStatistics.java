@@ -0,0 +1,229 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.stats;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductStats;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Price statistics of a set of products, updated incrementally as products are added, repriced and
+ * removed, so they can be read without looking at the products.
+ * <p>
+ * The count, the sum and a {@link PriceHistogram} are exact under every change. The lowest and highest
+ * prices are kept in two small sorted multisets of the {@value #TRACKED_EXTREMES} lowest and highest
+ * prices, so removing the current minimum or maximum still leaves the next one known. Only if all
+ * tracked prices at one end are removed is that end estimated from the histogram, until the next
+ * {@link #reset}.
+ * <p>
+ * All methods are thread-safe and hold the lock only for O(log {@value #TRACKED_EXTREMES}) work.
+ */
+public final class PriceStatistics {
+
+	/**
+	 * The number of lowest and of highest prices tracked.
+	 */
+	public static final int TRACKED_EXTREMES = 32;
+
+	private long count;
+	private double sum;
+	private PriceHistogram histogram = new PriceHistogram();
+	private Extremes lowest = new Extremes(Comparator.naturalOrder());
+	private Extremes highest = new Extremes(Comparator.reverseOrder());
+
+	/**
+	 * Records an added product.
+	 *
+	 * @param price the product's price
+	 */
+	public synchronized void add(double price) {
+		lowest.offer(price, count);
+		highest.offer(price, count);
+		count++;
+		sum += price;
+		histogram.add(price, 1);
+	}
+
+	/**
+	 * Records a removed product.
+	 *
+	 * @param price the product's price
+	 */
+	public synchronized void remove(double price) {
+		lowest.remove(price);
+		highest.remove(price);
+		count--;
+		sum -= price;
+		histogram.add(price, -1);
+	}
+
+	/**
+	 * Records a repriced product.
+	 *
+	 * @param oldPrice the price before the change
+	 * @param newPrice the price after the change
+	 */
+	public synchronized void change(double oldPrice, double newPrice) {
+		remove(oldPrice);
+		add(newPrice);
+	}
+
+	/**
+	 * Replaces the statistics with ones computed from the full set of products.
+	 *
+	 * @param count           the number of products
+	 * @param sum             the sum of their prices
+	 * @param histogram       their histogram
+	 * @param lowestPrices    up to {@value #TRACKED_EXTREMES} of the lowest prices
+	 * @param highestPrices   up to {@value #TRACKED_EXTREMES} of the highest prices
+	 */
+	public synchronized void reset(long count, double sum, PriceHistogram histogram,
+								   Collection<Double> lowestPrices, Collection<Double> highestPrices) {
+		this.count = count;
+		this.sum = sum;
+		this.histogram = histogram.copy();
+		this.lowest = new Extremes(Comparator.naturalOrder());
+		this.highest = new Extremes(Comparator.reverseOrder());
+		lowestPrices.stream().limit(TRACKED_EXTREMES).forEach(lowest::put);
+		highestPrices.stream().limit(TRACKED_EXTREMES).forEach(highest::put);
+	}
+
+	/**
+	 * Returns an immutable copy of the current statistics.
+	 *
+	 * @return the summary
+	 */
+	public synchronized Summary summary() {
+		return new Summary(count, sum, lowest.first(), highest.first(), histogram.copy());
+	}
+
+	/**
+	 * Statistics at one point in time. Summaries of disjoint sets of products can be merged.
+	 *
+	 * @param count     the number of products
+	 * @param sum       the sum of their prices
+	 * @param min       the lowest price, or null if not known
+	 * @param max       the highest price, or null if not known
+	 * @param histogram the histogram of the prices
+	 */
+	public record Summary(long count, double sum, Double min, Double max, PriceHistogram histogram) {
+
+		/**
+		 * The summary of no products.
+		 */
+		public static final Summary EMPTY = new Summary(0, 0, null, null, new PriceHistogram());
+
+		/**
+		 * Combines the summaries of two disjoint sets of products.
+		 *
+		 * @param other the other summary
+		 * @return the summary of both sets
+		 */
+		public Summary merge(Summary other) {
+			return new Summary(count + other.count, sum + other.sum, extreme(min, other.min, true),
+					extreme(max, other.max, false), histogram.merge(other.histogram));
+		}
+
+		/**
+		 * Converts the summary to the statistics returned to clients.
+		 *
+		 * @return the statistics
+		 */
+		public ProductStats toProductStats() {
+			if (count <= 0) {
+				return new ProductStats(0, null, null, null, histogram.buckets());
+			}
+			return new ProductStats(count, min != null ? min : estimatedMin(), max != null ? max : estimatedMax(),
+					sum / count, histogram.buckets());
+		}
+
+		private double estimatedMin() {
+			for (int bucket = 0; bucket < PriceHistogram.BUCKETS; bucket++) {
+				if (histogram.count(bucket) > 0) {
+					return PriceHistogram.lowerBound(bucket);
+				}
+			}
+			return 0;
+		}
+
+		private double estimatedMax() {
+			for (int bucket = PriceHistogram.BUCKETS - 1; bucket >= 0; bucket--) {
+				if (histogram.count(bucket) > 0) {
+					// the last bucket is open-ended, so its lower bound is the best known
+					return bucket < PriceHistogram.UPPER_BOUNDS.length
+							? PriceHistogram.UPPER_BOUNDS[bucket] : PriceHistogram.lowerBound(bucket);
+				}
+			}
+			return 0;
+		}
+
+		private static Double extreme(Double left, Double right, boolean lowest) {
+			if (left == null || right == null) {
+				return left == null ? right : left;
+			}
+			return lowest ? Math.min(left, right) : Math.max(left, right);
+		}
+
+		/**
+		 * Merges the summaries of disjoint sets of products.
+		 *
+		 * @param summaries the summaries
+		 * @return the summary of all sets
+		 */
+		public static Summary mergeAll(List<Summary> summaries) {
+			return summaries.stream().reduce(EMPTY, Summary::merge);
+		}
+	}
+
+	/**
+	 * The best prices at one end of the range, in the order of a comparator, as a multiset.
+	 * Always holds exactly the best {@code size} prices of the whole set.
+	 */
+	private static final class Extremes {
+		private final TreeMap<Double, Integer> prices;
+		private int size;
+
+		private Extremes(Comparator<Double> order) {
+			this.prices = new TreeMap<>(order);
+		}
+
+		/**
+		 * Offers a price being added to a set that held {@code countBefore} prices.
+		 */
+		void offer(double price, long countBefore) {
+			// a price worse than every tracked one can only be tracked if no untracked prices exist
+			boolean complete = size == countBefore;
+			if (complete || (size > 0 && prices.comparator().compare(price, prices.lastKey()) < 0)) {
+				put(price);
+				if (size > TRACKED_EXTREMES) {
+					removeOne(prices.lastKey());
+				}
+			}
+		}
+
+		void remove(double price) {
+			if (prices.containsKey(price)) {
+				removeOne(price);
+			}
+		}
+
+		void put(double price) {
+			prices.merge(price, 1, Integer::sum);
+			size++;
+		}
+
+		Double first() {
+			Map.Entry<Double, Integer> first = prices.firstEntry();
+			return first == null ? null : first.getKey();
+		}
+
+		private void removeOne(double price) {
+			if (prices.merge(price, -1, Integer::sum) == 0) {
+				prices.remove(price);
+			}
+			size--;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.stats;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductStats;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Price statistics of the products in the database, kept in memory so they can be served without
+ * a query.
+ * <p>
+ * The database service records every create, price update and delete made on this node, applied
+ * once its transaction commits. Changes this node cannot see one by one, such as those made by other
+ * nodes, bulk repricing and upserting imports, are picked up by {@link #reconcile()}, which replaces
+ * the statistics with ones computed by aggregate queries. It runs at startup, periodically, and after
+ * bulk changes. Changes committed while a reconciliation runs may be missed or counted twice until
+ * the next one.
+ */
+@Component
+public class ProductStatistics {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductStatistics.class);
+
+	private final ProductRepository productRepository;
+	private final PriceStatistics statistics = new PriceStatistics();
+
+	/**
+	 * Creates new, empty ProductStatistics.
+	 *
+	 * @param productRepository the repository used to reconcile the statistics
+	 */
+	public ProductStatistics(ProductRepository productRepository) {
+		this.productRepository = productRepository;
+	}
+
+	/**
+	 * Returns the current statistics.
+	 *
+	 * @return the statistics, without querying the database
+	 */
+	public ProductStats stats() {
+		return statistics.summary().toProductStats();
+	}
+
+	/**
+	 * Records a created product.
+	 *
+	 * @param price the product's price
+	 */
+	public void recordCreation(double price) {
+		afterCommit(() -> statistics.add(price));
+	}
+
+	/**
+	 * Records a price change.
+	 *
+	 * @param oldPrice the price before the change
+	 * @param newPrice the price after the change
+	 */
+	public void recordPriceChange(double oldPrice, double newPrice) {
+		afterCommit(() -> statistics.change(oldPrice, newPrice));
+	}
+
+	/**
+	 * Records a deleted product.
+	 *
+	 * @param price the product's price
+	 */
+	public void recordDeletion(double price) {
+		afterCommit(() -> statistics.remove(price));
+	}
+
+	/**
+	 * Recomputes the statistics from the database with three aggregate queries, one grouping the
+	 * prices into the histogram's buckets and two reading the lowest and highest prices.
+	 * Runs once the application has started, and then periodically.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${shopkart.stats.reconcile-interval-ms:300000}",
+			fixedDelayString = "${shopkart.stats.reconcile-interval-ms:300000}")
+	@Transactional(readOnly = true)
+	public void reconcile() {
+		long count = 0;
+		double sum = 0;
+		PriceHistogram histogram = new PriceHistogram();
+		for (Object[] row : productRepository.aggregatePricesByBucket()) {
+			long bucketCount = ((Number) row[1]).longValue();
+			histogram.addToBucket(((Number) row[0]).intValue(), bucketCount);
+			count += bucketCount;
+			sum += ((Number) row[2]).doubleValue();
+		}
+		Limit extremes = Limit.of(PriceStatistics.TRACKED_EXTREMES);
+		statistics.reset(count, sum, histogram,
+				productRepository.findLowestPrices(extremes), productRepository.findHighestPrices(extremes));
+		log.debug("Reconciled product statistics: {} products", count);
+	}
+
+	private static void afterCommit(Runnable change) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			// applied once committed, so rolled back changes are never counted
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					change.run();
+				}
+			});
+		} else {
+			change.run();
+		}
+	}
+}
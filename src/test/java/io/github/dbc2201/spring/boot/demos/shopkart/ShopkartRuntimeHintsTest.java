@@ -0,0 +1,47 @@
+package io.github.dbc2201.spring.boot.demos.shopkart;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.core.DecoratingProxy;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.interceptor.TransactionalProxy;
+
+import java.sql.PreparedStatement;
+
+/**
+ * Tests for the native image hints in {@link ShopkartRuntimeHints}.
+ */
+class ShopkartRuntimeHintsTest {
+
+	/**
+	 * Test that the entity, the repository proxy, the constraints and the instrumented JDBC types
+	 * are all registered.
+	 */
+	@Test
+	@DisplayName("Should register hints for the entity, repository, constraints and JDBC proxies")
+	void testRegisterHints() throws NoSuchMethodException {
+		RuntimeHints hints = new RuntimeHints();
+		new ShopkartRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+		assertTrue(RuntimeHintsPredicates.reflection().onType(Product.class).test(hints));
+		assertTrue(RuntimeHintsPredicates.reflection().onField(Product.class, "price").test(hints));
+		assertTrue(RuntimeHintsPredicates.reflection().onMethod(Product.class, "setPrice").invoke().test(hints));
+		assertTrue(RuntimeHintsPredicates.reflection()
+				.onMethod(ProductRepository.class.getMethod("findByName", String.class)).invoke().test(hints));
+		assertTrue(RuntimeHintsPredicates.proxies().forInterfaces(ProductRepository.class, Repository.class,
+				TransactionalProxy.class, Advised.class, DecoratingProxy.class).test(hints));
+		for (Class<?> annotation : ShopkartRuntimeHints.VALIDATION_ANNOTATIONS) {
+			assertTrue(RuntimeHintsPredicates.reflection().onType(annotation).test(hints), annotation.getName());
+		}
+		assertTrue(RuntimeHintsPredicates.proxies().forInterfaces(PreparedStatement.class).test(hints));
+		assertTrue(RuntimeHintsPredicates.reflection()
+				.onMethod(PreparedStatement.class.getMethod("executeQuery")).invoke().test(hints));
+	}
+}
@@ -0,0 +1,71 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.benchmark;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.ColumnarInMemoryProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.InMemoryProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares price-range scans over the object-based and the columnar in-memory catalogs:
+ * <ul>
+ *     <li>{@code cheapestInRange}: the ten cheapest products within a price range</li>
+ *     <li>{@code cheapestByKeyword}: the ten cheapest products whose name contains a keyword</li>
+ * </ul>
+ * The catalog repeats 1,000 names and 100 image URLs, as catalogs with variants and shared images do.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=ColumnarCatalogBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColumnarCatalogBenchmark {
+
+	private static final int PRODUCTS = 200_000;
+
+	@Param({"objects", "columnar"})
+	public String layout;
+
+	private ProductService catalog;
+
+	@Setup
+	public void setUp() {
+		catalog = layout.equals("columnar") ? new ColumnarInMemoryProductService() : new InMemoryProductService();
+		for (int i = 1; i <= PRODUCTS; i++) {
+			Product product = new Product("Product " + (i % 1000), "Benchmark product " + i,
+					1 + (i * 7919L % 10_000) / 100.0, "https://example.com/images/" + (i % 100) + ".jpg");
+			product.setId(i);
+			catalog.createProduct(product);
+		}
+		if (catalog instanceof ColumnarInMemoryProductService columnar) {
+			ColumnarInMemoryProductService.MemoryFootprint footprint = columnar.memoryFootprint();
+			System.out.printf("%n%d products: %.1f bytes per product columnar, %.1f as objects%n",
+					footprint.products(), footprint.columnarBytesPerProduct(), footprint.objectLayoutBytesPerProduct());
+		}
+	}
+
+	@Benchmark
+	public List<Product> cheapestInRange() {
+		return catalog.getCheapestProducts(null, 20.0, 30.0, 10);
+	}
+
+	@Benchmark
+	public List<Product> cheapestByKeyword() {
+		return catalog.getCheapestProducts("product 12", null, null, 10);
+	}
+}
@@ -0,0 +1,110 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.benchmark;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.PartitionedInMemoryProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the partitioned in-memory catalog scales with the number of threads.
+ * <p>
+ * A catalog with a single partition stands in for one structure behind one lock, and is compared
+ * with a catalog using 32 partitions:
+ * <ul>
+ *     <li>{@code pointReads}: lookups by ID</li>
+ *     <li>{@code mixedReadWrite}: nine lookups by ID for every price update</li>
+ *     <li>{@code cheapestScan}: the ten cheapest products of the whole catalog</li>
+ * </ul>
+ * JMH cannot vary the thread count with {@code @Param}, so {@link #main} runs the benchmarks once for
+ * each of 1, 2, 4, 8, 16 and 32 threads and prints a scaling table. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=io.github.dbc2201.spring.boot.demos.shopkart.benchmark.PartitionedCatalogBenchmark -Dbenchmark.include=PartitionedCatalogBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PartitionedCatalogBenchmark {
+
+	private static final int PRODUCTS = 100_000;
+	private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32};
+
+	@Param({"1", "32"})
+	public int partitions;
+
+	private PartitionedInMemoryProductService catalog;
+
+	@Setup
+	public void setUp() {
+		catalog = new PartitionedInMemoryProductService(partitions);
+		for (int i = 0; i < PRODUCTS; i++) {
+			catalog.createProduct(new Product("Product " + i, "Benchmark product " + i,
+					1 + (i * 7919L % 10_000) / 100.0, "https://example.com/images/" + i + ".jpg"));
+		}
+	}
+
+	@Benchmark
+	public Product pointReads() {
+		return catalog.getProductById(randomId());
+	}
+
+	@Benchmark
+	public Product mixedReadWrite() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long id = randomId();
+		return random.nextInt(10) == 0
+				? catalog.updateProductPrice(id, 1 + random.nextInt(10_000) / 100.0)
+				: catalog.getProductById(id);
+	}
+
+	@Benchmark
+	public List<Product> cheapestScan() {
+		return catalog.getCheapestProducts(null, null, null, 10);
+	}
+
+	private static long randomId() {
+		return 1 + ThreadLocalRandom.current().nextInt(PRODUCTS);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : PartitionedCatalogBenchmark.class.getSimpleName();
+		List<String> rows = new ArrayList<>();
+		for (int threads : THREAD_COUNTS) {
+			Options options = new OptionsBuilder()
+					.include(include)
+					.threads(threads)
+					.build();
+			Collection<RunResult> results = new Runner(options).run();
+			for (RunResult result : results) {
+				rows.add(String.format("%-16s %10s %8d %14.1f",
+						result.getParams().getBenchmark().replaceAll(".*\\.", ""),
+						result.getParams().getParam("partitions"),
+						threads,
+						result.getPrimaryResult().getScore()));
+			}
+		}
+		System.out.printf("%n%-16s %10s %8s %14s%n", "benchmark", "partitions", "threads", "ops/ms");
+		rows.stream().sorted().forEach(System.out::println);
+	}
+}
@@ -0,0 +1,168 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductLookupFilter;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductNearCache;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.history.OverflowPolicy;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.history.PriceHistoryLog;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.resilience.ProductReadGuard;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.search.ProductSuggestionIndex;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.ProductStatistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the latency of {@code updateProductPrice} with and without the price history.
+ * <p>
+ * Every database call waits for a simulated network round trip, during which the CPU is free, as
+ * it is with a real database. The product repository is a stub, and the history is written to an
+ * in-memory H2 database through a connection pool and a {@link JdbcTemplate} that adds the same
+ * round trip to each statement.
+ * <ul>
+ *     <li>{@code off}: no price history</li>
+ *     <li>{@code async}: the price history log, which queues the change for its writer thread</li>
+ *     <li>{@code sync}: the alternative it replaces, one INSERT per update on the request thread</li>
+ * </ul>
+ * The asynchronous writer pays one round trip per batch instead of one per update. It needs the CPU
+ * the request thread leaves idle while waiting, so the {@code async} figures only match {@code off}
+ * while the database is the bottleneck, as it is for price updates.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=PriceHistoryBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PriceHistoryBenchmark {
+
+	private static final int PRODUCTS = 10_000;
+
+	private static final String INSERT_SQL =
+			"INSERT INTO price_history (product_id, old_price, new_price, changed_at) VALUES (?, ?, ?, ?)";
+
+	@Param({"off", "async", "sync"})
+	public String history;
+
+	/**
+	 * Simulated network round trip of one database call, in microseconds.
+	 */
+	@Param({"200"})
+	public long roundTripMicros;
+
+	private HikariDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private PriceHistoryLog priceHistory;
+	private DatabaseProductService service;
+	private Path spillDirectory;
+
+	@Setup
+	public void setUp() throws Exception {
+		dataSource = new HikariDataSource();
+		dataSource.setJdbcUrl("jdbc:h2:mem:price-history-benchmark;DB_CLOSE_DELAY=-1");
+		dataSource.setMaximumPoolSize(4);
+		long roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+		jdbcTemplate = new JdbcTemplate(dataSource) {
+			@Override
+			public int update(String sql, Object... args) {
+				LockSupport.parkNanos(roundTripNanos);
+				return super.update(sql, args);
+			}
+
+			@Override
+			public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+										   ParameterizedPreparedStatementSetter<T> setter) {
+				LockSupport.parkNanos(roundTripNanos);
+				return super.batchUpdate(sql, batchArgs, batchSize, setter);
+			}
+		};
+		jdbcTemplate.execute("DROP TABLE IF EXISTS price_history");
+		jdbcTemplate.execute("CREATE TABLE price_history (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+				+ "product_id BIGINT NOT NULL, old_price DOUBLE, new_price DOUBLE NOT NULL, "
+				+ "changed_at TIMESTAMP(6) NOT NULL)");
+		jdbcTemplate.execute("CREATE INDEX idx_price_history_product ON price_history (product_id, changed_at)");
+
+		spillDirectory = Files.createTempDirectory("price-history-benchmark");
+		priceHistory = new PriceHistoryLog(jdbcTemplate, null, history.equals("async"), 8192, 500,
+				OverflowPolicy.BLOCK, spillDirectory.resolve("spill.csv"));
+		priceHistory.start();
+
+		ProductRepository repository = stubRepository(roundTripNanos);
+		ProductReadGuard readGuard = new ProductReadGuard(false, Duration.ofSeconds(1), 1, 1, Duration.ofSeconds(1), 1, null);
+		// the caches are disabled so that every update reads through to the repository
+		service = new DatabaseProductService(repository, new ProductLookupFilter(false, PRODUCTS, 0.01),
+				new ProductNearCache(null, null, false, 0, 0, Duration.ZERO), new ProductSuggestionIndex(10),
+				new ProductStatistics(repository), priceHistory, readGuard, null, null);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		priceHistory.stop();
+		dataSource.close();
+		Files.deleteIfExists(spillDirectory.resolve("spill.csv"));
+		Files.deleteIfExists(spillDirectory);
+	}
+
+	@Benchmark
+	public void updateProductPrice(Blackhole blackhole) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long id = 1 + random.nextInt(PRODUCTS);
+		double newPrice = 1 + random.nextInt(100_000) / 100.0;
+		Product product = service.updateProductPrice(id, newPrice);
+		if (history.equals("sync")) {
+			// the old price is not known here, and does not change the cost of the insert
+			jdbcTemplate.update(INSERT_SQL, id, null, newPrice, Timestamp.from(Instant.now()));
+		}
+		blackhole.consume(product);
+	}
+
+	private static ProductRepository stubRepository(long roundTripNanos) {
+		return (ProductRepository) Proxy.newProxyInstance(
+				ProductRepository.class.getClassLoader(),
+				new Class<?>[]{ProductRepository.class},
+				(proxy, method, args) -> switch (method.getName()) {
+					case "findById" -> {
+						LockSupport.parkNanos(roundTripNanos);
+						Product product = new Product("Benchmark Product", "A benchmarked product", 10.0,
+								"https://example.com/image.jpg");
+						product.setId((Long) args[0]);
+						yield Optional.of(product);
+					}
+					case "save" -> {
+						LockSupport.parkNanos(roundTripNanos);
+						yield args[0];
+					}
+					default -> throw new UnsupportedOperationException(method.getName());
+				}
+		);
+	}
+}
@@ -0,0 +1,145 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.benchmark;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductLookupFilter;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductNearCache;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductNotFoundException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.history.OverflowPolicy;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.history.PriceHistoryLog;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.resilience.ProductReadGuard;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.search.ProductSuggestionIndex;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.ProductStatistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Measures miss-heavy {@code getProductById} traffic before and after the negative lookup cache.
+ * <p>
+ * The repository is a stub that burns a configurable amount of CPU per query to stand in for
+ * the database round trip. Nine out of ten lookups ask for IDs that do not exist.
+ * <ul>
+ *     <li>{@code baseline}: the original code path, a repository query and an exception with a stack trace</li>
+ *     <li>{@code stacklessOnly}: the lookup filter disabled, so only the stackless exception helps</li>
+ *     <li>{@code withLookupFilter}: misses are rejected by the Bloom filter before reaching the repository</li>
+ * </ul>
+ * Note that the stack here is only a few frames deep. Behind Tomcat and Spring MVC it is
+ * closer to a hundred, so the real cost of the baseline exception is higher.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=ProductLookupMissBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductLookupMissBenchmark {
+
+	private static final int EXISTING_PRODUCTS = 100_000;
+
+	/**
+	 * Simulated cost of one database round trip, in JMH CPU tokens.
+	 */
+	@Param({"1000"})
+	public long repositoryCost;
+
+	private ProductRepository repository;
+	private DatabaseProductService withoutFilter;
+	private DatabaseProductService withFilter;
+	private long next;
+
+	@Setup
+	public void setUp() {
+		repository = stubRepository(repositoryCost);
+
+		// the near cache is disabled so that every lookup measures the miss path
+		ProductNearCache nearCache = new ProductNearCache(null, null, false, 0, 0, Duration.ZERO);
+
+		ProductSuggestionIndex suggestionIndex = new ProductSuggestionIndex(10);
+		PriceHistoryLog priceHistory = new PriceHistoryLog(null, null, false, 2, 1, OverflowPolicy.DROP,
+				Path.of("price-history.spill"));
+		// disabled, so that lookups are measured without the hand-off to a reader thread
+		ProductReadGuard readGuard = new ProductReadGuard(false, Duration.ofSeconds(1), 1, 1, Duration.ofSeconds(1), 1, null);
+
+		withoutFilter = new DatabaseProductService(repository, new ProductLookupFilter(false, EXISTING_PRODUCTS, 0.01),
+				nearCache, suggestionIndex, new ProductStatistics(repository), priceHistory, readGuard, null, null);
+
+		withFilter = new DatabaseProductService(repository, new ProductLookupFilter(true, EXISTING_PRODUCTS, 0.01),
+				nearCache, suggestionIndex, new ProductStatistics(repository), priceHistory, readGuard, null, null);
+		withFilter.rebuildLookupFilter();
+	}
+
+	@Benchmark
+	public void baseline(Blackhole blackhole) {
+		long id = nextId();
+		try {
+			blackhole.consume(repository.findById(id)
+					.orElseThrow(() -> new ProductNotFoundException("Product with id " + id + " not found")));
+		} catch (ProductNotFoundException exception) {
+			blackhole.consume(exception);
+		}
+	}
+
+	@Benchmark
+	public void stacklessOnly(Blackhole blackhole) {
+		lookup(withoutFilter, blackhole);
+	}
+
+	@Benchmark
+	public void withLookupFilter(Blackhole blackhole) {
+		lookup(withFilter, blackhole);
+	}
+
+	private void lookup(DatabaseProductService service, Blackhole blackhole) {
+		try {
+			blackhole.consume(service.getProductById(nextId()));
+		} catch (ProductNotFoundException exception) {
+			blackhole.consume(exception);
+		}
+	}
+
+	// IDs 1..100k exist; every tenth lookup hits, the rest ask for IDs above the range
+	private long nextId() {
+		long i = next++;
+		return i % 10 == 0 ? 1 + (i % EXISTING_PRODUCTS) : EXISTING_PRODUCTS + 1 + i;
+	}
+
+	private static ProductRepository stubRepository(long cost) {
+		Product product = new Product("Existing Product", "An existing product", 10.0, "https://example.com/image.jpg");
+		return (ProductRepository) Proxy.newProxyInstance(
+				ProductRepository.class.getClassLoader(),
+				new Class<?>[]{ProductRepository.class},
+				(proxy, method, args) -> switch (method.getName()) {
+					case "findById" -> {
+						Blackhole.consumeCPU(cost);
+						long id = (Long) args[0];
+						yield id <= EXISTING_PRODUCTS ? Optional.of(product) : Optional.empty();
+					}
+					case "count" -> (long) EXISTING_PRODUCTS;
+					case "streamAllIds" -> LongStream.rangeClosed(1, EXISTING_PRODUCTS).boxed();
+					case "streamAllNames" -> Stream.of(product.getName());
+					default -> throw new UnsupportedOperationException(method.getName());
+				}
+		);
+	}
+}
@@ -0,0 +1,104 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.benchmark;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.PartitionedInMemoryProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.ProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.SnapshotProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the snapshot catalog with the lock-striped partitioned catalog:
+ * <ul>
+ *     <li>{@code publish}: the latency of a price update, which for snapshots is a full publish</li>
+ *     <li>{@code pointRead}: lookups by ID</li>
+ *     <li>{@code cheapestTen}: the ten cheapest products of the whole catalog</li>
+ *     <li>{@code readWhileWriting}: three readers and one writer running together, reported per thread</li>
+ * </ul>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=SnapshotCatalogBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotCatalogBenchmark {
+
+	private static final int PRODUCTS = 200_000;
+
+	@Param({"snapshot", "partitioned"})
+	public String catalogType;
+
+	private ProductService catalog;
+
+	@Setup
+	public void setUp() {
+		List<Product> products = new ArrayList<>(PRODUCTS);
+		for (int i = 1; i <= PRODUCTS; i++) {
+			products.add(new Product("Product " + i, "Benchmark product " + i,
+					1 + (i * 7919L % 10_000) / 100.0, "https://example.com/images/" + i + ".jpg"));
+		}
+		if (catalogType.equals("snapshot")) {
+			SnapshotProductService snapshots = new SnapshotProductService();
+			snapshots.createProducts(products);
+			catalog = snapshots;
+		} else {
+			catalog = new PartitionedInMemoryProductService(0);
+			products.forEach(catalog::createProduct);
+		}
+	}
+
+	@Benchmark
+	public Product publish() {
+		return catalog.updateProductPrice(randomId(), randomPrice());
+	}
+
+	@Benchmark
+	public Product pointRead() {
+		return catalog.getProductById(randomId());
+	}
+
+	@Benchmark
+	public List<Product> cheapestTen() {
+		return catalog.getCheapestProducts(null, null, null, 10);
+	}
+
+	@Benchmark
+	@Group("readWhileWriting")
+	@GroupThreads(3)
+	public Product reader() {
+		return catalog.getProductById(randomId());
+	}
+
+	@Benchmark
+	@Group("readWhileWriting")
+	@GroupThreads(1)
+	public Product writer() {
+		return catalog.updateProductPrice(randomId(), randomPrice());
+	}
+
+	private static long randomId() {
+		return 1 + ThreadLocalRandom.current().nextInt(PRODUCTS);
+	}
+
+	private static double randomPrice() {
+		return 1 + ThreadLocalRandom.current().nextInt(10_000) / 100.0;
+	}
+}
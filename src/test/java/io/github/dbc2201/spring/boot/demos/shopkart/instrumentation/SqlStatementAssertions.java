@@ -0,0 +1,62 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.instrumentation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Assertions on the SQL statements issued by a block of code.
+ * <p>
+ * Requires the instrumented data source, which is active in any Spring Boot test context
+ * unless {@code shopkart.sql.instrumentation.enabled} is set to false. Only statements executed
+ * on the calling thread are counted.
+ * <pre>
+ * assertStatementCount(1, () -> productService.getProductById(id));
+ * assertStatementCount(1, "insert into products", () -> productService.createProduct(product));
+ * </pre>
+ */
+public final class SqlStatementAssertions {
+
+	private SqlStatementAssertions() {
+	}
+
+	/**
+	 * Runs an action and returns the SQL statistics it produced.
+	 *
+	 * @param action the code to measure
+	 * @return the statistics collected while the action ran
+	 */
+	public static SqlStatistics captureStatements(Runnable action) {
+		try (SqlInstrumentation.Capture capture = SqlInstrumentation.capture()) {
+			action.run();
+			return capture.statistics();
+		}
+	}
+
+	/**
+	 * Asserts that an action executes exactly the given number of statements.
+	 *
+	 * @param expected the expected number of statements
+	 * @param action   the code to measure
+	 * @return the statistics collected while the action ran
+	 */
+	public static SqlStatistics assertStatementCount(long expected, Runnable action) {
+		SqlStatistics statistics = captureStatements(action);
+		assertEquals(expected, statistics.statementCount(),
+				() -> "Unexpected number of SQL statements: " + statistics.statementsBySql());
+		return statistics;
+	}
+
+	/**
+	 * Asserts that an action executes exactly the given number of statements containing a SQL fragment.
+	 *
+	 * @param expected the expected number of matching statements
+	 * @param fragment the text the statements must contain, ignoring case
+	 * @param action   the code to measure
+	 * @return the statistics collected while the action ran
+	 */
+	public static SqlStatistics assertStatementCount(long expected, String fragment, Runnable action) {
+		SqlStatistics statistics = captureStatements(action);
+		assertEquals(expected, statistics.statementCount(fragment),
+				() -> "Unexpected number of SQL statements containing '" + fragment + "': " + statistics.statementsBySql());
+		return statistics;
+	}
+}
@@ -0,0 +1,267 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.github.dbc2201.spring.boot.demos.shopkart.ShopkartApplication;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.ProductStatistics;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end HTTP load test for the products API.
+ * <p>
+ * Boots the application on an in-memory H2 database with a random port, seeds it with products,
+ * and then sends a mixed workload against every {@code ProductController} endpoint.
+ * <p>
+ * Requests follow an open model: they are scheduled at a fixed arrival rate whether or not earlier
+ * requests have completed, and latency is measured from the time a request was <em>scheduled</em>
+ * to be sent. A slow server therefore shows up as queueing delay in the results instead of quietly
+ * lowering the request rate (coordinated omission).
+ * <p>
+ * Latencies are recorded per endpoint in HdrHistograms. A summary is printed and a JSON report is
+ * written to the output directory, so results from different builds can be compared.
+ * <p>
+ * Run with {@code mvn -Ploadtest test-compile exec:exec}. The options {@code -Dloadtest.products},
+ * {@code -Dloadtest.rate} (requests per second), {@code -Dloadtest.duration} and {@code -Dloadtest.warmup}
+ * (seconds), {@code -Dloadtest.read-ratio} and {@code -Dloadtest.label} override the defaults.
+ */
+public final class LoadTestHarness {
+
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+	private static final int SEED_BATCH_SIZE = 1000;
+
+	private LoadTestHarness() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = parseOptions(args);
+		int products = Integer.parseInt(options.getOrDefault("products", "10000"));
+		double rate = Double.parseDouble(options.getOrDefault("rate", "500"));
+		long durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+		long warmupSeconds = Long.parseLong(options.getOrDefault("warmup", "10"));
+		double readRatio = Double.parseDouble(options.getOrDefault("read-ratio", "0.9"));
+		String label = options.getOrDefault("label", "local");
+		Path output = Path.of(options.getOrDefault("output", "target/loadtest"));
+
+		// devtools would restart main() in a new class loader with only the Spring arguments
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		ConfigurableApplicationContext context = SpringApplication.run(ShopkartApplication.class,
+				"--server.port=0",
+				"--spring.profiles.active=dev",
+				"--spring.main.banner-mode=off",
+				"--logging.level.root=WARN",
+				"--shopkart.sql.sample-rate=0",
+				"--shopkart.import.work-directory=" + output.resolve("import"));
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+			 HttpClient client = HttpClient.newBuilder().executor(executor).version(HttpClient.Version.HTTP_1_1).build()) {
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			long[] ids = seed(context, products);
+			Workload workload = new Workload("http://localhost:" + port + "/api/products", ids[0], ids[1], readRatio);
+
+			System.out.printf("Seeded %d products, warming up for %d s at %.0f req/s%n", products, warmupSeconds, rate);
+			run(client, workload, rate, TimeUnit.SECONDS.toNanos(warmupSeconds));
+
+			System.out.printf("Measuring for %d s at %.0f req/s%n", durationSeconds, rate);
+			Results results = run(client, workload, rate, TimeUnit.SECONDS.toNanos(durationSeconds));
+
+			Map<String, Object> report = report(label, products, rate, durationSeconds, readRatio, results);
+			print(results);
+			Files.createDirectories(output);
+			String timestamp = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC).format(Instant.now());
+			Path file = output.resolve("loadtest-" + label + "-" + timestamp + ".json");
+			new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+			System.out.println("Report written to " + file.toAbsolutePath());
+		} finally {
+			context.close();
+		}
+	}
+
+	/**
+	 * Returns the name given to the seeded product with the given index.
+	 *
+	 * @param index the zero-based index of the seeded product
+	 * @return the product name
+	 */
+	static String seededName(int index) {
+		return "Load Test Product " + index;
+	}
+
+	private static long[] seed(ConfigurableApplicationContext context, int count) {
+		ProductRepository repository = context.getBean(ProductRepository.class);
+		long firstId = Long.MAX_VALUE;
+		long lastId = Long.MIN_VALUE;
+		List<Product> batch = new ArrayList<>(SEED_BATCH_SIZE);
+		for (int i = 0; i < count; i++) {
+			batch.add(new Product(seededName(i), "Seeded product number " + i + " for load testing",
+					1 + (i % 50_000) / 100.0, "https://example.com/images/" + i + ".jpg"));
+			if (batch.size() == SEED_BATCH_SIZE || i == count - 1) {
+				for (Product saved : repository.saveAll(batch)) {
+					firstId = Math.min(firstId, saved.getId());
+					lastId = Math.max(lastId, saved.getId());
+				}
+				batch.clear();
+			}
+		}
+		// saveAll bypasses the service, so everything built from the catalog at startup is rebuilt
+		DatabaseProductService productService = context.getBean(DatabaseProductService.class);
+		productService.rebuildLookupFilter();
+		productService.rebuildSuggestionIndex();
+		context.getBean(ProductStatistics.class).reconcile();
+		return new long[]{firstId, lastId};
+	}
+
+	private static Results run(HttpClient client, Workload workload, double rate, long durationNanos) throws InterruptedException {
+		Results results = new Results(workload);
+		long interval = (long) (1_000_000_000L / rate);
+		long start = System.nanoTime();
+		long end = start + durationNanos;
+		for (long i = 0; ; i++) {
+			long intendedStart = start + i * interval;
+			if (intendedStart >= end) {
+				break;
+			}
+			long wait = intendedStart - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			Workload.Operation operation = workload.next(ThreadLocalRandom.current());
+			EndpointResults endpoint = results.byEndpoint.get(operation.endpoint());
+			results.inFlight.incrementAndGet();
+			client.sendAsync(operation.request().apply(ThreadLocalRandom.current()), HttpResponse.BodyHandlers.discarding())
+					.whenComplete((response, error) -> {
+						// measured from the scheduled start, not the actual send, to avoid coordinated omission
+						endpoint.record(System.nanoTime() - intendedStart, response == null ? -1 : response.statusCode());
+						results.inFlight.decrementAndGet();
+					});
+		}
+		results.elapsedNanos = System.nanoTime() - start;
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+		while (results.inFlight.get() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		return results;
+	}
+
+	private static Map<String, Object> report(String label, int products, double rate, long durationSeconds,
+											  double readRatio, Results results) {
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("label", label);
+		report.put("timestamp", Instant.now().toString());
+		report.put("javaVersion", System.getProperty("java.version"));
+		report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+		report.put("products", products);
+		report.put("targetRate", rate);
+		report.put("durationSeconds", durationSeconds);
+		report.put("readRatio", readRatio);
+		List<Map<String, Object>> endpoints = new ArrayList<>();
+		long total = 0;
+		for (EndpointResults endpoint : results.byEndpoint.values()) {
+			Histogram histogram = endpoint.histogram;
+			total += histogram.getTotalCount();
+			Map<String, Object> entry = new LinkedHashMap<>();
+			entry.put("endpoint", endpoint.name);
+			entry.put("count", histogram.getTotalCount());
+			entry.put("serverErrors", endpoint.serverErrors.get());
+			entry.put("clientErrors", endpoint.clientErrors.get());
+			entry.put("failures", endpoint.failures.get());
+			entry.put("meanMs", histogram.getMean() / 1000.0);
+			entry.put("p50Ms", millis(histogram, 50));
+			entry.put("p99Ms", millis(histogram, 99));
+			entry.put("p999Ms", millis(histogram, 99.9));
+			entry.put("maxMs", histogram.getMaxValue() / 1000.0);
+			endpoints.add(entry);
+		}
+		report.put("achievedRate", total * 1_000_000_000.0 / results.elapsedNanos);
+		report.put("endpoints", endpoints);
+		return report;
+	}
+
+	private static void print(Results results) {
+		System.out.printf("%-38s %8s %7s %9s %9s %9s %9s%n", "endpoint", "count", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+		for (EndpointResults endpoint : results.byEndpoint.values()) {
+			Histogram histogram = endpoint.histogram;
+			System.out.printf("%-38s %8d %7d %9.2f %9.2f %9.2f %9.2f%n", endpoint.name, histogram.getTotalCount(),
+					endpoint.serverErrors.get() + endpoint.failures.get(), millis(histogram, 50), millis(histogram, 99),
+					millis(histogram, 99.9), histogram.getMaxValue() / 1000.0);
+		}
+	}
+
+	private static double millis(Histogram histogram, double percentile) {
+		return histogram.getValueAtPercentile(percentile) / 1000.0;
+	}
+
+	private static Map<String, String> parseOptions(String[] args) {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (String arg : args) {
+			if (arg.startsWith("--") && arg.contains("=")) {
+				options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+			}
+		}
+		return options;
+	}
+
+	/**
+	 * The results of one run, per endpoint.
+	 */
+	private static final class Results {
+		private final Map<String, EndpointResults> byEndpoint = new LinkedHashMap<>();
+		private final AtomicLong inFlight = new AtomicLong();
+		private long elapsedNanos;
+
+		private Results(Workload workload) {
+			workload.operations().forEach(operation ->
+					byEndpoint.put(operation.endpoint(), new EndpointResults(operation.endpoint())));
+		}
+	}
+
+	/**
+	 * Latency histogram and error counters of one endpoint.
+	 */
+	private static final class EndpointResults {
+		private final String name;
+		private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+		private final AtomicLong serverErrors = new AtomicLong();
+		private final AtomicLong clientErrors = new AtomicLong();
+		private final AtomicLong failures = new AtomicLong();
+
+		private EndpointResults(String name) {
+			this.name = name;
+		}
+
+		private void record(long latencyNanos, int status) {
+			histogram.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, latencyNanos / 1000));
+			if (status < 0) {
+				failures.incrementAndGet();
+			} else if (status >= 500) {
+				serverErrors.incrementAndGet();
+			} else if (status >= 400) {
+				// mostly 404s for products that a concurrent DELETE already removed
+				clientErrors.incrementAndGet();
+			}
+		}
+	}
+}
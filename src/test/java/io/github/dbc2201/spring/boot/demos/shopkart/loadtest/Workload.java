@@ -0,0 +1,170 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The mix of requests sent by the load test, covering every {@code ProductController} endpoint.
+ * <p>
+ * Operations are split into reads and writes. The read ratio decides which group the next request
+ * comes from, and the weights decide the operation within the group.
+ */
+final class Workload {
+
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+	private final String baseUrl;
+	private final long firstId;
+	private final long lastId;
+	private final double readRatio;
+	private final List<Operation> reads = new ArrayList<>();
+	private final List<Operation> writes = new ArrayList<>();
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * Creates the workload.
+	 *
+	 * @param baseUrl   the URL of the products API, for example {@code http://localhost:8080/api/products}
+	 * @param firstId   the first seeded product ID
+	 * @param lastId    the last seeded product ID
+	 * @param readRatio the fraction of requests that are reads, between 0 and 1
+	 */
+	Workload(String baseUrl, long firstId, long lastId, double readRatio) {
+		this.baseUrl = baseUrl;
+		this.firstId = firstId;
+		this.lastId = lastId;
+		this.readRatio = readRatio;
+
+		reads.add(new Operation("GET /api/products", 1, random -> get("")));
+		reads.add(new Operation("GET /api/products/{id}", 10, random -> get("/" + randomId(random))));
+		reads.add(new Operation("GET /api/products/byName", 5,
+				random -> get("/byName?name=" + encode(LoadTestHarness.seededName(randomIndex(random))))));
+		reads.add(new Operation("GET /api/products/cheapest", 2,
+				random -> get("/cheapest?limit=20&keyword=" + random.nextInt(10))));
+		reads.add(new Operation("GET /api/products/most-expensive", 2, random -> {
+			double max = randomPrice(random);
+			return get("/most-expensive?limit=20&minPrice=" + max / 2 + "&maxPrice=" + max);
+		}));
+		reads.add(new Operation("GET /api/products/suggest", 5, random -> {
+			String name = LoadTestHarness.seededName(randomIndex(random));
+			return get("/suggest?limit=10&prefix=" + encode(name.substring(0, 1 + random.nextInt(name.length()))));
+		}));
+		reads.add(new Operation("GET /api/products/stats", 2, random -> get("/stats")));
+		reads.add(new Operation("GET /api/products/{id}/price-history", 2,
+				random -> get("/" + randomId(random) + "/price-history?limit=20")));
+
+		writes.add(new Operation("POST /api/products", 4, random -> send("POST", "", "application/json",
+				productJson("Load Test Created " + sequence.incrementAndGet(), random))));
+		writes.add(new Operation("PUT /api/products/{id}/price", 4,
+				random -> send("PUT", "/" + randomId(random) + "/price?price=" + randomPrice(random), null, null)));
+		writes.add(new Operation("PUT /api/products/{id}/name", 1,
+				random -> send("PUT", "/" + randomId(random) + "/name?name="
+						+ encode("Load Test Renamed " + sequence.incrementAndGet()), null, null)));
+		writes.add(new Operation("PUT /api/products/{id}/description", 1,
+				random -> send("PUT", "/" + randomId(random) + "/description?description="
+						+ encode("Updated description number " + sequence.incrementAndGet()), null, null)));
+		writes.add(new Operation("PUT /api/products/{id}/imageUrl", 1,
+				random -> send("PUT", "/" + randomId(random) + "/imageUrl?imageUrl="
+						+ encode("https://example.com/images/updated-" + sequence.incrementAndGet() + ".jpg"), null, null)));
+		writes.add(new Operation("DELETE /api/products/{id}", 1, random -> send("DELETE", "/" + randomId(random), null, null)));
+		writes.add(new Operation("PUT /api/products/prices", 0.1, random -> {
+			// a one-unit-wide range keeps each bulk update to a small slice of the catalog
+			double min = Math.floor(randomPrice(random));
+			return send("PUT", "/prices", "application/json",
+					"{\"minPrice\":" + min + ",\"maxPrice\":" + (min + 1) + ",\"type\":\"PERCENTAGE\",\"amount\":1}");
+		}));
+		writes.add(new Operation("POST /api/products/import", 0.1, random -> {
+			StringBuilder csv = new StringBuilder("name,description,price,imageUrl\n");
+			long batch = sequence.incrementAndGet();
+			for (int i = 0; i < 10; i++) {
+				csv.append("Imported ").append(batch).append('-').append(i)
+						.append(",Imported during the load test,").append(randomPrice(random))
+						.append(",https://example.com/images/imported.jpg\n");
+			}
+			return send("POST", "/import?jobId=loadtest-" + batch, "text/csv", csv.toString());
+		}));
+	}
+
+	/**
+	 * Picks the next operation according to the read ratio and the weights.
+	 *
+	 * @param random the random source to use
+	 * @return the next operation
+	 */
+	Operation next(ThreadLocalRandom random) {
+		List<Operation> group = random.nextDouble() < readRatio ? reads : writes;
+		double total = group.stream().mapToDouble(Operation::weight).sum();
+		double pick = random.nextDouble(total);
+		for (Operation operation : group) {
+			pick -= operation.weight();
+			if (pick < 0) {
+				return operation;
+			}
+		}
+		return group.getLast();
+	}
+
+	/**
+	 * Returns every operation of the workload.
+	 *
+	 * @return the read operations followed by the write operations
+	 */
+	List<Operation> operations() {
+		List<Operation> all = new ArrayList<>(reads);
+		all.addAll(writes);
+		return all;
+	}
+
+	private HttpRequest get(String path) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT).GET().build();
+	}
+
+	private HttpRequest send(String method, String path, String contentType, String body) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT);
+		if (contentType != null) {
+			builder.header("Content-Type", contentType);
+		}
+		return builder.method(method, body == null
+				? HttpRequest.BodyPublishers.noBody()
+				: HttpRequest.BodyPublishers.ofString(body)).build();
+	}
+
+	private String productJson(String name, ThreadLocalRandom random) {
+		return "{\"name\":\"" + name + "\",\"description\":\"Created during the load test\",\"price\":"
+				+ randomPrice(random) + ",\"imageUrl\":\"https://example.com/images/created.jpg\"}";
+	}
+
+	private long randomId(ThreadLocalRandom random) {
+		return random.nextLong(firstId, lastId + 1);
+	}
+
+	private int randomIndex(ThreadLocalRandom random) {
+		return (int) random.nextLong(0, lastId - firstId + 1);
+	}
+
+	private static double randomPrice(ThreadLocalRandom random) {
+		return Math.round(random.nextDouble(1, 500) * 100) / 100.0;
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * One kind of request in the workload.
+	 *
+	 * @param endpoint the endpoint label used in the report
+	 * @param weight   the relative frequency within its read or write group
+	 * @param request  builds a request for this operation
+	 */
+	record Operation(String endpoint, double weight, Function<ThreadLocalRandom, HttpRequest> request) {
+	}
+}
@@ -0,0 +1,134 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.generator.CatalogGenerator;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.generator.CatalogWriter;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.generator.GeneratedCatalog;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.InMemoryProductService;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests for the synthetic catalog generator, its database writer and its JUnit extension.
+ * Runs against the in-memory H2 database of the dev profile.
+ */
+@SpringBootTest
+@ActiveProfiles("dev")
+class CatalogGeneratorTest {
+
+	private static final int SAMPLE_SIZE = 20_000;
+
+	@Autowired
+	private Validator validator;
+
+	@Autowired
+	private DatabaseProductService databaseProductService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private CatalogWriter catalogWriter;
+
+	@AfterEach
+	void tearDown() {
+		// replacing with an empty catalog also rebuilds the indexes and statistics shared with later tests
+		catalogWriter.write(new CatalogGenerator(), 0, true);
+	}
+
+	/**
+	 * Test that a seed always gives the same valid products, whatever order they are generated in.
+	 */
+	@Test
+	@DisplayName("Should generate the same valid, uniquely named products for the same seed")
+	void testDeterministicAndValid() {
+		CatalogGenerator generator = new CatalogGenerator(7);
+		List<Product> products = generator.products(SAMPLE_SIZE).toList();
+
+		assertEquals(products.get(12_345), new CatalogGenerator(7).product(12_345));
+		assertNotEquals(products.get(12_345).getName(), new CatalogGenerator(8).product(12_345).getName());
+		Set<String> names = new HashSet<>();
+		for (Product product : products) {
+			assertTrue(validator.validate(product).isEmpty(), () -> "invalid product " + product);
+			assertTrue(product.getPrice() > 0, () -> "free product " + product);
+			names.add(product.getName());
+		}
+		assertEquals(SAMPLE_SIZE, names.size());
+	}
+
+	/**
+	 * Test that the catalog looks like a real one: varied lengths, shared name tokens and skewed prices.
+	 */
+	@Test
+	@DisplayName("Should generate varied lengths, shared name tokens and skewed prices")
+	void testDistributions() {
+		List<Product> products = new CatalogGenerator().products(SAMPLE_SIZE).toList();
+
+		int[] nameLengths = products.stream().mapToInt(product -> product.getName().length()).sorted().toArray();
+		int[] descriptionLengths = products.stream().mapToInt(product -> product.getDescription().length()).sorted().toArray();
+		assertTrue(nameLengths[0] < 20 && nameLengths[nameLengths.length - 1] > 40, Arrays.toString(
+				new int[]{nameLengths[0], nameLengths[nameLengths.length - 1]}));
+		assertTrue(descriptionLengths[0] < 40 && descriptionLengths[descriptionLengths.length - 1] > 90);
+
+		// the most common token is shared by many products, but far from all of them
+		Map<String, Integer> tokenCounts = new HashMap<>();
+		products.forEach(product -> new HashSet<>(Arrays.asList(product.getName().split(" ")))
+				.forEach(token -> tokenCounts.merge(token, 1, Integer::sum)));
+		int mostCommon = Collections.max(tokenCounts.values());
+		assertTrue(mostCommon > SAMPLE_SIZE / 10 && mostCommon < SAMPLE_SIZE / 2, "most common token in " + mostCommon);
+
+		double[] prices = products.stream().mapToDouble(Product::getPrice).sorted().toArray();
+		double mean = Arrays.stream(prices).average().orElseThrow();
+		double median = prices[prices.length / 2];
+		assertTrue(mean > 1.2 * median, "mean " + mean + ", median " + median);
+		assertTrue(prices[prices.length - 1] > 20 * median);
+	}
+
+	/**
+	 * Test that the extension hands tests an in-memory service holding the requested catalog.
+	 */
+	@Test
+	@GeneratedCatalog(products = 1_000, seed = 3)
+	@DisplayName("Should provide an in-memory catalog of the requested size")
+	void testInMemoryCatalog(InMemoryProductService catalog, CatalogGenerator generator) {
+		assertEquals(1_000, catalog.getAllProducts().size());
+		assertEquals(generator.product(499), catalog.getProductById(500));
+	}
+
+	/**
+	 * Test that the extension writes the catalog to the database with the in-memory indexes rebuilt.
+	 */
+	@Test
+	@GeneratedCatalog(products = 5_000, destination = GeneratedCatalog.Destination.DATABASE)
+	@DisplayName("Should write the catalog to the database and rebuild the indexes")
+	void testDatabaseCatalog(CatalogGenerator generator) {
+		assertEquals(5_000, productRepository.count());
+		assertEquals(5_000, databaseProductService.getProductStats().count());
+
+		Product expected = generator.product(4_321);
+		Product found = databaseProductService.getProductByName(expected.getName());
+		assertEquals(expected.getDescription(), found.getDescription());
+		assertEquals(expected.getPrice(), found.getPrice());
+		assertEquals(expected.getName(),
+				databaseProductService.suggestProducts(expected.getName(), 1).getFirst().name());
+	}
+}
@@ -0,0 +1,161 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.PriceAdjustmentType;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.ColumnarInMemoryProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.ColumnarInMemoryProductService.MemoryFootprint;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.ColumnarInMemoryProductService.PriceSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the ColumnarInMemoryProductService class.
+ */
+class ColumnarInMemoryProductServiceTest {
+
+	private ColumnarInMemoryProductService productService;
+
+	@BeforeEach
+	void setUp() {
+		productService = new ColumnarInMemoryProductService();
+		for (int i = 1; i <= 100; i++) {
+			productService.createProduct(new Product((i % 2 == 0 ? "Desk " : "Lamp ") + i,
+					"Description " + i, i, "https://example.com/" + i + ".jpg"));
+		}
+	}
+
+	/**
+	 * Test that point operations read and write the right row and return detached copies.
+	 */
+	@Test
+	@DisplayName("Should assign IDs and update rows through copies")
+	void testPointOperations() {
+		assertEquals(IntStream.rangeClosed(1, 100).asLongStream().boxed().toList(),
+				productService.getAllProducts().stream().map(Product::getId).toList());
+
+		Product product = productService.getProductById(42);
+		assertEquals("Desk 42", product.getName());
+		assertEquals("Description 42", product.getDescription());
+		assertEquals("https://example.com/42.jpg", product.getImageUrl());
+		product.setPrice(1000);
+		assertEquals(42.0, productService.getProductById(42).getPrice());
+		assertNotSame(product, productService.getProductById(42));
+
+		assertEquals(9.5, productService.updateProductPrice(9, 9.5).getPrice());
+		assertEquals("Desk 8", productService.updateProductName(9, "Desk 8").getName());
+		assertEquals(8, productService.getProductByName("Desk 8").getId());
+		assertEquals("New description", productService.updateProductDescription(9, "New description").getDescription());
+		assertNull(productService.updateProductImageUrl(1000, "https://example.com/x.jpg"));
+		assertNull(productService.getProductByName("Missing"));
+
+		assertTrue(productService.deleteProduct(8));
+		assertFalse(productService.deleteProduct(8));
+		assertNull(productService.getProductById(8));
+		assertEquals(9, productService.getProductByName("Desk 8").getId());
+		assertThrows(ProductValidationException.class, () -> {
+			Product duplicate = new Product("Duplicate", "Duplicate", 1, "https://example.com/d.jpg");
+			duplicate.setId(10);
+			productService.createProduct(duplicate);
+		});
+	}
+
+	/**
+	 * Test that column scans filter, rank and reprice like the object-based services.
+	 */
+	@Test
+	@DisplayName("Should rank, suggest, summarize and reprice from the columns")
+	void testColumnScans() {
+		assertEquals(List.of(2L, 4L, 6L),
+				productService.getCheapestProducts("DESK", null, null, 3).stream().map(Product::getId).toList());
+		assertEquals(List.of(99L, 97L),
+				productService.getMostExpensiveProducts("lamp", 97.0, null, 5).stream().map(Product::getId).toList());
+		assertEquals(List.of("Desk 2", "Desk 4"),
+				productService.suggestProducts("desk", 2).stream().map(ProductSuggestion::name).toList());
+		assertEquals(new PriceSummary(10, 145, 10, 19), productService.summarizePrices(10.0, 19.0));
+
+		long changed = productService.repriceProducts(
+				new BulkRepricingRequest(10.0, 19.0, null, PriceAdjustmentType.ABSOLUTE, 100));
+
+		assertEquals(10, changed);
+		assertEquals(110.0, productService.getProductById(10).getPrice());
+		assertEquals(List.of(1L, 2L, 3L),
+				productService.getCheapestProducts(null, null, null, 3).stream().map(Product::getId).toList());
+	}
+
+	/**
+	 * Test that tombstoned rows are skipped and later compacted away without losing live products.
+	 */
+	@Test
+	@DisplayName("Should skip tombstones and compact the columns")
+	void testTombstonesAndCompaction() {
+		for (int i = 101; i <= 2000; i++) {
+			productService.createProduct(new Product("Bulk " + i, "Bulk description", i, "https://example.com/bulk.jpg"));
+		}
+		for (long id = 1; id <= 1500; id++) {
+			assertTrue(productService.deleteProduct(id));
+		}
+
+		assertEquals(500, productService.getAllProducts().size());
+		assertNull(productService.getProductById(1500));
+		assertEquals("Bulk 1501", productService.getProductById(1501).getName());
+		assertEquals(List.of(1501L), productService.getCheapestProducts("bulk", null, null, 1)
+				.stream().map(Product::getId).toList());
+		assertEquals(2001, productService.createProduct(
+				new Product("After compaction", "Description", 1, "https://example.com/a.jpg")).getId());
+		assertEquals(501, productService.getAllProducts().size());
+	}
+
+	/**
+	 * Test that strings replaced by updates are dropped from the dictionaries without any deletes.
+	 */
+	@Test
+	@DisplayName("Should compact the dictionaries after many updates")
+	void testUpdatesCompactDictionaries() {
+		long bytesBefore = productService.memoryFootprint().columnarBytes();
+
+		for (int i = 0; i < 20_000; i++) {
+			productService.updateProductName(1, "Renamed " + i);
+			productService.updateProductDescription(2, "Rewritten " + i);
+		}
+
+		assertEquals("Renamed 19999", productService.getProductById(1).getName());
+		assertEquals("Rewritten 19999", productService.getProductById(2).getDescription());
+		assertEquals("Lamp 3", productService.getProductById(3).getName());
+		assertEquals(100, productService.getAllProducts().size());
+		// bounded by the compaction threshold, far below the 40,000 strings written
+		assertTrue(productService.memoryFootprint().columnarBytes() < bytesBefore + 1024 * 2 * 150,
+				productService.memoryFootprint().toString());
+	}
+
+	/**
+	 * Test that shared strings and primitive columns take less memory than a list of objects.
+	 */
+	@Test
+	@DisplayName("Should use less memory per product than the object layout")
+	void testMemoryFootprint() {
+		for (int i = 101; i <= 10_000; i++) {
+			productService.createProduct(new Product("Product " + (i % 500), "Shared description",
+					i, "https://example.com/images/shared.jpg"));
+		}
+
+		MemoryFootprint footprint = productService.memoryFootprint();
+
+		assertEquals(10_000, footprint.products());
+		assertTrue(footprint.columnarBytesPerProduct() * 2 < footprint.objectLayoutBytesPerProduct(),
+				footprint.toString());
+	}
+}
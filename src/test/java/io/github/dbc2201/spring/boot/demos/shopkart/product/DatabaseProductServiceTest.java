@@ -4,25 +4,36 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductLookupFilter;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductNearCache;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductNotFoundException;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.history.PriceHistoryLog;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.resilience.ProductReadGuard;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.search.ProductSuggestionIndex;
 import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.ProductStatistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 /**
@@ -35,6 +46,25 @@ class DatabaseProductServiceTest {
 	@Mock
 	private ProductRepository productRepository;
 
+	@Spy
+	private ProductLookupFilter lookupFilter = new ProductLookupFilter(true, 1000, 0.01);
+
+	@Mock
+	private ProductNearCache nearCache;
+
+	@Spy
+	private ProductSuggestionIndex suggestionIndex = new ProductSuggestionIndex(10);
+
+	@Mock
+	private ProductStatistics productStatistics;
+
+	@Mock
+	private PriceHistoryLog priceHistory;
+
+	// disabled, so that reads run directly against the mocked repository
+	@Spy
+	private ProductReadGuard readGuard = new ProductReadGuard(false, Duration.ofSeconds(1), 1, 1, Duration.ofSeconds(1), 1, null);
+
 	@InjectMocks
 	private DatabaseProductService productService;
 
@@ -140,4 +170,65 @@ class DatabaseProductServiceTest {
 		// Act & Assert
 		assertThrows(ProductNotFoundException.class, () -> productService.getProductById(99L));
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Test that lookups for products that were never stored skip the repository.
+	 */
+	@Test
+	@DisplayName("Should reject unknown IDs and names without querying the repository")
+	void testLookupFilterRejectsMisses() {
+		// Arrange
+		when(productRepository.count()).thenReturn(1L);
+		when(productRepository.streamAllIds()).thenReturn(Stream.of(1L));
+		when(productRepository.streamAllNames()).thenReturn(Stream.of("Test Product"));
+		productService.rebuildLookupFilter();
+
+		// Act & Assert
+		assertThrows(ProductNotFoundException.class, () -> productService.getProductById(99L));
+		assertThrows(ProductNotFoundException.class, () -> productService.getProductByName("Missing Product"));
+
+		verify(productRepository, never()).findById(anyLong());
+		verify(productRepository, never()).findByName(anyString());
+	}
+
+	/**
+	 * Test that names differing only in case, accents or trailing spaces still reach the repository,
+	 * as the production collation treats them as equal.
+	 */
+	@Test
+	@DisplayName("Should pass names the database collation treats as equal to the repository")
+	void testLookupFilterFoldsNames() {
+		// Arrange
+		when(productRepository.count()).thenReturn(1L);
+		when(productRepository.streamAllIds()).thenReturn(Stream.of(1L));
+		when(productRepository.streamAllNames()).thenReturn(Stream.of("Café Table"));
+		productService.rebuildLookupFilter();
+		when(productRepository.findByName(anyString())).thenReturn(Optional.of(testProduct));
+
+		// Act & Assert
+		assertEquals(testProduct, productService.getProductByName("cafe table  "));
+		assertEquals(testProduct, productService.getProductByName("CAFÉ TABLE"));
+	}
+
+	/**
+	 * Test that products created after the filter was built are still found.
+	 */
+	@Test
+	@DisplayName("Should find products created after the lookup filter was built")
+	void testLookupFilterRecordsNewProducts() {
+		// Arrange
+		when(productRepository.count()).thenReturn(0L);
+		when(productRepository.streamAllIds()).thenReturn(Stream.empty());
+		when(productRepository.streamAllNames()).thenReturn(Stream.empty());
+		productService.rebuildLookupFilter();
+		when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+		when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+
+		// Act
+		productService.createProduct(testProduct);
+		Product found = productService.getProductById(1L);
+
+		// Assert
+		assertEquals("Test Product", found.getName());
+	}
+}
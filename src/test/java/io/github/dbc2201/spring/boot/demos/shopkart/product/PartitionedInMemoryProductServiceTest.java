@@ -0,0 +1,123 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.PriceAdjustmentType;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.PartitionedInMemoryProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the PartitionedInMemoryProductService class.
+ */
+class PartitionedInMemoryProductServiceTest {
+
+	private PartitionedInMemoryProductService productService;
+
+	@BeforeEach
+	void setUp() {
+		productService = new PartitionedInMemoryProductService(8);
+		for (int i = 1; i <= 100; i++) {
+			productService.createProduct(new Product("Product " + i, "Description " + i, i, "https://example.com/" + i + ".jpg"));
+		}
+	}
+
+	/**
+	 * Test that point operations and scans see the same products across all partitions.
+	 */
+	@Test
+	@DisplayName("Should assign IDs and find products across partitions")
+	void testPointOperationsAndScans() {
+		assertEquals(8, productService.partitionCount());
+		assertEquals(100, productService.getAllProducts().size());
+		assertEquals(IntStream.rangeClosed(1, 100).asLongStream().boxed().toList(),
+				productService.getAllProducts().stream().map(Product::getId).toList());
+
+		assertEquals("Product 42", productService.getProductById(42).getName());
+		assertEquals(42, productService.getProductByName("Product 42").getId());
+		assertNull(productService.getProductById(1000));
+		assertNull(productService.getProductByName("Missing"));
+
+		assertEquals(9.5, productService.updateProductPrice(9, 9.5).getPrice());
+		assertTrue(productService.deleteProduct(9));
+		assertFalse(productService.deleteProduct(9));
+		assertThrows(ProductValidationException.class, () -> {
+			Product duplicate = new Product("Duplicate", "Duplicate", 1, "https://example.com/d.jpg");
+			duplicate.setId(10);
+			productService.createProduct(duplicate);
+		});
+	}
+
+	/**
+	 * Test that callers never hold a stored product, so later updates cannot race with their reads.
+	 */
+	@Test
+	@DisplayName("Should return copies that later updates do not change")
+	void testReturnsCopies() {
+		Product read = productService.getProductById(7);
+		productService.updateProductPrice(7, 70);
+		assertEquals(7, read.getPrice());
+
+		read.setName("Changed by caller");
+		productService.updateProductName(8, "Renamed").setName("Changed by caller");
+		assertEquals("Product 7", productService.getProductById(7).getName());
+		assertEquals("Renamed", productService.getProductById(8).getName());
+	}
+
+	/**
+	 * Test that rankings and repricing merge the results of every partition.
+	 */
+	@Test
+	@DisplayName("Should merge rankings and repricing across partitions")
+	void testMergedScans() {
+		assertEquals(List.of(1L, 2L, 3L),
+				productService.getCheapestProducts(null, null, null, 3).stream().map(Product::getId).toList());
+		assertEquals(List.of(100L, 99L),
+				productService.getMostExpensiveProducts(null, 99.0, null, 5).stream().map(Product::getId).toList());
+
+		long changed = productService.repriceProducts(
+				new BulkRepricingRequest(10.0, 19.0, null, PriceAdjustmentType.ABSOLUTE, 100));
+
+		assertEquals(10, changed);
+		assertEquals(110.0, productService.getProductById(10).getPrice());
+	}
+
+	/**
+	 * Test that concurrent writers to different partitions do not lose products.
+	 */
+	@Test
+	@DisplayName("Should not lose products under concurrent creates")
+	void testConcurrentCreates() throws Exception {
+		try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				int thread = t;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 1000; i++) {
+						productService.createProduct(
+								new Product("Concurrent " + thread + "-" + i, "Concurrent", 5, "https://example.com/c.jpg"));
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		assertEquals(8100, productService.getAllProducts().size());
+	}
+}
@@ -0,0 +1,235 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.history.MpscRingBuffer;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.history.OverflowPolicy;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.history.PriceHistoryLog;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.PriceAdjustmentType;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.PriceHistoryEntry;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.PriceHistoryRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests for the asynchronous price history log and its ring buffer.
+ * Runs against the in-memory H2 database of the dev profile.
+ */
+@SpringBootTest
+@ActiveProfiles("dev")
+class PriceHistoryTest {
+
+	private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(10);
+
+	@Autowired
+	private DatabaseProductService databaseProductService;
+
+	@Autowired
+	private PriceHistoryLog priceHistory;
+
+	@Autowired
+	private PriceHistoryRepository historyRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@TempDir
+	private Path workDirectory;
+
+	/**
+	 * Test that creation, price updates and bulk repricing all end up in the history, newest first.
+	 */
+	@Test
+	@DisplayName("Should log every price a product is given")
+	void testHistoryOfProduct() {
+		Product product = databaseProductService.createProduct(new Product("History Product",
+				"Product with a price history", 10.0, "https://example.com/history.jpg"));
+		long id = product.getId();
+		databaseProductService.updateProductPrice(id, 12.5);
+		databaseProductService.updateProductPrice(id, 15.0);
+		assertTrue(priceHistory.flush(FLUSH_TIMEOUT));
+		databaseProductService.repriceProducts(
+				new BulkRepricingRequest(null, null, "history product", PriceAdjustmentType.PERCENTAGE, 10));
+
+		List<PriceHistoryEntry> history = priceHistory.history(id, 10);
+		assertEquals(List.of(16.5, 15.0, 12.5, 10.0), history.stream().map(PriceHistoryEntry::getNewPrice).toList());
+		assertEquals(15.0, history.get(0).getOldPrice());
+		assertEquals(10.0, history.get(2).getOldPrice());
+		assertNull(history.get(3).getOldPrice());
+		assertEquals(2, priceHistory.history(id, 2).size());
+	}
+
+	/**
+	 * Test that elements offered concurrently are all received once, in each producer's order.
+	 */
+	@Test
+	@DisplayName("Should pass every element from many producers to the consumer in order")
+	void testRingBufferWithConcurrentProducers() throws InterruptedException {
+		int producers = 4;
+		int perProducer = 10_000;
+		MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(64);
+		assertEquals(64, buffer.capacity());
+
+		AtomicBoolean failed = new AtomicBoolean();
+		List<Thread> threads = new ArrayList<>();
+		for (int producer = 0; producer < producers; producer++) {
+			long p = producer;
+			threads.add(Thread.ofPlatform().start(() -> {
+				for (long i = 0; i < perProducer; i++) {
+					while (!buffer.offer(new long[]{p, i})) {
+						Thread.yield();
+					}
+				}
+			}));
+		}
+		long[] next = new long[producers];
+		long received = 0;
+		while (received < (long) producers * perProducer) {
+			long[] element = buffer.poll();
+			if (element == null) {
+				Thread.yield();
+				continue;
+			}
+			if (element[1] != next[(int) element[0]]++) {
+				failed.set(true);
+			}
+			received++;
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertFalse(failed.get());
+		assertNull(buffer.poll());
+
+		MpscRingBuffer<String> full = new MpscRingBuffer<>(2);
+		assertTrue(full.offer("a"));
+		assertTrue(full.offer("b"));
+		assertFalse(full.offer("c"));
+		assertEquals("a", full.poll());
+		assertTrue(full.offer("c"));
+		assertEquals(2, full.size());
+	}
+
+	/**
+	 * Test that a full buffer drops changes with the DROP policy, and spills and later replays
+	 * them with the SPILL policy.
+	 */
+	@Test
+	@DisplayName("Should drop or spill changes that do not fit in the buffer")
+	void testOverflowPolicies() throws InterruptedException {
+		PriceHistoryLog dropping = new PriceHistoryLog(jdbcTemplate, historyRepository, true, 2, 10,
+				OverflowPolicy.DROP, workDirectory.resolve("drop.csv"));
+		for (int i = 1; i <= 5; i++) {
+			dropping.recordPriceChange(900_001, i, i + 1);
+		}
+		assertEquals(3, dropping.droppedCount());
+
+		PriceHistoryLog spilling = new PriceHistoryLog(jdbcTemplate, historyRepository, true, 2, 10,
+				OverflowPolicy.SPILL, workDirectory.resolve("spill.csv"));
+		for (int i = 1; i <= 5; i++) {
+			spilling.recordPriceChange(900_002, i, i + 1);
+		}
+		assertEquals(3, spilling.spilledCount());
+		assertEquals(0, spilling.droppedCount());
+
+		spilling.start();
+		try {
+			assertTrue(spilling.flush(FLUSH_TIMEOUT));
+		} finally {
+			spilling.stop();
+		}
+		assertEquals(5, spilling.writtenCount());
+		assertEquals(0, spilling.spilledCount());
+		assertEquals(List.of(6.0, 5.0, 4.0, 3.0, 2.0), spilling.history(900_002, 10).stream()
+				.map(PriceHistoryEntry::getNewPrice).sorted((a, b) -> Double.compare(b, a)).toList());
+	}
+
+	/**
+	 * Test that the BLOCK policy retries a batch the database failed to write instead of dropping it.
+	 */
+	@Test
+	@DisplayName("Should retry failed batches with the BLOCK policy")
+	void testBlockRetriesFailedBatches() throws InterruptedException {
+		AtomicInteger failures = new AtomicInteger(2);
+		JdbcTemplate failingTemplate = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+			@Override
+			public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+										   ParameterizedPreparedStatementSetter<T> pss) {
+				if (failures.getAndDecrement() > 0) {
+					throw new DataAccessResourceFailureException("database unavailable");
+				}
+				return super.batchUpdate(sql, batchArgs, batchSize, pss);
+			}
+		};
+		PriceHistoryLog blocking = new PriceHistoryLog(failingTemplate, historyRepository, true, 4, 10,
+				OverflowPolicy.BLOCK, workDirectory.resolve("block.csv"));
+
+		blocking.start();
+		try {
+			for (int i = 1; i <= 3; i++) {
+				blocking.recordPriceChange(900_004, i, i + 1);
+			}
+			assertTrue(blocking.flush(FLUSH_TIMEOUT));
+		} finally {
+			blocking.stop();
+		}
+		assertEquals(3, blocking.writtenCount());
+		assertEquals(0, blocking.droppedCount());
+		assertEquals(3, blocking.history(900_004, 10).size());
+	}
+
+	/**
+	 * Test that an interrupted replay resumes after the lines already written, and that a line cut
+	 * short by a crash is skipped instead of failing the whole file.
+	 */
+	@Test
+	@DisplayName("Should resume an interrupted replay and skip unreadable lines")
+	void testReplayResumesAndSkipsUnreadableLines() throws IOException, InterruptedException {
+		Instant changedAt = Instant.parse("2024-01-01T00:00:00Z");
+		Files.write(workDirectory.resolve("spill.csv.replay"), List.of(
+				"900003,1.0,2.0," + changedAt,
+				"900003,2.0,3.0," + changedAt,
+				"900003,3.0,4.0," + changedAt,
+				"900003,4.0,5.0," + changedAt,
+				"900003,5.0,6"));
+		Files.writeString(workDirectory.resolve("spill.csv.replay.position"), "2");
+
+		PriceHistoryLog replaying = new PriceHistoryLog(jdbcTemplate, historyRepository, true, 2, 10,
+				OverflowPolicy.SPILL, workDirectory.resolve("spill.csv"));
+		replaying.start();
+		try {
+			assertTrue(replaying.flush(FLUSH_TIMEOUT));
+		} finally {
+			replaying.stop();
+		}
+		assertEquals(2, replaying.writtenCount());
+		assertEquals(1, replaying.droppedCount());
+		assertFalse(Files.exists(workDirectory.resolve("spill.csv.replay.position")));
+		assertEquals(List.of(5.0, 4.0), replaying.history(900_003, 10).stream()
+				.map(PriceHistoryEntry::getNewPrice).sorted((a, b) -> Double.compare(b, a)).toList());
+	}
+}
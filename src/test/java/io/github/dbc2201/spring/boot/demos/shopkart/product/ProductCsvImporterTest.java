@@ -0,0 +1,193 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.generator.CatalogGenerator;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.generator.CatalogWriter;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.imports.ImportMode;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.imports.ImportResult;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.imports.ProductCsvImporter;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductInvalidation;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductInvalidationRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Integration tests for the ProductCsvImporter class.
+ * Runs against an in-memory H2 database that, like the default MySQL collation, compares names ignoring case.
+ */
+@SpringBootTest(properties = {
+		"shopkart.import.work-directory=target/import-test",
+		"spring.datasource.url=jdbc:h2:mem:shopkart-import-test;IGNORECASE=TRUE"
+})
+@ActiveProfiles("dev")
+class ProductCsvImporterTest {
+
+	private static final Path WORK_DIRECTORY = Path.of("target/import-test");
+
+	private static final String CSV = """
+			name,description,price,imageUrl
+			Desk Lamp,"A lamp for desks, with a hinge",24.5,https://example.com/lamp.jpg
+			Bad,Too short,1.0,not-a-url
+			Office Chair,An ergonomic office chair,149.0,https://example.com/chair.jpg
+			""";
+
+	@Autowired
+	private ProductCsvImporter importer;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private CatalogWriter catalogWriter;
+
+	@Autowired
+	private ProductInvalidationRepository invalidationRepository;
+
+	@Autowired
+	private DatabaseProductService productService;
+
+	@BeforeEach
+	void setUp() {
+		// replacing with an empty catalog also rebuilds the indexes and statistics shared with other tests
+		catalogWriter.write(new CatalogGenerator(), 0, true);
+	}
+
+	/**
+	 * Test that valid rows are inserted and invalid rows are written to the error file.
+	 */
+	@Test
+	@DisplayName("Should import valid rows and reject invalid ones")
+	void testImport() throws Exception {
+		// Act
+		ImportResult result = importer.importCsv("import-test", stream(CSV), ImportMode.INSERT);
+
+		// Assert
+		assertEquals(3, result.rowsRead());
+		assertEquals(2, result.rowsImported());
+		assertEquals(1, result.rowsRejected());
+		assertEquals("A lamp for desks, with a hinge", productRepository.findByName("Desk Lamp").orElseThrow().getDescription());
+		String errors = Files.readString(Path.of(result.errorFile()));
+		assertTrue(errors.startsWith("3,"));
+		assertFalse(Files.exists(WORK_DIRECTORY.resolve("import-test.checkpoint")));
+	}
+
+	/**
+	 * Test that an import resumes after the rows recorded in its checkpoint.
+	 */
+	@Test
+	@DisplayName("Should skip rows already processed by an earlier run")
+	void testResumeFromCheckpoint() throws Exception {
+		// Arrange
+		Files.createDirectories(WORK_DIRECTORY);
+		Files.writeString(WORK_DIRECTORY.resolve("resume-test.checkpoint"), "2");
+
+		// Act
+		ImportResult result = importer.importCsv("resume-test", stream(CSV), ImportMode.INSERT);
+
+		// Assert
+		assertEquals(2, result.rowsSkipped());
+		assertEquals(1, result.rowsImported());
+		assertEquals(1, productRepository.count());
+		assertTrue(productRepository.findByName("Office Chair").isPresent());
+	}
+
+	/**
+	 * Test that upsert mode updates products with a matching name instead of duplicating them.
+	 */
+	@Test
+	@DisplayName("Should update existing products by name in upsert mode")
+	void testUpsert() throws Exception {
+		// Arrange
+		long chairId = productRepository.save(
+				new Product("Office Chair", "An old office chair", 99.0, "https://example.com/old.jpg")).getId();
+		Long lastLogId = invalidationRepository.findMaxId();
+
+		// Act
+		importer.importCsv("upsert-test", stream(CSV), ImportMode.UPSERT);
+
+		// Assert
+		assertEquals(2, productRepository.count());
+		assertEquals(149.0, productRepository.findByName("Office Chair").orElseThrow().getPrice());
+		// only the updated product is invalidated, not every node's whole cache
+		List<Long> invalidated = invalidationRepository
+				.findByIdGreaterThanOrderByIdAsc(lastLogId == null ? 0 : lastLogId, Limit.of(100)).stream()
+				.map(ProductInvalidation::getProductId)
+				.toList();
+		assertTrue(invalidated.contains(chairId));
+		assertFalse(invalidated.contains(null));
+	}
+
+	/**
+	 * Test that rows repeating a name within a batch are counted as one imported product in upsert mode,
+	 * and that the imported products can be found as soon as the import returns.
+	 */
+	@Test
+	@DisplayName("Should count products actually written and find them right after the import")
+	void testUpsertCountsDistinctProducts() throws Exception {
+		// Arrange
+		String csv = """
+				name,description,price,imageUrl
+				Desk Lamp,A lamp for desks,24.5,https://example.com/lamp.jpg
+				Desk Lamp,A brighter lamp for desks,29.5,https://example.com/lamp.jpg
+				""";
+
+		// Act
+		ImportResult result = importer.importCsv("upsert-count-test", stream(csv), ImportMode.UPSERT);
+
+		// Assert
+		assertEquals(2, result.rowsRead());
+		assertEquals(1, result.rowsImported());
+		Product lamp = productService.getProductByName("Desk Lamp");
+		assertEquals(29.5, lamp.getPrice());
+		assertEquals(lamp.getName(), productService.getProductById(lamp.getId()).getName());
+	}
+
+	/**
+	 * Test that a name differing only in case updates the existing product, as the database
+	 * collation considers them equal, instead of adding a duplicate.
+	 */
+	@Test
+	@DisplayName("Should match existing names the way the database collation does")
+	void testUpsertMatchesNamesIgnoringCase() throws Exception {
+		// Arrange
+		long lampId = productRepository.save(
+				new Product("Desk Lamp", "An old lamp for desks", 19.0, "https://example.com/old.jpg")).getId();
+		String csv = """
+				name,description,price,imageUrl
+				desk lamp,A lamp for desks,24.5,https://example.com/lamp.jpg
+				DESK LAMP,A brighter lamp for desks,29.5,https://example.com/lamp.jpg
+				Office Chair,An ergonomic office chair,149.0,https://example.com/chair.jpg
+				""";
+
+		// Act
+		ImportResult result = importer.importCsv("upsert-case-test", stream(csv), ImportMode.UPSERT);
+
+		// Assert
+		assertEquals(2, result.rowsImported());
+		assertEquals(2, productRepository.count());
+		Product lamp = productRepository.findById(lampId).orElseThrow();
+		assertEquals(29.5, lamp.getPrice());
+		assertEquals("A brighter lamp for desks", lamp.getDescription());
+	}
+
+	private static ByteArrayInputStream stream(String csv) {
+		return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+	}
+}
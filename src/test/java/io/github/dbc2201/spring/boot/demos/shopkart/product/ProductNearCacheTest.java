@@ -0,0 +1,174 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.ShopkartApplication;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductNearCache;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductNotFoundException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.PriceAdjustmentType;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Tests near cache coherence between two application nodes.
+ * Both nodes run in this JVM as separate application contexts sharing one file-based H2 database,
+ * so they only learn about each other's changes through the invalidation log.
+ */
+class ProductNearCacheTest {
+
+	private static final Path DATABASE_DIRECTORY = Path.of("target", "near-cache-test");
+	private static final long TIMEOUT_MILLIS = 10_000;
+
+	private static ConfigurableApplicationContext nodeA;
+	private static ConfigurableApplicationContext nodeB;
+
+	@BeforeAll
+	static void startNodes() throws IOException {
+		if (Files.exists(DATABASE_DIRECTORY)) {
+			try (Stream<Path> files = Files.walk(DATABASE_DIRECTORY)) {
+				for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+					Files.delete(file);
+				}
+			}
+		}
+		nodeA = startNode();
+		nodeB = startNode();
+	}
+
+	@AfterAll
+	static void stopNodes() {
+		nodeB.close();
+		nodeA.close();
+	}
+
+	private static ConfigurableApplicationContext startNode() {
+		// command line arguments, so they win over the profile and datasource in application.properties
+		return new SpringApplicationBuilder(ShopkartApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(
+						"--spring.profiles.active=dev",
+						"--spring.datasource.url=jdbc:h2:file:./" + DATABASE_DIRECTORY + "/shopkart",
+						"--spring.datasource.driver-class-name=org.h2.Driver",
+						"--spring.jpa.hibernate.ddl-auto=update",
+						"--spring.main.banner-mode=off",
+						"--shopkart.near-cache.poll-interval-ms=50");
+	}
+
+	/**
+	 * Test that a price change on one node is seen by the other node after it has cached the product.
+	 */
+	@Test
+	@DisplayName("Should invalidate another node's cached product when it is updated")
+	void testUpdateOnOtherNode() {
+		long id = service(nodeA).createProduct(
+				new Product("Desk Lamp", "A lamp for desks", 29.99, "https://example.com/lamp.jpg")).getId();
+		awaitVisible(nodeB, id);
+		Product cached = service(nodeB).getProductById(id);
+		assertSame(cached, service(nodeB).getProductById(id), "second read should be served from the near cache");
+
+		service(nodeA).updateProductPrice(id, 19.99);
+
+		awaitTrue(() -> service(nodeB).getProductById(id).getPrice() == 19.99);
+		assertEquals(19.99, service(nodeA).getProductById(id).getPrice());
+	}
+
+	/**
+	 * Test that a product deleted on one node stops being served by the other node.
+	 */
+	@Test
+	@DisplayName("Should invalidate another node's cached product when it is deleted")
+	void testDeleteOnOtherNode() {
+		long id = service(nodeA).createProduct(
+				new Product("Office Chair", "An ergonomic office chair", 149.0, "https://example.com/chair.jpg")).getId();
+		awaitVisible(nodeB, id);
+
+		service(nodeA).deleteProduct(id);
+
+		awaitTrue(() -> !exists(nodeB, id));
+	}
+
+	/**
+	 * Test that a bulk repricing on one node clears the other node's cache.
+	 */
+	@Test
+	@DisplayName("Should clear another node's cache after a bulk repricing")
+	void testRepricingOnOtherNode() {
+		long id = service(nodeA).createProduct(
+				new Product("Desk Organizer", "Keeps a desk tidy", 50.0, "https://example.com/organizer.jpg")).getId();
+		awaitVisible(nodeB, id);
+
+		service(nodeA).repriceProducts(
+				new BulkRepricingRequest(null, null, "Desk Organizer", PriceAdjustmentType.ABSOLUTE, -5));
+
+		awaitTrue(() -> service(nodeB).getProductById(id).getPrice() == 45.0);
+	}
+
+	/**
+	 * Test that a local update is never hidden by the writing node's own cache.
+	 */
+	@Test
+	@DisplayName("Should evict the writing node's own entry as soon as the update commits")
+	void testUpdateOnSameNode() {
+		long id = service(nodeA).createProduct(
+				new Product("Bookshelf", "A five shelf bookcase", 89.0, "https://example.com/shelf.jpg")).getId();
+		service(nodeA).getProductById(id);
+
+		service(nodeA).updateProductName(id, "Tall Bookshelf");
+
+		assertEquals("Tall Bookshelf", service(nodeA).getProductById(id).getName());
+		assertThrows(ProductNotFoundException.class, () -> service(nodeA).getProductById(Long.MAX_VALUE));
+		// a read is not cached while the node's own poll applies an entry, so retry until one is
+		awaitTrue(() -> service(nodeA).getProductById(id) != null && nodeA.getBean(ProductNearCache.class).size() > 0);
+	}
+
+	private static DatabaseProductService service(ConfigurableApplicationContext node) {
+		return node.getBean(DatabaseProductService.class);
+	}
+
+	/**
+	 * Waits until a product created on another node is known to the node's lookup filter,
+	 * which takes up to one poll interval, and caches it there.
+	 */
+	private static void awaitVisible(ConfigurableApplicationContext node, long id) {
+		awaitTrue(() -> exists(node, id));
+	}
+
+	private static boolean exists(ConfigurableApplicationContext node, long id) {
+		try {
+			return service(node).getProductById(id) != null;
+		} catch (ProductNotFoundException notYet) {
+			return false;
+		}
+	}
+
+	private static void awaitTrue(Supplier<Boolean> condition) {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!condition.get()) {
+			assertTrue(System.currentTimeMillis() < deadline, "condition not met within " + TIMEOUT_MILLIS + " ms");
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(exception);
+			}
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductLookupFilter;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.cache.ProductNearCache;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductNotFoundException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductServiceUnavailableException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.history.OverflowPolicy;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.history.PriceHistoryLog;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.resilience.CircuitBreaker;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.resilience.ProductReadGuard;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.resilience.StaleResponseAdvice;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.search.ProductSuggestionIndex;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.ProductStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Tests for the timeouts, circuit breaker and last known good copies around database reads.
+ * The repository is a stub that can be made slow or failing, like a stalled or unreachable database.
+ */
+class ProductReadFallbackTest {
+
+	private static final Duration READ_TIMEOUT = Duration.ofMillis(100);
+
+	/**
+	 * Generous compared to the read timeout, so that a slow machine does not fail the test, but far
+	 * below the time a read against the stalled stub would take.
+	 */
+	private static final long BOUND_MILLIS = 1_000;
+
+	private final StubDatabase database = new StubDatabase();
+
+	private ProductReadGuard readGuard;
+
+	@AfterEach
+	void tearDown() {
+		database.release.countDown();
+		readGuard.stop();
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	/**
+	 * Test that reads answer from the last known good copy within the timeout while the database
+	 * hangs, stop waiting for it at all once the breaker opens, and mark the response as stale.
+	 */
+	@Test
+	@DisplayName("Should serve stale copies with bounded latency while the database is slow")
+	void testSlowDatabase() throws IOException {
+		DatabaseProductService service = serviceWith(3, Duration.ofHours(1));
+		assertEquals(10.0, service.getProductById(1).getPrice());
+
+		database.behaviour = Behaviour.SLOW;
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+		for (int read = 0; read < 5; read++) {
+			long start = System.nanoTime();
+			Product product = service.getProductById(1);
+			long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+			assertEquals(10.0, product.getPrice());
+			assertTrue(elapsedMillis < BOUND_MILLIS, "read took " + elapsedMillis + " ms");
+		}
+		assertEquals(CircuitBreaker.State.OPEN, readGuard.state());
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		// the headers are only copied to the servlet response once it is flushed
+		ServletServerHttpResponse serverResponse = new ServletServerHttpResponse(response);
+		new StaleResponseAdvice().beforeBodyWrite(null, null, MediaType.APPLICATION_JSON, null,
+				new ServletServerHttpRequest(request), serverResponse);
+		serverResponse.flush();
+		assertEquals(StaleResponseAdvice.STALE_WARNING, response.getHeader("Warning"));
+		assertNotNull(response.getHeader("Age"));
+	}
+
+	/**
+	 * Test that reads without a copy fail fast with a 503 while the breaker is open, and that the
+	 * copies are revalidated in the background once the database is back.
+	 */
+	@Test
+	@DisplayName("Should fail fast without a copy and revalidate once the database recovers")
+	void testRecovery() throws InterruptedException {
+		DatabaseProductService service = serviceWith(1, Duration.ofMillis(200));
+		assertEquals(10.0, service.getProductById(1).getPrice());
+		assertEquals(1, service.getAllProducts().size());
+
+		database.behaviour = Behaviour.FAILING;
+		assertEquals(10.0, service.getProductById(1).getPrice());
+		assertEquals(CircuitBreaker.State.OPEN, readGuard.state());
+		assertEquals(1, service.getAllProducts().size());
+		ProductServiceUnavailableException exception =
+				assertThrows(ProductServiceUnavailableException.class, () -> service.getProductById(2));
+		assertTrue(exception.getRetryAfter().toMillis() <= 200);
+
+		database.behaviour = Behaviour.HEALTHY;
+		database.price = 12.0;
+		Thread.sleep(250);
+		// answered from the copy, while the trial read runs in the background
+		assertEquals(10.0, service.getProductById(1).getPrice());
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (readGuard.state() != CircuitBreaker.State.CLOSED && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertEquals(CircuitBreaker.State.CLOSED, readGuard.state());
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+		assertEquals(12.0, service.getProductById(1).getPrice());
+		assertEquals(12.0, service.getProductById(2).getPrice());
+		assertNull(request.getAttribute(ProductReadGuard.STALE_SINCE_ATTRIBUTE));
+	}
+
+	/**
+	 * Test that missing products are reported as such and do not open the breaker.
+	 */
+	@Test
+	@DisplayName("Should not count missing products as database failures")
+	void testMissingProduct() {
+		DatabaseProductService service = serviceWith(1, Duration.ofHours(1));
+
+		assertThrows(ProductNotFoundException.class, () -> service.getProductById(404));
+		assertThrows(ProductNotFoundException.class, () -> service.getProductById(404));
+
+		assertEquals(CircuitBreaker.State.CLOSED, readGuard.state());
+	}
+
+	/**
+	 * Test that renamed and deleted products are not served by their old names while the breaker is open.
+	 */
+	@Test
+	@DisplayName("Should forget the copies of old names after a rename or delete")
+	void testForgetOldNames() {
+		DatabaseProductService service = serviceWith(1, Duration.ofHours(1));
+		assertEquals(1, service.getProductByName("Product 1").getId());
+		assertEquals(2, service.getProductByName("Product 2").getId());
+		assertEquals(3, service.getProductByName("Product 3").getId());
+
+		service.updateProductName(1, "Renamed Product");
+		assertTrue(service.deleteProduct(2));
+		database.behaviour = Behaviour.FAILING;
+
+		assertEquals(3, service.getProductByName("Product 3").getId());
+		assertEquals(CircuitBreaker.State.OPEN, readGuard.state());
+		assertThrows(ProductServiceUnavailableException.class, () -> service.getProductByName("Product 1"));
+		assertThrows(ProductServiceUnavailableException.class, () -> service.getProductByName("Product 2"));
+	}
+
+	private DatabaseProductService serviceWith(int failureThreshold, Duration openDuration) {
+		readGuard = new ProductReadGuard(true, READ_TIMEOUT, 4, failureThreshold, openDuration, 100, null);
+		ProductRepository repository = database.repository();
+		return new DatabaseProductService(repository, new ProductLookupFilter(false, 100, 0.01),
+				new ProductNearCache(null, null, false, 0, 0, Duration.ZERO), new ProductSuggestionIndex(10),
+				new ProductStatistics(repository),
+				new PriceHistoryLog(null, null, false, 2, 1, OverflowPolicy.DROP, Path.of("price-history.spill")),
+				readGuard, null, null);
+	}
+
+	private enum Behaviour {
+		HEALTHY, SLOW, FAILING
+	}
+
+	/**
+	 * A repository whose products all cost the current price and are named "Product" and their ID,
+	 * except ID 404 which does not exist.
+	 */
+	private static final class StubDatabase {
+
+		private final CountDownLatch release = new CountDownLatch(1);
+		private volatile Behaviour behaviour = Behaviour.HEALTHY;
+		private volatile double price = 10.0;
+
+		ProductRepository repository() {
+			return (ProductRepository) Proxy.newProxyInstance(
+					ProductRepository.class.getClassLoader(),
+					new Class<?>[]{ProductRepository.class},
+					(proxy, method, args) -> {
+						switch (behaviour) {
+							// hangs until the test is over, like a read stuck on a dead connection
+							case SLOW -> release.await();
+							case FAILING -> throw new DataAccessResourceFailureException("Connection refused");
+							case HEALTHY -> {
+							}
+						}
+						return switch (method.getName()) {
+							case "findById" -> (Long) args[0] == 404 ? Optional.empty() : Optional.of(product((Long) args[0]));
+							case "findAll" -> List.of(product(1));
+							case "findByName" -> Optional.of(product(Long.parseLong(((String) args[0]).substring("Product ".length()))));
+							case "save" -> args[0];
+							case "delete" -> null;
+							default -> throw new UnsupportedOperationException(method.getName());
+						};
+					}
+			);
+		}
+
+		private Product product(long id) {
+			Product product = new Product("Product " + id, "A stubbed product", price, "https://example.com/image.jpg");
+			product.setId(id);
+			return product;
+		}
+	}
+}
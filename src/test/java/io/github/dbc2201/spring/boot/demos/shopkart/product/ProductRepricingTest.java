@@ -0,0 +1,141 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+import java.util.List;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.PriceAdjustmentType;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.RepricingOperation;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.RepricingOperationRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.InMemoryProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests for bulk repricing against both service implementations.
+ * Runs against the in-memory H2 database of the dev profile.
+ */
+@SpringBootTest
+@ActiveProfiles("dev")
+class ProductRepricingTest {
+
+	@Autowired
+	private DatabaseProductService databaseProductService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private RepricingOperationRepository operationRepository;
+
+	private InMemoryProductService inMemoryProductService;
+
+	@BeforeEach
+	void setUp() {
+		productRepository.deleteAll();
+		operationRepository.deleteAll();
+		inMemoryProductService = new InMemoryProductService();
+		catalog().forEach(databaseProductService::createProduct);
+		catalog().forEach(inMemoryProductService::createProduct);
+	}
+
+	/**
+	 * Test that a percentage discount is applied to every product in a price range.
+	 */
+	@Test
+	@DisplayName("Should apply a percentage to every product in a price range")
+	void testRepriceByPriceRange() {
+		BulkRepricingRequest request = new BulkRepricingRequest(20.0, 50.0, null, PriceAdjustmentType.PERCENTAGE, -10);
+
+		assertEquals(2, databaseProductService.repriceProducts(request));
+		assertEquals(2, inMemoryProductService.repriceProducts(request));
+
+		assertEquals(26.99, productRepository.findByName("Desk Lamp").orElseThrow().getPrice());
+		assertEquals(45.0, productRepository.findByName("Desk Organizer").orElseThrow().getPrice());
+		assertEquals(149.0, productRepository.findByName("Office Chair").orElseThrow().getPrice());
+		assertEquals(26.99, inMemoryProductService.getProductByName("Desk Lamp").getPrice());
+	}
+
+	/**
+	 * Test that an absolute change is applied to every product whose name contains a keyword.
+	 */
+	@Test
+	@DisplayName("Should apply an absolute change by keyword")
+	void testRepriceByKeyword() {
+		BulkRepricingRequest request = new BulkRepricingRequest(null, null, "DESK", PriceAdjustmentType.ABSOLUTE, -20);
+
+		assertEquals(2, databaseProductService.repriceProducts(request));
+		assertEquals(2, inMemoryProductService.repriceProducts(request));
+
+		assertEquals(9.99, productRepository.findByName("Desk Lamp").orElseThrow().getPrice());
+		assertEquals(30.0, productRepository.findByName("Desk Organizer").orElseThrow().getPrice());
+		assertEquals(30.0, inMemoryProductService.getProductByName("Desk Organizer").getPrice());
+	}
+
+	/**
+	 * Test that a change that would make any selected price 0 or negative changes no price at all.
+	 */
+	@Test
+	@DisplayName("Should reject a change that would bring a selected price to zero or below")
+	void testRejectsNonPositivePrices() {
+		BulkRepricingRequest request = new BulkRepricingRequest(null, null, "desk", PriceAdjustmentType.ABSOLUTE, -40);
+
+		assertThrows(ProductValidationException.class, () -> databaseProductService.repriceProducts(request));
+		assertThrows(ProductValidationException.class, () -> inMemoryProductService.repriceProducts(request));
+
+		assertEquals(29.99, productRepository.findByName("Desk Lamp").orElseThrow().getPrice());
+		assertEquals(50.0, productRepository.findByName("Desk Organizer").orElseThrow().getPrice());
+		assertEquals(29.99, inMemoryProductService.getProductByName("Desk Lamp").getPrice());
+	}
+
+	/**
+	 * Test that retrying an operation skips the windows it has already committed.
+	 */
+	@Test
+	@DisplayName("Should not reprice a product twice when an operation is retried")
+	void testRetriedOperation() {
+		long lampId = productRepository.findByName("Desk Lamp").orElseThrow().getId();
+		// an earlier attempt committed the window ending at the lamp and then failed
+		RepricingOperation interrupted = new RepricingOperation("retried", productRepository.findMaxId());
+		interrupted.recordWindow(lampId, 1, Instant.now());
+		operationRepository.save(interrupted);
+		BulkRepricingRequest request =
+				new BulkRepricingRequest(null, null, "desk", PriceAdjustmentType.ABSOLUTE, -5, "retried");
+
+		assertEquals(2, databaseProductService.repriceProducts(request));
+		assertEquals(2, databaseProductService.repriceProducts(request));
+
+		assertEquals(29.99, productRepository.findByName("Desk Lamp").orElseThrow().getPrice());
+		assertEquals(45.0, productRepository.findByName("Desk Organizer").orElseThrow().getPrice());
+	}
+
+	/**
+	 * Test that a request with both selectors is rejected.
+	 */
+	@Test
+	@DisplayName("Should reject a request with both a price range and a keyword")
+	void testRejectsAmbiguousSelector() {
+		BulkRepricingRequest request = new BulkRepricingRequest(1.0, 2.0, "desk", PriceAdjustmentType.ABSOLUTE, 1);
+
+		assertThrows(ProductValidationException.class, () -> databaseProductService.repriceProducts(request));
+	}
+
+	private static List<Product> catalog() {
+		return List.of(
+				new Product("Desk Lamp", "A lamp for desks", 29.99, "https://example.com/lamp.jpg"),
+				new Product("Desk Organizer", "An organizer for desks", 50.0, "https://example.com/organizer.jpg"),
+				new Product("Office Chair", "An ergonomic office chair", 149.0, "https://example.com/chair.jpg")
+		);
+	}
+}
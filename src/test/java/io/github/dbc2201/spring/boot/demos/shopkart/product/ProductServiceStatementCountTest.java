@@ -0,0 +1,90 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product;
+
+import static io.github.dbc2201.spring.boot.demos.shopkart.instrumentation.SqlStatementAssertions.assertStatementCount;
+import static io.github.dbc2201.spring.boot.demos.shopkart.instrumentation.SqlStatementAssertions.captureStatements;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.instrumentation.SqlStatistics;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.generator.CatalogGenerator;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.generator.CatalogWriter;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Pins down how many SQL statements each DatabaseProductService method issues,
+ * so that accidental extra round trips show up as test failures.
+ */
+@SpringBootTest
+@ActiveProfiles("dev")
+class ProductServiceStatementCountTest {
+
+	@Autowired
+	private DatabaseProductService productService;
+
+	@Autowired
+	private CatalogWriter catalogWriter;
+
+	private Product savedProduct;
+
+	@BeforeEach
+	void setUp() {
+		// replacing with an empty catalog also rebuilds the indexes and statistics shared with other tests
+		catalogWriter.write(new CatalogGenerator(), 0, true);
+		savedProduct = productService.createProduct(
+				new Product("Desk Lamp", "A lamp for desks", 29.99, "https://example.com/lamp.jpg"));
+	}
+
+	@Test
+	@DisplayName("Should create a product with a single insert")
+	void testCreateProduct() {
+		assertStatementCount(1, "insert into products", () -> productService.createProduct(
+				new Product("Office Chair", "An ergonomic office chair", 149.0, "https://example.com/chair.jpg")));
+	}
+
+	@Test
+	@DisplayName("Should look up a product by ID with a single select")
+	void testGetProductById() {
+		assertStatementCount(1, () -> productService.getProductById(savedProduct.getId()));
+	}
+
+	@Test
+	@DisplayName("Should look up a product by name with a single select")
+	void testGetProductByName() {
+		assertStatementCount(1, () -> productService.getProductByName("Desk Lamp"));
+	}
+
+	@Test
+	@DisplayName("Should list all products with a single select and count the rows")
+	void testGetAllProducts() {
+		SqlStatistics statistics = assertStatementCount(1, () -> productService.getAllProducts());
+		assertEquals(1, statistics.rowCount());
+	}
+
+	@Test
+	@DisplayName("Should not reach the database for IDs rejected by the lookup filter")
+	void testLookupFilterMiss() {
+		productService.rebuildLookupFilter();
+
+		SqlStatistics statistics = captureStatements(() -> {
+			try {
+				productService.getProductById(savedProduct.getId() + 1_000_000);
+			} catch (RuntimeException expected) {
+				// not found
+			}
+		});
+
+		assertEquals(0, statistics.statementCount());
+	}
+
+	@Test
+	@DisplayName("Should update a price with one update statement")
+	void testUpdateProductPrice() {
+		assertStatementCount(1, "update products", () -> productService.updateProductPrice(savedProduct.getId(), 19.99));
+	}
+}
@@ -0,0 +1,167 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.PriceAdjustmentType;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductStats;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.ColumnarInMemoryProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.InMemoryProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.PartitionedInMemoryProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.ProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.SnapshotProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.PriceHistogram;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.PriceStatistics;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.stats.ProductStatistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests for the incrementally maintained catalog statistics of every service implementation.
+ * Runs against the in-memory H2 database of the dev profile.
+ */
+@SpringBootTest
+@ActiveProfiles("dev")
+class ProductStatsTest {
+
+	@Autowired
+	private DatabaseProductService databaseProductService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ProductStatistics productStatistics;
+
+	/**
+	 * Test that the statistics of the in-memory services match the products after random changes.
+	 */
+	@Test
+	@DisplayName("Should keep in-memory statistics equal to a full scan")
+	void testInMemoryServices() {
+		for (ProductService service : List.of(new InMemoryProductService(), new PartitionedInMemoryProductService(4),
+				new ColumnarInMemoryProductService(), new SnapshotProductService())) {
+			Random random = new Random(7);
+			for (int i = 1; i <= 300; i++) {
+				Product product = new Product("Product " + i, "Description " + i, randomPrice(random),
+						"https://example.com/" + i + ".jpg");
+				product.setId(i);
+				service.createProduct(product);
+			}
+			for (int i = 0; i < 1000; i++) {
+				long id = 1 + random.nextInt(300);
+				if (service.getProductById(id) == null) {
+					continue;
+				}
+				if (random.nextInt(5) == 0) {
+					service.deleteProduct(id);
+				} else {
+					service.updateProductPrice(id, randomPrice(random));
+				}
+			}
+			service.repriceProducts(new BulkRepricingRequest(100.0, 500.0, null, PriceAdjustmentType.PERCENTAGE, 20));
+
+			assertStats(scan(service.getAllProducts()), service.getProductStats());
+		}
+	}
+
+	/**
+	 * Test that the database statistics follow changes made through the service, and that
+	 * reconciling with the database buckets prices like the in-memory histogram.
+	 */
+	@Test
+	@DisplayName("Should keep database statistics equal to the database contents")
+	void testDatabaseService() {
+		productRepository.deleteAll();
+		productStatistics.reconcile();
+		assertEquals(new ProductStats(0, null, null, null, new PriceHistogram().buckets()),
+				databaseProductService.getProductStats());
+
+		double[] prices = {0, 0.99, 1, 2, 4.99, 5, 999.99, 1000, 999_999.99, 1_000_000, 2_500_000};
+		List<Long> ids = IntStream.range(0, prices.length)
+				.mapToObj(i -> databaseProductService.createProduct(new Product("Product " + i, "Description " + i,
+						prices[i], "https://example.com/" + i + ".jpg")).getId())
+				.toList();
+		databaseProductService.updateProductPrice(ids.get(0), 3);
+		databaseProductService.deleteProduct(ids.get(prices.length - 1));
+
+		ProductStats incremental = databaseProductService.getProductStats();
+		assertStats(scan(productRepository.findAll()), incremental);
+		assertEquals(0.99, incremental.minPrice());
+		assertEquals(1_000_000, incremental.maxPrice());
+
+		productStatistics.reconcile();
+		assertEquals(incremental.histogram(), databaseProductService.getProductStats().histogram());
+		assertEquals(incremental.count(), databaseProductService.getProductStats().count());
+
+		databaseProductService.repriceProducts(new BulkRepricingRequest(0.0, 10.0, null, PriceAdjustmentType.ABSOLUTE, 100));
+		assertStats(scan(productRepository.findAll()), databaseProductService.getProductStats());
+	}
+
+	/**
+	 * Test that the minimum and maximum survive removing tracked extremes, and that summaries merge.
+	 */
+	@Test
+	@DisplayName("Should track extremes through removals and merge summaries")
+	void testExtremesAndMerge() {
+		PriceStatistics statistics = new PriceStatistics();
+		IntStream.rangeClosed(1, 100).forEach(statistics::add);
+		for (int price = 1; price <= PriceStatistics.TRACKED_EXTREMES - 1; price++) {
+			statistics.remove(price);
+		}
+		assertEquals((double) PriceStatistics.TRACKED_EXTREMES, statistics.summary().min());
+
+		statistics.remove(PriceStatistics.TRACKED_EXTREMES);
+		assertNull(statistics.summary().min());
+		// estimated from the lowest non-empty bucket, [20, 50)
+		assertEquals(20.0, statistics.summary().toProductStats().minPrice());
+		assertEquals(100.0, statistics.summary().toProductStats().maxPrice());
+
+		PriceStatistics other = new PriceStatistics();
+		other.add(7);
+		PriceStatistics.Summary merged = statistics.summary().merge(other.summary());
+		assertEquals(69, merged.count());
+		assertEquals(7.0, merged.min());
+		assertEquals(1, merged.histogram().count(PriceHistogram.bucketOf(7)));
+	}
+
+	/**
+	 * Compares statistics, allowing for rounding in the mean, as sums are accumulated in a different order.
+	 */
+	private static void assertStats(ProductStats expected, ProductStats actual) {
+		assertEquals(expected.count(), actual.count());
+		assertEquals(expected.minPrice(), actual.minPrice());
+		assertEquals(expected.maxPrice(), actual.maxPrice());
+		assertEquals(expected.meanPrice(), actual.meanPrice(), 1e-6);
+		assertEquals(expected.histogram(), actual.histogram());
+	}
+
+	private static double randomPrice(Random random) {
+		// skewed towards cheap products, as real catalogs are
+		return Math.round(Math.exp(random.nextDouble() * 12) * 100) / 100.0;
+	}
+
+	private static ProductStats scan(List<Product> products) {
+		PriceHistogram histogram = new PriceHistogram();
+		products.forEach(product -> histogram.add(product.getPrice(), 1));
+		if (products.isEmpty()) {
+			return new ProductStats(0, null, null, null, histogram.buckets());
+		}
+		double sum = products.stream().mapToDouble(Product::getPrice).sum();
+		return new ProductStats(products.size(),
+				products.stream().mapToDouble(Product::getPrice).min().orElseThrow(),
+				products.stream().mapToDouble(Product::getPrice).max().orElseThrow(),
+				sum / products.size(), histogram.buckets());
+	}
+}
@@ -0,0 +1,192 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.search.ProductSuggestionIndex;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.InMemoryProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the ProductSuggestionIndex class.
+ */
+class ProductSuggestionIndexTest {
+
+	private ProductSuggestionIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new ProductSuggestionIndex(3);
+		index.rebuild(() -> Stream.of(
+				new ProductSuggestion(1, "Desk Lamp"),
+				new ProductSuggestion(2, "Desk"),
+				new ProductSuggestion(3, "Desk Organizer"),
+				new ProductSuggestion(4, "Deskmat"),
+				new ProductSuggestion(5, "Office Chair")
+		));
+	}
+
+	/**
+	 * Test that completions are matched ignoring case and ranked shortest first.
+	 */
+	@Test
+	@DisplayName("Should suggest the shortest matching names first, ignoring case")
+	void testSuggest() {
+		assertEquals(List.of("Desk", "Deskmat", "Desk Lamp"), names(index.suggest("dES", 10)));
+		assertEquals(List.of("Desk Lamp", "Desk Organizer"), names(index.suggest("desk ", 10)));
+		assertEquals(List.of("Desk"), names(index.suggest("D", 1)));
+		assertEquals(List.of("Office Chair"), names(index.suggest("office chair", 10)));
+		assertEquals(List.of(), index.suggest("Desks", 10));
+		assertEquals(List.of(), index.suggest("Chair", 10));
+	}
+
+	/**
+	 * Test that creations, renames and deletions update the precomputed completions.
+	 */
+	@Test
+	@DisplayName("Should update completions incrementally")
+	void testIncrementalUpdates() {
+		index.removeProduct(2);
+		assertEquals(List.of("Deskmat", "Desk Lamp", "Desk Organizer"), names(index.suggest("desk", 10)));
+
+		index.recordProduct(4, "Office Desk");
+		assertEquals(List.of("Desk Lamp", "Desk Organizer"), names(index.suggest("desk", 10)));
+		assertEquals(List.of("Office Desk", "Office Chair"), names(index.suggest("off", 10)));
+
+		index.recordProduct(6, "De");
+		assertEquals(List.of("De", "Desk Lamp", "Desk Organizer"), names(index.suggest("d", 10)));
+		assertTrue(index.stats().estimatedBytes() > 0);
+		assertEquals(5, index.stats().products());
+	}
+
+	/**
+	 * Test the precomputed lists against a brute-force scan after random changes.
+	 */
+	@Test
+	@DisplayName("Should agree with a full scan after random changes")
+	void testAgainstScan() {
+		ProductSuggestionIndex randomIndex = new ProductSuggestionIndex(5);
+		Map<Long, String> names = new HashMap<>();
+		Random random = new Random(42);
+		String[] words = {"desk", "desk lamp", "de", "lamp", "la", "office", "off", "chair", "chai", "d"};
+		for (int i = 0; i < 2000; i++) {
+			long id = random.nextInt(200);
+			if (random.nextInt(4) == 0) {
+				randomIndex.removeProduct(id);
+				names.remove(id);
+			} else {
+				String name = words[random.nextInt(words.length)] + (random.nextBoolean() ? "" : " " + random.nextInt(20));
+				randomIndex.recordProduct(id, name);
+				names.put(id, name);
+			}
+		}
+		for (String prefix : List.of("", "d", "de", "des", "desk ", "l", "la", "lamp", "o", "off", "c", "chai", "x")) {
+			List<ProductSuggestion> expected = names.entrySet().stream()
+					.filter(entry -> ProductSuggestion.fold(entry.getValue()).startsWith(prefix))
+					.map(entry -> new ProductSuggestion(entry.getKey(), entry.getValue()))
+					.sorted(ProductSuggestion.RANKING)
+					.limit(5)
+					.toList();
+			assertEquals(expected, randomIndex.suggest(prefix, 5), "prefix '" + prefix + "'");
+		}
+		assertEquals(names.size(), randomIndex.stats().products());
+	}
+
+	/**
+	 * Test that overlapping rebuilds run one after the other, each keeping the changes its read missed.
+	 */
+	@Test
+	@DisplayName("Should run overlapping rebuilds one after the other")
+	void testConcurrentRebuilds() throws Exception {
+		ProductSuggestionIndex rebuiltIndex = new ProductSuggestionIndex();
+		CountDownLatch reading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> first = executor.submit(() -> rebuiltIndex.rebuild(() -> {
+				// committed as the query opens, so its snapshot does not contain it
+				rebuiltIndex.recordProduct(2, "Desk Chair");
+				reading.countDown();
+				awaitQuietly(release);
+				return Stream.of(new ProductSuggestion(1, "Desk Lamp"));
+			}));
+			assertTrue(reading.await(10, TimeUnit.SECONDS));
+			Future<?> second = executor.submit(() -> rebuiltIndex.rebuild(() -> {
+				rebuiltIndex.recordProduct(4, "Desk Fan");
+				return Stream.of(new ProductSuggestion(1, "Desk Lamp"), new ProductSuggestion(2, "Desk Chair"),
+						new ProductSuggestion(3, "Desk Mat"));
+			}));
+			release.countDown();
+			first.get(10, TimeUnit.SECONDS);
+			second.get(10, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(List.of("Desk Fan", "Desk Mat", "Desk Lamp", "Desk Chair"), names(rebuiltIndex.suggest("desk", 10)));
+	}
+
+	/**
+	 * Test that a change made while a rebuild opens its query is kept, although the query misses it.
+	 */
+	@Test
+	@DisplayName("Should keep a change missed by a rebuild's read")
+	void testChangeMissedByRebuild() {
+		index.rebuild(() -> {
+			index.recordProduct(6, "Desk Chair");
+			return Stream.of(new ProductSuggestion(1, "Desk Lamp"));
+		});
+
+		assertEquals(List.of("Desk Lamp", "Desk Chair"), names(index.suggest("desk", 10)));
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Test that the default index can answer the largest limit any service accepts.
+	 */
+	@Test
+	@DisplayName("Should return as many suggestions as the largest accepted limit")
+	void testMaxLimit() {
+		ProductSuggestionIndex defaultIndex = new ProductSuggestionIndex();
+		InMemoryProductService inMemory = new InMemoryProductService();
+		for (int i = 1; i <= 2 * ProductSuggestion.MAX_LIMIT; i++) {
+			defaultIndex.recordProduct(i, "Desk " + i);
+			Product product = new Product("Desk " + i, "A desk", 10, "https://example.com/desk.jpg");
+			product.setId(i);
+			inMemory.createProduct(product);
+		}
+
+		assertEquals(inMemory.suggestProducts("desk", ProductSuggestion.MAX_LIMIT),
+				defaultIndex.suggest("desk", ProductSuggestion.MAX_LIMIT));
+		assertThrows(ProductValidationException.class,
+				() -> inMemory.suggestProducts("desk", ProductSuggestion.MAX_LIMIT + 1));
+	}
+
+	private static List<String> names(List<ProductSuggestion> suggestions) {
+		return suggestions.stream().map(ProductSuggestion::name).toList();
+	}
+}
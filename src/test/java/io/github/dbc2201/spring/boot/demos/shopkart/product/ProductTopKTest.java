@@ -0,0 +1,92 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product;
+
+import static io.github.dbc2201.spring.boot.demos.shopkart.instrumentation.SqlStatementAssertions.assertStatementCount;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.instrumentation.SqlStatistics;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.repository.ProductRepository;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.DatabaseProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.InMemoryProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests for the top-K price queries against both service implementations.
+ * Runs against the in-memory H2 database of the dev profile.
+ */
+@SpringBootTest
+@ActiveProfiles("dev")
+class ProductTopKTest {
+
+	@Autowired
+	private DatabaseProductService databaseProductService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private InMemoryProductService inMemoryProductService;
+
+	@BeforeEach
+	void setUp() {
+		productRepository.deleteAll();
+		inMemoryProductService = new InMemoryProductService();
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			String name = (i % 2 == 0 ? "Desk Item " : "Chair Item ") + i;
+			products.add(new Product(name, "Generated test product", (i * 37) % 100 + 0.5, "https://example.com/" + i + ".jpg"));
+		}
+		productRepository.saveAll(products).forEach(inMemoryProductService::createProduct);
+	}
+
+	@Test
+	@DisplayName("Should return the same cheapest products from both implementations")
+	void testCheapestMatchesAcrossImplementations() {
+		List<Product> fromDatabase = databaseProductService.getCheapestProducts("desk", 10.0, null, 5);
+		List<Product> fromMemory = inMemoryProductService.getCheapestProducts("desk", 10.0, null, 5);
+
+		assertEquals(5, fromDatabase.size());
+		assertEquals(ids(fromDatabase), ids(fromMemory));
+		assertEquals(10.5, fromDatabase.getFirst().getPrice());
+	}
+
+	@Test
+	@DisplayName("Should return the same most expensive products from both implementations")
+	void testMostExpensiveMatchesAcrossImplementations() {
+		List<Product> fromDatabase = databaseProductService.getMostExpensiveProducts(null, null, 50.0, 7);
+		List<Product> fromMemory = inMemoryProductService.getMostExpensiveProducts(null, null, 50.0, 7);
+
+		assertEquals(7, fromDatabase.size());
+		assertEquals(ids(fromDatabase), ids(fromMemory));
+		assertEquals(49.5, fromDatabase.getFirst().getPrice());
+	}
+
+	@Test
+	@DisplayName("Should push the limit down to the database")
+	void testLimitIsPushedDown() {
+		SqlStatistics statistics = assertStatementCount(1,
+				() -> databaseProductService.getCheapestProducts(null, null, null, 3));
+
+		assertEquals(3, statistics.rowCount());
+	}
+
+	@Test
+	@DisplayName("Should reject a limit outside the allowed range")
+	void testRejectsInvalidLimit() {
+		assertThrows(ProductValidationException.class, () -> inMemoryProductService.getCheapestProducts(null, null, null, 0));
+		assertThrows(ProductValidationException.class, () -> databaseProductService.getCheapestProducts(null, null, null, 1001));
+	}
+
+	private static List<Long> ids(List<Product> products) {
+		return products.stream().map(Product::getId).toList();
+	}
+}
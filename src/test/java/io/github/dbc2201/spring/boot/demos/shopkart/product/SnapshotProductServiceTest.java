@@ -0,0 +1,210 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.exceptions.ProductValidationException;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.BulkRepricingRequest;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.PriceAdjustmentType;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.Product;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.model.ProductSuggestion;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.InMemoryProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.SnapshotProductService;
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.SnapshotProductService.CatalogSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the SnapshotProductService class.
+ */
+class SnapshotProductServiceTest {
+
+	private SnapshotProductService productService;
+
+	@BeforeEach
+	void setUp() {
+		productService = new SnapshotProductService();
+		productService.createProducts(IntStream.rangeClosed(1, 100)
+				.mapToObj(i -> new Product((i % 2 == 0 ? "Desk " : "Lamp ") + i, "Description " + i, i,
+						"https://example.com/" + i + ".jpg"))
+				.toList());
+	}
+
+	/**
+	 * Test that writes publish new snapshots and leave earlier snapshots unchanged.
+	 */
+	@Test
+	@DisplayName("Should publish new snapshots without changing old ones")
+	void testSnapshotsAreImmutable() {
+		CatalogSnapshot before = productService.snapshot();
+		assertEquals(1, before.version());
+		assertEquals(100, before.size());
+
+		assertEquals(9.5, productService.updateProductPrice(9, 9.5).getPrice());
+		assertEquals(8, productService.getProductByName(productService.updateProductName(9, "Desk 8").getName()).getId());
+		assertTrue(productService.deleteProduct(8));
+		assertFalse(productService.deleteProduct(8));
+		assertEquals(9, productService.getProductByName("Desk 8").getId());
+		assertNull(productService.getProductById(8));
+		assertNull(productService.updateProductPrice(8, 1));
+		assertThrows(ProductValidationException.class, () -> {
+			Product duplicate = new Product("Duplicate", "Duplicate", 1, "https://example.com/d.jpg");
+			duplicate.setId(10);
+			productService.createProduct(duplicate);
+		});
+
+		Product returned = productService.getProductById(10);
+		returned.setPrice(1000);
+		assertEquals(10.0, productService.getProductById(10).getPrice());
+		assertEquals(100, before.size());
+		assertEquals(99, productService.snapshot().size());
+		assertEquals(101, productService.createProduct(
+				new Product("Lamp 101", "Description", 1, "https://example.com/l.jpg")).getId());
+	}
+
+	/**
+	 * Test that names with colliding hashes, added in sorted order, do not unbalance the name index.
+	 */
+	@Test
+	@DisplayName("Should stay balanced for names with colliding hashes")
+	void testCollidingNameHashes() throws InterruptedException {
+		// "0@" and "1!" have the same String hash, so every name built from them does too
+		List<Product> products = IntStream.range(0, 20_000)
+				.mapToObj(i -> {
+					StringBuilder name = new StringBuilder("Item ");
+					for (int bit = 14; bit >= 0; bit--) {
+						name.append((i >> bit & 1) == 0 ? "0@" : "1!");
+					}
+					return new Product(name.toString(), "Colliding name", 1, "https://example.com/c.jpg");
+				})
+				.toList();
+		assertEquals(products.get(0).getName().hashCode(), products.get(19_999).getName().hashCode());
+
+		// on a small stack, so an unbalanced index would overflow it in the recursive insert
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread writer = new Thread(null, () -> {
+			try {
+				productService.createProducts(products);
+			} catch (Throwable e) {
+				failure.set(e);
+			}
+		}, "small-stack-writer", 256 * 1024);
+		writer.start();
+		writer.join();
+
+		assertNull(failure.get());
+		assertEquals(20_100, productService.getAllProducts().size());
+		assertEquals(products.get(12_345).getName(),
+				productService.getProductByName(products.get(12_345).getName()).getName());
+	}
+
+	/**
+	 * Test the indexed queries against the scanning in-memory service after random changes.
+	 */
+	@Test
+	@DisplayName("Should answer indexed queries like a full scan")
+	void testAgainstScan() {
+		InMemoryProductService scanned = new InMemoryProductService();
+		productService.getAllProducts().forEach(scanned::createProduct);
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			long id = 1 + random.nextInt(100);
+			if (scanned.getProductById(id) == null) {
+				continue;
+			}
+			double price = random.nextInt(50);
+			switch (random.nextInt(3)) {
+				case 0 -> {
+					scanned.updateProductPrice(id, price);
+					productService.updateProductPrice(id, price);
+				}
+				case 1 -> {
+					String name = (random.nextBoolean() ? "Desk " : "Lamp ") + random.nextInt(30);
+					scanned.updateProductName(id, name);
+					productService.updateProductName(id, name);
+				}
+				default -> {
+					if (random.nextInt(10) == 0) {
+						scanned.deleteProduct(id);
+						productService.deleteProduct(id);
+					}
+				}
+			}
+		}
+		productService.repriceProducts(new BulkRepricingRequest(10.0, 20.0, null, PriceAdjustmentType.PERCENTAGE, 10));
+		scanned.repriceProducts(new BulkRepricingRequest(10.0, 20.0, null, PriceAdjustmentType.PERCENTAGE, 10));
+		productService.repriceProducts(new BulkRepricingRequest(null, null, "desk 1", PriceAdjustmentType.ABSOLUTE, 1));
+		scanned.repriceProducts(new BulkRepricingRequest(null, null, "desk 1", PriceAdjustmentType.ABSOLUTE, 1));
+
+		assertEquals(scanned.getAllProducts().stream().sorted(Comparator.comparingLong(Product::getId)).toList(),
+				productService.getAllProducts());
+		assertEquals(scanned.getCheapestProducts(null, null, null, 15), productService.getCheapestProducts(null, null, null, 15));
+		assertEquals(scanned.getCheapestProducts("desk", 5.0, 30.0, 15), productService.getCheapestProducts("desk", 5.0, 30.0, 15));
+		assertEquals(scanned.getMostExpensiveProducts(null, null, null, 15),
+				productService.getMostExpensiveProducts(null, null, null, 15));
+		assertEquals(scanned.getMostExpensiveProducts("lamp", null, 20.0, 7),
+				productService.getMostExpensiveProducts("lamp", null, 20.0, 7));
+		for (String prefix : List.of("d", "desk 1", "LAMP", "x")) {
+			assertEquals(scanned.suggestProducts(prefix, 5), productService.suggestProducts(prefix, 5), prefix);
+		}
+		for (int i = 0; i < 30; i++) {
+			String name = "Desk " + i;
+			assertEquals(scanned.getAllProducts().stream().filter(product -> product.getName().equals(name))
+					.min(Comparator.comparingLong(Product::getId)).orElse(null), productService.getProductByName(name));
+		}
+	}
+
+	/**
+	 * Test that readers see whole batches while concurrent writers publish.
+	 */
+	@Test
+	@DisplayName("Should keep every response consistent under concurrent writes")
+	void testConsistentReads() throws Exception {
+		AtomicBoolean running = new AtomicBoolean(true);
+		try (ExecutorService executor = Executors.newFixedThreadPool(5)) {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				int thread = t;
+				writers.add(executor.submit(() -> {
+					for (int i = 0; i < 500; i++) {
+						// pairs of products are always added together
+						productService.createProducts(List.of(
+								new Product("Pair " + thread + "-" + i + "a", "Concurrent pair", 1, "https://example.com/p.jpg"),
+								new Product("Pair " + thread + "-" + i + "b", "Concurrent pair", 2, "https://example.com/p.jpg")));
+					}
+				}));
+			}
+			Future<?> reader = executor.submit(() -> {
+				while (running.get()) {
+					List<Product> all = productService.getAllProducts();
+					long ones = all.stream().filter(product -> product.getPrice() == 1).count();
+					long twos = all.stream().filter(product -> product.getPrice() == 2).count();
+					assertEquals(ones, twos);
+				}
+			});
+			for (Future<?> writer : writers) {
+				writer.get();
+			}
+			running.set(false);
+			reader.get();
+		}
+		assertEquals(4100, productService.getAllProducts().size());
+		assertTrue(productService.snapshot().version() <= 2001);
+		assertEquals(List.of(new ProductSuggestion(2, "Desk 2")), productService.suggestProducts("desk 2", 1));
+	}
+}
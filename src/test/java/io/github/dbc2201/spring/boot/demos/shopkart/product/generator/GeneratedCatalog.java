@@ -0,0 +1,60 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.generator;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests a synthetic catalog for a test, generated by {@link CatalogGenerator}.
+ * <p>
+ * On a test method or class, every test gets the catalog in one of two ways:
+ * <ul>
+ *     <li>{@link Destination#IN_MEMORY}: test methods can declare an {@code InMemoryProductService}
+ *     parameter, which receives a new service holding the catalog.</li>
+ *     <li>{@link Destination#DATABASE}: the catalog replaces all products in the database of the
+ *     test's Spring application context before each test. The test class must be a Spring test.</li>
+ * </ul>
+ * Test methods can also declare a {@link CatalogGenerator} parameter to look up the expected
+ * products by index. An annotation on a method overrides one on its class.
+ * <pre>
+ * &#64;Test
+ * &#64;GeneratedCatalog(products = 100_000)
+ * void testSearch(InMemoryProductService catalog) { ... }
+ * </pre>
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(GeneratedCatalogExtension.class)
+public @interface GeneratedCatalog {
+
+	/**
+	 * Where the catalog is put.
+	 */
+	enum Destination {
+		IN_MEMORY, DATABASE
+	}
+
+	/**
+	 * The number of products in the catalog.
+	 *
+	 * @return the catalog size
+	 */
+	long products();
+
+	/**
+	 * The seed selecting the catalog.
+	 *
+	 * @return the seed
+	 */
+	long seed() default CatalogGenerator.DEFAULT_SEED;
+
+	/**
+	 * Where the catalog is put.
+	 *
+	 * @return the destination
+	 */
+	Destination destination() default Destination.IN_MEMORY;
+}
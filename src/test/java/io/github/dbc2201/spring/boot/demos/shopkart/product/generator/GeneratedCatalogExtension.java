@@ -0,0 +1,52 @@
+package io.github.dbc2201.spring.boot.demos.shopkart.product.generator;
+
+import io.github.dbc2201.spring.boot.demos.shopkart.product.service.InMemoryProductService;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolutionException;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Provides the catalog requested with {@link GeneratedCatalog}.
+ */
+public class GeneratedCatalogExtension implements BeforeEachCallback, ParameterResolver {
+
+	@Override
+	public void beforeEach(ExtensionContext context) {
+		GeneratedCatalog catalog = catalog(context);
+		if (catalog.destination() == GeneratedCatalog.Destination.DATABASE) {
+			SpringExtension.getApplicationContext(context).getBean(CatalogWriter.class)
+					.write(new CatalogGenerator(catalog.seed()), catalog.products(), true);
+		}
+	}
+
+	@Override
+	public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+		Class<?> type = parameterContext.getParameter().getType();
+		return type == CatalogGenerator.class || type == InMemoryProductService.class;
+	}
+
+	@Override
+	public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+		GeneratedCatalog catalog = catalog(extensionContext);
+		CatalogGenerator generator = new CatalogGenerator(catalog.seed());
+		if (parameterContext.getParameter().getType() == CatalogGenerator.class) {
+			return generator;
+		}
+		if (catalog.destination() != GeneratedCatalog.Destination.IN_MEMORY) {
+			throw new ParameterResolutionException("An InMemoryProductService parameter needs an IN_MEMORY catalog");
+		}
+		return generator.fill(new InMemoryProductService(), catalog.products());
+	}
+
+	private static GeneratedCatalog catalog(ExtensionContext context) {
+		return context.getTestMethod()
+				.flatMap(method -> AnnotationSupport.findAnnotation(method, GeneratedCatalog.class))
+				.or(() -> context.getTestClass()
+						.flatMap(testClass -> AnnotationSupport.findAnnotation(testClass, GeneratedCatalog.class)))
+				.orElseThrow(() -> new IllegalStateException("No @GeneratedCatalog on " + context.getDisplayName()));
+	}
+}